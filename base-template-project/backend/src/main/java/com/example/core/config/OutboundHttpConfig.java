@@ -0,0 +1,20 @@
+package com.example.core.config;
+
+import com.example.core.http.OutboundHttp;
+import com.example.core.http.OutboundHttpProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Clientes HTTP hacia servicios externos (ver app.http.upstreams en application.yml)
+ */
+@Configuration
+@EnableConfigurationProperties(OutboundHttpProperties.class)
+public class OutboundHttpConfig {
+
+    @Bean
+    public OutboundHttp outboundHttp(OutboundHttpProperties properties) {
+        return new OutboundHttp(properties);
+    }
+}
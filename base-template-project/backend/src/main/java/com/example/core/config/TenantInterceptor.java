@@ -1,10 +1,10 @@
 package com.example.core.config;
 
 import com.example.core.context.TenantContext;
-import com.example.core.model.Tenant;
-import com.example.core.repository.TenantRepository;
+import com.example.core.service.TenantResolver;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -12,12 +12,18 @@ import org.springframework.web.servlet.HandlerInterceptor;
 import java.io.IOException;
 
 @Component
+@Slf4j
 public class TenantInterceptor implements HandlerInterceptor {
 
-    private final TenantRepository tenantRepository;
+    /**
+     * Request attribute con el TenantResolver.ResolvedTenant de la request
+     */
+    public static final String RESOLVED_TENANT_ATTRIBUTE = "core.resolvedTenant";
 
-    public TenantInterceptor(TenantRepository tenantRepository) {
-        this.tenantRepository = tenantRepository;
+    private final TenantResolver tenantResolver;
+
+    public TenantInterceptor(TenantResolver tenantResolver) {
+        this.tenantResolver = tenantResolver;
     }
 
     @Override
@@ -27,29 +33,25 @@ public class TenantInterceptor implements HandlerInterceptor {
 
         // 🔥 NUEVO: Priorizar el header X-Tenant-Subdomain
         String subdomain = request.getHeader("X-Tenant-Subdomain");
-        System.out.println("🔍 TenantInterceptor - Header X-Tenant-Subdomain: " + subdomain);
 
         // Si no hay header, extraer del dominio
         if (subdomain == null || subdomain.isEmpty()) {
             subdomain = extractSubdomain(request);
-            System.out.println("🔍 TenantInterceptor - Subdomain del host: " + subdomain);
         }
 
         // Fallback a default
         if (subdomain == null || subdomain.isEmpty()) {
-            subdomain = "default";
+            subdomain = TenantResolver.DEFAULT_SUBDOMAIN;
         }
 
-        System.out.println("🔍 TenantInterceptor - Subdomain final: " + subdomain);
-
-        Tenant tenant = tenantRepository.findBySubdomain(subdomain)
-                .orElse(tenantRepository.findBySubdomain("default")
-                        .orElseThrow(() -> new RuntimeException("No tenant found")));
+        // Resolución cacheada (el tenant "default" solo se busca si el subdomain no existe)
+        TenantResolver.ResolvedTenant tenant = tenantResolver.resolve(subdomain);
 
-        System.out.println("🏢 TenantInterceptor - Tenant encontrado: " + tenant.getBusinessName() + " (ID: " + tenant.getId() + ")");
+        log.debug("Tenant resuelto: subdomain={} → {} (ID: {})",
+                subdomain, tenant.getBusinessName(), tenant.getId());
 
         if (!tenant.isActive()) {
-            System.out.println("⛔ Tenant suspendido: " + tenant.getBusinessName());
+            log.warn("⛔ Tenant suspendido: {}", tenant.getBusinessName());
             response.setStatus(HttpStatus.FORBIDDEN.value());
             response.setContentType("application/json");
             response.getWriter().write(
@@ -59,6 +61,7 @@ public class TenantInterceptor implements HandlerInterceptor {
         }
 
         TenantContext.setCurrentTenant(tenant.getId());
+        request.setAttribute(RESOLVED_TENANT_ATTRIBUTE, tenant);
         return true;
     }
 
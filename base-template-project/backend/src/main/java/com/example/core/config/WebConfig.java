@@ -1,16 +1,22 @@
 package com.example.core.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
     private final TenantInterceptor tenantInterceptor;
+    private final CurrentUserArgumentResolver currentUserArgumentResolver;
 
-    public WebConfig(TenantInterceptor tenantInterceptor) {
+    public WebConfig(TenantInterceptor tenantInterceptor,
+                     CurrentUserArgumentResolver currentUserArgumentResolver) {
         this.tenantInterceptor = tenantInterceptor;
+        this.currentUserArgumentResolver = currentUserArgumentResolver;
     }
 
     @Override
@@ -19,4 +25,9 @@ public class WebConfig implements WebMvcConfigurer {
                 .addPathPatterns("/api/**")
                 .excludePathPatterns("/api/auth/login", "/api/auth/register");
     }
-}
\ No newline at end of file
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentUserArgumentResolver);
+    }
+}
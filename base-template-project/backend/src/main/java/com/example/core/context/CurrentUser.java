@@ -0,0 +1,110 @@
+package com.example.core.context;
+
+import com.example.core.model.Tenant;
+import com.example.core.model.User;
+import com.example.core.repository.TenantRepository;
+import com.example.core.repository.UserRepository;
+import com.example.core.security.AuthenticatedUser;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Usuario autenticado del request actual (un bean por request).
+ *
+ * - id, email, rol y tenantId salen del JWT: no cuestan queries.
+ * - userRef() / tenantRef() devuelven referencias JPA sin cargar, para usar como
+ *   parámetro en los finders (findByTenant, findByUser...).
+ * - getUser() / getTenant() cargan la entidad una sola vez por request (user + tenant en la misma query).
+ *
+ * Los controllers lo reciben como parámetro (ver CurrentUserArgumentResolver).
+ */
+@Component
+@RequestScope
+public class CurrentUser {
+
+    private final UserRepository userRepository;
+    private final TenantRepository tenantRepository;
+
+    private AuthenticatedUser principal;
+    private User user;
+
+    public CurrentUser(UserRepository userRepository, TenantRepository tenantRepository) {
+        this.userRepository = userRepository;
+        this.tenantRepository = tenantRepository;
+    }
+
+    public boolean isAuthenticated() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken);
+    }
+
+    public String getUserId() {
+        return principal().getUserId();
+    }
+
+    public String getEmail() {
+        return principal().getEmail();
+    }
+
+    public String getRole() {
+        return principal().getRole();
+    }
+
+    public String getTenantId() {
+        return principal().getTenantId();
+    }
+
+    /**
+     * Usuario completo (con su tenant), cargado una vez por request
+     */
+    public User getUser() {
+        if (user == null) {
+            user = userRepository.findWithTenantById(getUserId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+        }
+        return user;
+    }
+
+    public Tenant getTenant() {
+        return getUser().getTenant();
+    }
+
+    /**
+     * Referencia al usuario sin ir a la DB (si ya se cargó, devuelve la entidad)
+     */
+    public User userRef() {
+        return user != null ? user : userRepository.getReferenceById(getUserId());
+    }
+
+    /**
+     * Referencia al tenant sin ir a la DB (si ya se cargó, devuelve la entidad)
+     */
+    public Tenant tenantRef() {
+        return user != null ? user.getTenant() : tenantRepository.getReferenceById(getTenantId());
+    }
+
+    // ========== HELPERS ==========
+
+    private AuthenticatedUser principal() {
+        if (principal != null) {
+            return principal;
+        }
+        if (!isAuthenticated()) {
+            throw new RuntimeException("User not authenticated");
+        }
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth.getPrincipal() instanceof AuthenticatedUser authenticatedUser) {
+            principal = authenticatedUser;
+        } else {
+            // Autenticación que no vino del filtro JWT (ej. tests): resolver por email
+            user = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            principal = AuthenticatedUser.from(user);
+        }
+        return principal;
+    }
+}
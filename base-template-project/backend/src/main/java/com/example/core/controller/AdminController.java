@@ -8,6 +8,7 @@ import com.example.core.model.User;
 import com.example.core.repository.TenantRepository;
 import com.example.core.repository.UserRepository;
 import com.example.core.mapper.UserMapper;
+import com.example.core.security.TokenRevocationService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -26,15 +27,18 @@ public class AdminController {
     private final TenantRepository tenantRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationService tokenRevocationService;
 
     public AdminController(UserRepository userRepository,
                            TenantRepository tenantRepository,
                            UserMapper userMapper,
-                           PasswordEncoder passwordEncoder) {
+                           PasswordEncoder passwordEncoder,
+                           TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
         this.tenantRepository = tenantRepository;
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     // Obtiene TODOS LOS USUARIOS REGISTRADOS
@@ -85,6 +89,8 @@ public class AdminController {
             Role newRole = Role.valueOf(roleStr);
             user.setRole(newRole);
             userRepository.save(user);
+            // El rol viaja en el JWT: los tokens ya emitidos se revalidan contra la DB
+            tokenRevocationService.revokeTokensOf(user.getEmail());
             return ResponseEntity.ok(userMapper.toDto(user));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest()
@@ -1,5 +1,6 @@
 package com.example.core.controller;
 
+import com.example.core.context.CurrentUser;
 import com.example.core.dto.AuthRequest;
 import com.example.core.dto.AuthResponse;
 import com.example.core.dto.RegisterRequest;
@@ -16,7 +17,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -88,8 +88,9 @@ public class AuthController {
 
             // Generar token con claims
             Map<String, Object> claims = new HashMap<>();
-            claims.put("userId", user.getId());
-            claims.put("role", user.getRole().name());
+            claims.put(JwtUtil.CLAIM_USER_ID, user.getId());
+            claims.put(JwtUtil.CLAIM_ROLE, user.getRole().name());
+            claims.put(JwtUtil.CLAIM_TENANT_ID, user.getTenant().getId());
 
             String token = jwtUtil.generateToken(user.getEmail(), claims);
 
@@ -102,16 +103,11 @@ public class AuthController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<UserDTO> getCurrentUser(Authentication authentication) {
-        if (authentication == null || !authentication.isAuthenticated()) {
+    public ResponseEntity<UserDTO> getCurrentUser(CurrentUser currentUser) {
+        if (!currentUser.isAuthenticated()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        String email = authentication.getName();
-
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        return ResponseEntity.ok(userMapper.toDto(user));
+        return ResponseEntity.ok(userMapper.toDto(currentUser.getUser()));
     }
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.example.core.controller;
 
+import com.example.core.context.CurrentUser;
+import com.example.core.dto.BookingSlotDTO;
+import com.example.core.dto.DayAvailabilityDTO;
 import com.example.core.model.Booking;
 import com.example.core.service.BookingService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -28,14 +30,27 @@ public class BookingController {
      * GET /api/bookings/available?serviceId=xxx&date=2024-11-15
      */
     @GetMapping("/available")
-    public ResponseEntity<List<Map<String, Object>>> getAvailableSlots(
+    public ResponseEntity<List<BookingSlotDTO>> getAvailableSlots(
             @RequestParam String serviceId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
 
-        List<Map<String, Object>> slots = bookingService.getAvailableSlots(serviceId, date);
+        List<BookingSlotDTO> slots = bookingService.getAvailableSlots(serviceId, date);
         return ResponseEntity.ok(slots);
     }
 
+    /**
+     * Disponibilidad de un rango de días (semana/mes del calendario) en una sola llamada
+     * GET /api/bookings/availability?serviceId=xxx&startDate=2024-11-01&endDate=2024-11-30
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<List<DayAvailabilityDTO>> getAvailability(
+            @RequestParam String serviceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        return ResponseEntity.ok(bookingService.getAvailability(serviceId, startDate, endDate, false));
+    }
+
     /**
      * Crear una reserva
      * POST /api/bookings
@@ -45,16 +60,14 @@ public class BookingController {
     @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMIN')")
     public ResponseEntity<Booking> createBooking(
             @RequestBody Map<String, String> request,
-            Authentication authentication) {
+            CurrentUser currentUser) {
 
         String serviceId = request.get("serviceId");
         LocalDate date = LocalDate.parse(request.get("date"));
         LocalTime startTime = LocalTime.parse(request.get("startTime"));
         String notes = request.get("notes");
 
-        String userEmail = authentication.getName();
-
-        Booking booking = bookingService.createBooking(serviceId, userEmail, date, startTime, notes);
+        Booking booking = bookingService.createBooking(serviceId, currentUser.getUser(), date, startTime, notes);
         return ResponseEntity.ok(booking);
     }
 
@@ -90,9 +103,8 @@ public class BookingController {
      */
     @GetMapping("/my-bookings")
     @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMIN')")
-    public ResponseEntity<List<Booking>> getMyBookings(Authentication authentication) {
-        String userEmail = authentication.getName();
-        List<Booking> bookings = bookingService.getMyBookings(userEmail);
+    public ResponseEntity<List<Booking>> getMyBookings(CurrentUser currentUser) {
+        List<Booking> bookings = bookingService.getMyBookings(currentUser.userRef());
         return ResponseEntity.ok(bookings);
     }
 
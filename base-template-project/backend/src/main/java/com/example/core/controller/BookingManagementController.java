@@ -1,16 +1,17 @@
 package com.example.core.controller;
 
+import com.example.core.context.CurrentUser;
+import com.example.core.dto.BookingCalendarEntryDTO;
+import com.example.core.dto.DayAvailabilityDTO;
+import com.example.core.exception.BadRequestException;
 import com.example.core.model.Booking;
 import com.example.core.model.ServiceItem;
-import com.example.core.model.User;
 import com.example.core.repository.BookingRepository;
 import com.example.core.repository.ServiceRepository;
-import com.example.core.repository.UserRepository;
 import com.example.core.service.BookingService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -31,16 +32,13 @@ public class BookingManagementController {
 
     private final BookingRepository bookingRepository;
     private final ServiceRepository serviceRepository;
-    private final UserRepository userRepository;
     private final BookingService bookingService;
 
     public BookingManagementController(BookingRepository bookingRepository,
                                        ServiceRepository serviceRepository,
-                                       UserRepository userRepository,
                                        BookingService bookingService) {
         this.bookingRepository = bookingRepository;
         this.serviceRepository = serviceRepository;
-        this.userRepository = userRepository;
         this.bookingService = bookingService;
     }
 
@@ -49,11 +47,8 @@ public class BookingManagementController {
      * Obtener servicios del tenant con booking
      */
     @GetMapping("/services")
-    public ResponseEntity<List<Map<String, Object>>> getServicesWithBooking(Authentication authentication) {
-        User user = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        List<ServiceItem> services = serviceRepository.findByActiveTrueAndTenant(user.getTenant())
+    public ResponseEntity<List<Map<String, Object>>> getServicesWithBooking(CurrentUser currentUser) {
+        List<ServiceItem> services = serviceRepository.findByActiveTrueAndTenant(currentUser.tenantRef())
                 .stream()
                 .filter(ServiceItem::isRequiresBooking)
                 .collect(Collectors.toList());
@@ -77,32 +72,59 @@ public class BookingManagementController {
      * Obtener calendario de reservas para un servicio en un rango de fechas
      */
     @GetMapping("/calendar")
-    public ResponseEntity<List<Map<String, Object>>> getCalendar(
+    public ResponseEntity<List<BookingCalendarEntryDTO>> getCalendar(
             @RequestParam String serviceId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            Authentication authentication) {
-
-        User user = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+            CurrentUser currentUser) {
 
         ServiceItem service = serviceRepository.findById(serviceId)
                 .orElseThrow(() -> new RuntimeException("Service not found"));
 
         // Verificar que el servicio pertenezca al tenant del usuario
-        if (!service.getTenant().getId().equals(user.getTenant().getId())) {
+        if (!service.getTenant().getId().equals(currentUser.getTenantId())) {
             return ResponseEntity.status(403).build();
         }
 
-        List<Booking> bookings = bookingRepository.findByServiceAndBookingDateBetween(
-                service, startDate, endDate
-        );
+        return ResponseEntity.ok(bookingService.getCalendar(
+                currentUser.getTenantId(), serviceId, startDate, endDate, true));
+    }
 
-        List<Map<String, Object>> result = bookings.stream()
-                .map(this::toBookingMap)
-                .collect(Collectors.toList());
+    /**
+     * GET /api/booking-management/bookings?startDate=2024-11-11&endDate=2024-11-17
+     * Reservas de todos los servicios del tenant en un rango (vista semana / mes), sin canceladas
+     */
+    @GetMapping("/bookings")
+    public ResponseEntity<List<BookingCalendarEntryDTO>> getBookings(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String serviceId,
+            @RequestParam(defaultValue = "false") boolean includeCancelled,
+            CurrentUser currentUser) {
 
-        return ResponseEntity.ok(result);
+        return ResponseEntity.ok(bookingService.getCalendar(
+                currentUser.getTenantId(), serviceId, startDate, endDate, includeCancelled));
+    }
+
+    /**
+     * GET /api/booking-management/availability
+     * Ocupación de cada turno en un rango de fechas (incluye los turnos llenos)
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<List<DayAvailabilityDTO>> getAvailability(
+            @RequestParam String serviceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            CurrentUser currentUser) {
+
+        ServiceItem service = serviceRepository.findById(serviceId)
+                .orElseThrow(() -> new RuntimeException("Service not found"));
+
+        if (!service.getTenant().getId().equals(currentUser.getTenantId())) {
+            return ResponseEntity.status(403).build();
+        }
+
+        return ResponseEntity.ok(bookingService.getAvailability(serviceId, startDate, endDate, true));
     }
 
     /**
@@ -110,23 +132,12 @@ public class BookingManagementController {
      * Obtener reservas de hoy
      */
     @GetMapping("/bookings/today")
-    public ResponseEntity<List<Map<String, Object>>> getTodayBookings(Authentication authentication) {
-        User user = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
+    public ResponseEntity<List<BookingCalendarEntryDTO>> getTodayBookings(CurrentUser currentUser) {
         LocalDate today = LocalDate.now();
 
-        List<Booking> bookings = bookingRepository.findByTenant(user.getTenant())
-                .stream()
-                .filter(b -> b.getBookingDate().equals(today))
-                .filter(b -> b.getStatus() != Booking.BookingStatus.CANCELLED)
-                .collect(Collectors.toList());
-
-        List<Map<String, Object>> result = bookings.stream()
-                .map(this::toBookingMap)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(result);
+        // Solo las reservas de hoy (índice tenant + fecha), no todo el historial del tenant
+        return ResponseEntity.ok(bookingService.getCalendar(
+                currentUser.getTenantId(), null, today, today, false));
     }
 
     /**
@@ -137,47 +148,26 @@ public class BookingManagementController {
     public ResponseEntity<?> rescheduleBooking(
             @PathVariable String id,
             @RequestBody Map<String, String> body,
-            Authentication authentication) {
-
-        User user = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+            CurrentUser currentUser) {
 
         Booking booking = bookingRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
         // Verificar que pertenezca al tenant
-        if (!booking.getTenant().getId().equals(user.getTenant().getId())) {
+        if (!booking.getTenant().getId().equals(currentUser.getTenantId())) {
             return ResponseEntity.status(403).build();
         }
 
         LocalDate newDate = LocalDate.parse(body.get("date"));
         LocalTime newTime = LocalTime.parse(body.get("time"));
-        LocalTime endTime = newTime.plusMinutes(booking.getService().getDurationMinutes());
-
-        // Verificar que no haya conflictos
-        List<Booking> conflicts = bookingRepository.findConflictingBookings(
-                booking.getService().getId(),
-                newDate,
-                newTime,
-                endTime
-        );
-
-        // Excluir el booking actual de los conflictos
-        conflicts = conflicts.stream()
-                .filter(b -> !b.getId().equals(id))
-                .collect(Collectors.toList());
 
-        if (!conflicts.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .body(Map.of("error", "Ya hay una reserva en ese horario"));
+        // Verifica capacidad con el mismo lock que las reservas nuevas
+        try {
+            Booking rescheduled = bookingService.rescheduleBooking(id, newDate, newTime);
+            return ResponseEntity.ok(toBookingMap(rescheduled));
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
-
-        booking.setBookingDate(newDate);
-        booking.setStartTime(newTime);
-        booking.setEndTime(endTime);
-        bookingRepository.save(booking);
-
-        return ResponseEntity.ok(toBookingMap(booking));
     }
 
     /**
@@ -188,15 +178,12 @@ public class BookingManagementController {
     public ResponseEntity<?> cancelBookingAdmin(
             @PathVariable String id,
             @RequestBody Map<String, String> body,
-            Authentication authentication) {
-
-        User user = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+            CurrentUser currentUser) {
 
         Booking booking = bookingRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
-        if (!booking.getTenant().getId().equals(user.getTenant().getId())) {
+        if (!booking.getTenant().getId().equals(currentUser.getTenantId())) {
             return ResponseEntity.status(403).build();
         }
 
@@ -213,15 +200,12 @@ public class BookingManagementController {
     @GetMapping("/bookings/{id}/payment-status")
     public ResponseEntity<Map<String, Object>> getPaymentStatus(
             @PathVariable String id,
-            Authentication authentication) {
-
-        User user = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+            CurrentUser currentUser) {
 
         Booking booking = bookingRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
-        if (!booking.getTenant().getId().equals(user.getTenant().getId())) {
+        if (!booking.getTenant().getId().equals(currentUser.getTenantId())) {
             return ResponseEntity.status(403).build();
         }
 
@@ -1,49 +1,44 @@
 package com.example.core.controller;
 
-import com.example.core.context.TenantContext;
+import com.example.core.config.TenantInterceptor;
 import com.example.core.dto.TenantDTO;
-import com.example.core.model.Tenant;
-import com.example.core.repository.TenantRepository;
+import com.example.core.service.TenantResolver;
+import com.example.core.util.ETags;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.TimeUnit;
+
 @RestController
 @RequestMapping("/api/config")
 public class ConfigController {
 
-    private final TenantRepository tenantRepository;
+    private final TenantResolver tenantResolver;
 
-    public ConfigController(TenantRepository tenantRepository) {
-        this.tenantRepository = tenantRepository;
+    public ConfigController(TenantResolver tenantResolver) {
+        this.tenantResolver = tenantResolver;
     }
 
+    /**
+     * Config pública del tenant de la request (resuelto y cacheado por TenantInterceptor).
+     * Sin queries: sale del cache de TenantResolver, con ETag para responder 304.
+     */
     @GetMapping("/current")
-    public ResponseEntity<TenantDTO> getCurrentTenantConfig() {
-        // Obtener tenant del contexto (inyectado por el interceptor)
-        String tenantId = TenantContext.getCurrentTenant();
+    public ResponseEntity<TenantDTO> getCurrentTenantConfig(
+            @RequestAttribute(name = TenantInterceptor.RESOLVED_TENANT_ATTRIBUTE, required = false)
+            TenantResolver.ResolvedTenant tenant) {
 
-        if (tenantId == null) {
+        if (tenant == null) {
             // Fallback al tenant por defecto
-            Tenant defaultTenant = tenantRepository.findBySubdomain("default")
-                    .orElseThrow(() -> new RuntimeException("Default tenant not found"));
-            return ResponseEntity.ok(toDTO(defaultTenant));
+            tenant = tenantResolver.resolve(TenantResolver.DEFAULT_SUBDOMAIN);
         }
 
-        Tenant tenant = tenantRepository.findById(tenantId)
-                .orElseThrow(() -> new RuntimeException("Tenant not found"));
-
-        return ResponseEntity.ok(toDTO(tenant));
-    }
-
-    private TenantDTO toDTO(Tenant tenant) {
-        TenantDTO dto = new TenantDTO();
-        dto.setId(tenant.getId());
-        dto.setSubdomain(tenant.getSubdomain());
-        dto.setBusinessName(tenant.getBusinessName());
-        dto.setType(tenant.getType().name());
-        dto.setConfig(tenant.getConfig());
-        return dto;
+        // La config cambia poco: 60s sin revalidar y después 304 con el ETag
+        CacheControl cacheControl = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic();
+        return ETags.conditional(tenant.getConfigEtag(), cacheControl, tenant.getPublicConfig());
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package com.example.core.controller;
 
+import com.example.core.context.CurrentUser;
+import com.example.core.dto.CursorPageDTO;
 import com.example.core.dto.OrderDTO;
 import com.example.core.dto.UpdateProfileRequestDTO;
 import com.example.core.dto.UserDTO;
@@ -11,9 +13,9 @@ import com.example.core.repository.BookingRepository;
 import com.example.core.repository.OrderRepository;
 import com.example.core.repository.UserRepository;
 import com.example.core.service.BookingService;
+import com.example.core.service.OrderListingService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -36,17 +38,20 @@ public class CustomerController {
     private final BookingRepository bookingRepository;
     private final BookingService bookingService;
     private final UserMapper userMapper;
+    private final OrderListingService orderListingService;
 
     public CustomerController(UserRepository userRepository,
                               OrderRepository orderRepository,
                               BookingRepository bookingRepository,
                               BookingService bookingService,
-                              UserMapper userMapper) {
+                              UserMapper userMapper,
+                              OrderListingService orderListingService) {
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
         this.bookingRepository = bookingRepository;
         this.bookingService = bookingService;
         this.userMapper = userMapper;
+        this.orderListingService = orderListingService;
     }
 
     /**
@@ -54,12 +59,8 @@ public class CustomerController {
      * Obtener perfil del cliente actual
      */
     @GetMapping("/profile")
-    public ResponseEntity<UserDTO> getProfile(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        return ResponseEntity.ok(userMapper.toDto(user));
+    public ResponseEntity<UserDTO> getProfile(CurrentUser currentUser) {
+        return ResponseEntity.ok(userMapper.toDto(currentUser.getUser()));
     }
 
     /**
@@ -69,11 +70,9 @@ public class CustomerController {
     @PutMapping("/profile")
     public ResponseEntity<UserDTO> updateProfile(
             @RequestBody UpdateProfileRequestDTO request,
-            Authentication authentication) {
+            CurrentUser currentUser) {
 
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = currentUser.getUser();
 
         // Actualizar solo campos permitidos
         if (request.getName() != null && !request.getName().isBlank()) {
@@ -92,12 +91,8 @@ public class CustomerController {
      * Obtener todas mis órdenes
      */
     @GetMapping("/orders")
-    public ResponseEntity<List<OrderDTO>> getMyOrders(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        List<Order> orders = orderRepository.findByUserOrderByCreatedAtDesc(user);
+    public ResponseEntity<List<OrderDTO>> getMyOrders(CurrentUser currentUser) {
+        List<Order> orders = orderRepository.findByUserOrderByCreatedAtDesc(currentUser.userRef());
 
         List<OrderDTO> dtos = orders.stream()
                 .map(this::toOrderDTO)
@@ -106,6 +101,26 @@ public class CustomerController {
         return ResponseEntity.ok(dtos);
     }
 
+    /**
+     * GET /api/customer/orders/page?cursor=xxx&limit=20
+     * Mis órdenes paginadas (cursor = nextCursor de la página anterior)
+     */
+    @GetMapping("/orders/page")
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getMyOrdersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            CurrentUser currentUser) {
+
+        OrderListingService.OrderPage page =
+                orderListingService.findUserOrders(currentUser.userRef(), cursor, limit);
+
+        List<OrderDTO> dtos = page.getOrders().stream()
+                .map(this::toOrderDTO)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(new CursorPageDTO<>(dtos, page.getNextCursor()));
+    }
+
     /**
      * GET /api/customer/orders/{id}
      * Obtener detalle de una orden específica
@@ -113,17 +128,13 @@ public class CustomerController {
     @GetMapping("/orders/{id}")
     public ResponseEntity<OrderDTO> getOrder(
             @PathVariable String id,
-            Authentication authentication) {
-
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+            CurrentUser currentUser) {
 
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
         // Verificar que la orden pertenezca al usuario
-        if (!order.getUser().getId().equals(user.getId())) {
+        if (!order.getUser().getId().equals(currentUser.getUserId())) {
             return ResponseEntity.status(403).build();
         }
 
@@ -135,12 +146,8 @@ public class CustomerController {
      * Obtener todas mis reservas
      */
     @GetMapping("/bookings")
-    public ResponseEntity<List<Map<String, Object>>> getMyBookings(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        List<Booking> bookings = bookingRepository.findByUserOrderByBookingDateDescStartTimeDesc(user);
+    public ResponseEntity<List<Map<String, Object>>> getMyBookings(CurrentUser currentUser) {
+        List<Booking> bookings = bookingRepository.findByUserOrderByBookingDateDescStartTimeDesc(currentUser.userRef());
 
         List<Map<String, Object>> dtos = bookings.stream()
                 .map(this::toBookingDTO)
@@ -154,14 +161,10 @@ public class CustomerController {
      * Obtener solo reservas próximas (futuras)
      */
     @GetMapping("/bookings/upcoming")
-    public ResponseEntity<List<Map<String, Object>>> getUpcomingBookings(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
+    public ResponseEntity<List<Map<String, Object>>> getUpcomingBookings(CurrentUser currentUser) {
         LocalDate today = LocalDate.now();
 
-        List<Booking> bookings = bookingRepository.findByUserOrderByBookingDateDescStartTimeDesc(user)
+        List<Booking> bookings = bookingRepository.findByUserOrderByBookingDateDescStartTimeDesc(currentUser.userRef())
                 .stream()
                 .filter(b -> b.getBookingDate().isAfter(today) || b.getBookingDate().isEqual(today))
                 .filter(b -> b.getStatus() == Booking.BookingStatus.CONFIRMED ||
@@ -183,17 +186,13 @@ public class CustomerController {
     public ResponseEntity<?> cancelBooking(
             @PathVariable String id,
             @RequestBody(required = false) Map<String, String> body,
-            Authentication authentication) {
-
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+            CurrentUser currentUser) {
 
         Booking booking = bookingRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
         // Verificar que la reserva pertenezca al usuario
-        if (!booking.getUser().getId().equals(user.getId())) {
+        if (!booking.getUser().getId().equals(currentUser.getUserId())) {
             return ResponseEntity.status(403).body(
                     Map.of("error", "No tienes permiso para cancelar esta reserva")
             );
@@ -226,11 +225,8 @@ public class CustomerController {
      * Obtener estadísticas básicas del cliente
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getCustomerStats(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
+    public ResponseEntity<Map<String, Object>> getCustomerStats(CurrentUser currentUser) {
+        User user = currentUser.userRef();
         List<Order> orders = orderRepository.findByUser(user);
         List<Booking> bookings = bookingRepository.findByUser(user);
 
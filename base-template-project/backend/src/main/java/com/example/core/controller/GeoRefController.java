@@ -43,13 +43,15 @@ public class GeoRefController {
     }
 
     /**
-     * GET /api/georef/municipalities/search?query=Venado
-     * Busca municipios por nombre (autocomplete)
+     * GET /api/georef/municipalities/search?query=cordoba&provinceId=14&limit=20
+     * Busca municipios por nombre (autocomplete, sin acentos, en memoria)
      */
     @GetMapping("/municipalities/search")
     public ResponseEntity<List<MunicipalityDTO>> searchMunicipalities(
-            @RequestParam String query) {
-        List<MunicipalityDTO> municipalities = geoRefService.searchMunicipalitiesByName(query);
+            @RequestParam String query,
+            @RequestParam(required = false) String provinceId,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<MunicipalityDTO> municipalities = geoRefService.searchMunicipalitiesByName(query, provinceId, limit);
         return ResponseEntity.ok(municipalities);
     }
 
@@ -65,4 +67,17 @@ public class GeoRefController {
         List<LocalityDTO> localities = geoRefService.getLocalitiesByMunicipality(municipalityId);
         return ResponseEntity.ok(localities);
     }
+
+    /**
+     * GET /api/georef/localities/search?query=villa gen&provinceId=06&limit=20
+     * Busca localidades por nombre (autocomplete, sin acentos, en memoria)
+     */
+    @GetMapping("/localities/search")
+    public ResponseEntity<List<LocalityDTO>> searchLocalities(
+            @RequestParam String query,
+            @RequestParam(required = false) String provinceId,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<LocalityDTO> localities = geoRefService.searchLocalitiesByName(query, provinceId, limit);
+        return ResponseEntity.ok(localities);
+    }
 }
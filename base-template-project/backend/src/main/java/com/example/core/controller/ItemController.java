@@ -1,5 +1,6 @@
 package com.example.core.controller;
 
+import com.example.core.context.CurrentUser;
 import com.example.core.context.TenantContext;
 import com.example.core.dto.ProductDTO;
 import com.example.core.dto.ServiceDTO;
@@ -7,18 +8,16 @@ import com.example.core.mapper.ItemMapper;
 import com.example.core.model.Product;
 import com.example.core.model.ServiceItem;
 import com.example.core.model.Tenant;
-import com.example.core.model.User;
 import com.example.core.repository.ProductRepository;
 import com.example.core.repository.ServiceRepository;
-import com.example.core.repository.TenantRepository;
-import com.example.core.repository.UserRepository;
+import com.example.core.service.CatalogCache;
+import com.example.core.util.ETags;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/items")
@@ -27,19 +26,16 @@ public class ItemController {
     private final ProductRepository productRepository;
     private final ServiceRepository serviceRepository;
     private final ItemMapper itemMapper;
-    private final TenantRepository tenantRepository;
-    private final UserRepository userRepository;
+    private final CatalogCache catalogCache;
 
     public ItemController(ProductRepository productRepository,
                           ServiceRepository serviceRepository,
                           ItemMapper itemMapper,
-                          TenantRepository tenantRepository,
-                          UserRepository userRepository) {
+                          CatalogCache catalogCache) {
         this.productRepository = productRepository;
         this.serviceRepository = serviceRepository;
         this.itemMapper = itemMapper;
-        this.tenantRepository = tenantRepository;
-        this.userRepository = userRepository;
+        this.catalogCache = catalogCache;
     }
 
     // ========== PRODUCTOS ==========
@@ -52,59 +48,30 @@ public class ItemController {
     }
 
     @GetMapping("/products")
-    public ResponseEntity<List<ProductDTO>> getAllProducts(Authentication authentication) {
-        if (authentication != null && authentication.isAuthenticated()) {
-            String email = authentication.getName();
-            User user = userRepository.findByEmail(email).orElse(null);
-
-            if (user != null) {
-                Tenant tenant = user.getTenant();
-                List<Product> products = productRepository.findByActiveTrueAndTenant(tenant);
-                List<ProductDTO> dtos = products.stream()
-                        .map(itemMapper::toProductDTO)
-                        .collect(Collectors.toList());
-                return ResponseEntity.ok(dtos);
-            }
-        }
-
-        List<Product> products = productRepository.findByActiveTrue();
-        List<ProductDTO> dtos = products.stream()
-                .map(itemMapper::toProductDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<List<ProductDTO>> getAllProducts(CurrentUser currentUser) {
+        CatalogCache.Snapshot<ProductDTO> catalog = catalogCache.getProducts(catalogTenantId(currentUser));
+        return ETags.conditional(catalog.getEtag(), catalogCacheControl(currentUser), catalog.getItems());
     }
 
     @PostMapping("/products")
     @PreAuthorize("hasRole('ADMIN') or hasRole('VENDEDOR')")
     public ResponseEntity<ProductDTO> createProduct(
             @RequestBody ProductDTO dto,
-            Authentication authentication) {
-
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        Tenant tenant = user.getTenant();
+            CurrentUser currentUser) {
 
         Product product = itemMapper.fromProductDTO(dto);
-        product.setTenant(tenant);
+        product.setTenant(currentUser.tenantRef());
         product = productRepository.save(product);
+        catalogCache.invalidate(currentUser.getTenantId());
         return ResponseEntity.ok(itemMapper.toProductDTO(product));
     }
 
     // ========== SERVICIOS ==========
 
     @GetMapping("/services")
-    public ResponseEntity<List<ServiceDTO>> getAllServices() {
-        String tenantId = TenantContext.getCurrentTenant();
-        Tenant tenant = tenantRepository.findById(tenantId)
-                .orElseThrow(() -> new RuntimeException("Tenant not found"));
-
-        List<ServiceItem> services = serviceRepository.findByActiveTrueAndTenant(tenant);
-        List<ServiceDTO> dtos = services.stream()
-                .map(itemMapper::toServiceDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<List<ServiceDTO>> getAllServices(CurrentUser currentUser) {
+        CatalogCache.Snapshot<ServiceDTO> catalog = catalogCache.getServices(catalogTenantId(currentUser));
+        return ETags.conditional(catalog.getEtag(), catalogCacheControl(currentUser), catalog.getItems());
     }
 
     @GetMapping("/services/{id}")
@@ -118,13 +85,9 @@ public class ItemController {
     @PreAuthorize("hasRole('ADMIN') or hasRole('VENDEDOR')")
     public ResponseEntity<ServiceDTO> createService(
             @RequestBody ServiceDTO dto,
-            Authentication authentication) {
-
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+            CurrentUser currentUser) {
 
-        Tenant tenant = user.getTenant();
+        Tenant tenant = currentUser.getTenant();
 
         // Validar que el tenant tenga servicios habilitados
         if (tenant.getConfig() == null ||
@@ -139,6 +102,33 @@ public class ItemController {
         service.setActive(true);
 
         service = serviceRepository.save(service);
+        catalogCache.invalidate(tenant);
         return ResponseEntity.ok(itemMapper.toServiceDTO(service));
     }
+
+    // ========== HELPERS ==========
+
+    /**
+     * Tenant del catálogo: el del usuario logueado o, para el storefront anónimo,
+     * el resuelto por subdomain en TenantInterceptor.
+     */
+    private String catalogTenantId(CurrentUser currentUser) {
+        if (currentUser.isAuthenticated()) {
+            return currentUser.getTenantId();
+        }
+        String tenantId = TenantContext.getCurrentTenant();
+        if (tenantId == null) {
+            throw new RuntimeException("Tenant not found");
+        }
+        return tenantId;
+    }
+
+    /**
+     * Siempre revalidar (no-cache): el catálogo cambia con cada venta y el 304 es barato.
+     * Con usuario logueado la respuesta es privada (depende del token).
+     */
+    private CacheControl catalogCacheControl(CurrentUser currentUser) {
+        CacheControl cacheControl = CacheControl.noCache();
+        return currentUser.isAuthenticated() ? cacheControl.cachePrivate() : cacheControl.cachePublic();
+    }
 }
\ No newline at end of file
@@ -1,20 +1,26 @@
 package com.example.core.controller;
 
+import com.example.core.context.CurrentUser;
 import com.example.core.dto.CreateOrderRequest;
+import com.example.core.dto.CursorPageDTO;
 import com.example.core.dto.OrderDTO;
 import com.example.core.dto.OrderItemDTO;
 import com.example.core.model.Order;
 import com.example.core.model.OrderItem;
-import com.example.core.model.User;
 import com.example.core.repository.OrderRepository;
-import com.example.core.repository.UserRepository;
+import com.example.core.service.OrderListingService;
 import com.example.core.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -25,14 +31,17 @@ public class OrderController {
 
     private final OrderService orderService;
     private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
+    private final OrderListingService orderListingService;
+    private final ObjectMapper objectMapper;
 
     public OrderController(OrderService orderService,
                            OrderRepository orderRepository,
-                           UserRepository userRepository) {
+                           OrderListingService orderListingService,
+                           ObjectMapper objectMapper) {
         this.orderService = orderService;
         this.orderRepository = orderRepository;
-        this.userRepository = userRepository;
+        this.orderListingService = orderListingService;
+        this.objectMapper = objectMapper;
     }
 
     // Crear orden (checkout)
@@ -40,10 +49,9 @@ public class OrderController {
     @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMIN')")
     public ResponseEntity<OrderDTO> createOrder(
             @Valid @RequestBody CreateOrderRequest request,
-            Authentication authentication) {
+            CurrentUser currentUser) {
 
-        String email = authentication.getName();
-        Order order = orderService.createOrder(request, email);
+        Order order = orderService.createOrder(request, currentUser.getUser());
 
         return ResponseEntity.ok(toDTO(order));
     }
@@ -51,12 +59,8 @@ public class OrderController {
     // Ver mis órdenes (cliente)
     @GetMapping("/my-orders")
     @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMIN')")
-    public ResponseEntity<List<OrderDTO>> getMyOrders(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        List<Order> orders = orderRepository.findByUserOrderByCreatedAtDesc(user);
+    public ResponseEntity<List<OrderDTO>> getMyOrders(CurrentUser currentUser) {
+        List<Order> orders = orderRepository.findByUserOrderByCreatedAtDesc(currentUser.userRef());
         List<OrderDTO> dtos = orders.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
@@ -67,12 +71,8 @@ public class OrderController {
     // Ver todas las órdenes del tenant (vendedor/admin)
     @GetMapping
     @PreAuthorize("hasAnyRole('VENDEDOR', 'ADMIN')")
-    public ResponseEntity<List<OrderDTO>> getAllOrders(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        List<Order> orders = orderRepository.findByTenantOrderByCreatedAtDesc(user.getTenant());
+    public ResponseEntity<List<OrderDTO>> getAllOrders(CurrentUser currentUser) {
+        List<Order> orders = orderRepository.findByTenantOrderByCreatedAtDesc(currentUser.tenantRef());
         List<OrderDTO> dtos = orders.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
@@ -80,22 +80,64 @@ public class OrderController {
         return ResponseEntity.ok(dtos);
     }
 
+    // Ver mis órdenes paginadas (cursor = nextCursor de la página anterior)
+    @GetMapping("/my-orders/page")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMIN')")
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getMyOrdersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            CurrentUser currentUser) {
+
+        OrderListingService.OrderPage page =
+                orderListingService.findUserOrders(currentUser.userRef(), cursor, limit);
+        return ResponseEntity.ok(toPageDTO(page));
+    }
+
+    // Ver órdenes del tenant paginadas (vendedor/admin)
+    @GetMapping("/page")
+    @PreAuthorize("hasAnyRole('VENDEDOR', 'ADMIN')")
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getAllOrdersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            CurrentUser currentUser) {
+
+        OrderListingService.OrderPage page =
+                orderListingService.findTenantOrders(currentUser.tenantRef(), cursor, limit);
+        return ResponseEntity.ok(toPageDTO(page));
+    }
+
+    // Exportar todo el historial del tenant como NDJSON (una orden por línea, en streaming)
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @PreAuthorize("hasAnyRole('VENDEDOR', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(CurrentUser currentUser) {
+        String tenantId = currentUser.getTenantId();
+
+        StreamingResponseBody body = out -> orderListingService.forEachTenantOrderPage(tenantId, orders -> {
+            for (Order order : orders) {
+                writeLine(out, toDTO(order));
+            }
+            flush(out);
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header("Content-Disposition", "attachment; filename=\"orders.ndjson\"")
+                .body(body);
+    }
+
     // Ver detalle de una orden
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMIN')")
     public ResponseEntity<OrderDTO> getOrder(
             @PathVariable String id,
-            Authentication authentication) {
+            CurrentUser currentUser) {
 
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
         // Verificar permisos: solo el dueño o vendedor/admin del tenant pueden ver
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email).orElseThrow();
-
-        if (!order.getUser().getId().equals(user.getId()) &&
-                !order.getTenant().getId().equals(user.getTenant().getId())) {
+        if (!order.getUser().getId().equals(currentUser.getUserId()) &&
+                !order.getTenant().getId().equals(currentUser.getTenantId())) {
             return ResponseEntity.status(403).build();
         }
 
@@ -109,12 +151,8 @@ public class OrderController {
             @PathVariable String id,
             @RequestBody java.util.Map<String, String> body) {
 
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
         String newStatus = body.get("status");
-        order.setStatus(Order.OrderStatus.valueOf(newStatus));
-        orderRepository.save(order);
+        Order order = orderService.updateOrderStatus(id, Order.OrderStatus.valueOf(newStatus));
 
         return ResponseEntity.ok(toDTO(order));
     }
@@ -125,17 +163,14 @@ public class OrderController {
     public ResponseEntity<OrderDTO> cancelOrder(
             @PathVariable String id,
             @RequestBody(required = false) java.util.Map<String, String> body,
-            Authentication authentication) {
+            CurrentUser currentUser) {
 
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
         // Verificar permisos: solo el dueño o vendedor/admin del tenant pueden cancelar
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email).orElseThrow();
-
-        if (!order.getUser().getId().equals(user.getId()) &&
-                !order.getTenant().getId().equals(user.getTenant().getId())) {
+        if (!order.getUser().getId().equals(currentUser.getUserId()) &&
+                !order.getTenant().getId().equals(currentUser.getTenantId())) {
             return ResponseEntity.status(403).build();
         }
 
@@ -146,6 +181,30 @@ public class OrderController {
     }
 
     // Mapper manual
+    private CursorPageDTO<OrderDTO> toPageDTO(OrderListingService.OrderPage page) {
+        List<OrderDTO> dtos = page.getOrders().stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+        return new CursorPageDTO<>(dtos, page.getNextCursor());
+    }
+
+    private void writeLine(OutputStream out, OrderDTO dto) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private OrderDTO toDTO(Order order) {
         OrderDTO dto = new OrderDTO();
         dto.setId(order.getId());
@@ -1,23 +1,23 @@
 package com.example.core.controller;
 
+import com.example.core.context.CurrentUser;
 import com.example.core.dto.CreatePaymentRequest;
 import com.example.core.dto.PaymentDTO;
 import com.example.core.dto.UploadReceiptRequest;
 import com.example.core.model.Payment;
-import com.example.core.model.User;
 import com.example.core.repository.PaymentRepository;
-import com.example.core.repository.UserRepository;
+import com.example.core.service.MercadoPagoClients;
 import com.example.core.service.PaymentService;
+import com.example.core.service.WebhookInboxService;
 import com.example.core.util.MercadoPagoWebhookValidator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
@@ -32,23 +32,26 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final PaymentRepository paymentRepository;
-    private final UserRepository userRepository;
     private final MercadoPagoWebhookValidator webhookValidator;
-
-    @Value("${mercadopago.webhook-secret}")
-    private String webhookSecret;
+    private final WebhookInboxService webhookInboxService;
+    private final MercadoPagoClients mercadoPagoClients;
+    private final ObjectMapper objectMapper;
 
     // URL del frontend (localhost para desarrollo, se cambiará en producción)
     private static final String FRONTEND_URL = "http://localhost:5173";
 
     public PaymentController(PaymentService paymentService,
                              PaymentRepository paymentRepository,
-                             UserRepository userRepository,
-                             MercadoPagoWebhookValidator webhookValidator) {
+                             MercadoPagoWebhookValidator webhookValidator,
+                             WebhookInboxService webhookInboxService,
+                             MercadoPagoClients mercadoPagoClients,
+                             ObjectMapper objectMapper) {
         this.paymentService = paymentService;
         this.paymentRepository = paymentRepository;
-        this.userRepository = userRepository;
         this.webhookValidator = webhookValidator;
+        this.webhookInboxService = webhookInboxService;
+        this.mercadoPagoClients = mercadoPagoClients;
+        this.objectMapper = objectMapper;
     }
 
     // ======================================================
@@ -109,12 +112,9 @@ public class PaymentController {
     // ======================================================
     @GetMapping("/pending-list")
     @PreAuthorize("hasAnyRole('VENDEDOR', 'ADMIN')")
-    public ResponseEntity<List<PaymentDTO>> getPendingPayments(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email).orElseThrow();
-
+    public ResponseEntity<List<PaymentDTO>> getPendingPayments(CurrentUser currentUser) {
         List<Payment> payments = paymentRepository.findByTenantAndStatus(
-                user.getTenant(),
+                currentUser.tenantRef(),
                 Payment.PaymentStatus.PENDING
         );
 
@@ -132,6 +132,7 @@ public class PaymentController {
     public ResponseEntity<Void> mercadoPagoWebhook(
             @RequestHeader(value = "x-signature", required = false) String signatureHeader,
             @RequestHeader(value = "x-request-id", required = false) String requestId,
+            @RequestParam(value = "tenant", required = false) String tenantId,
             @RequestBody String requestBody) {
 
         log.info("🔔 Webhook recibido de MercadoPago");
@@ -139,50 +140,35 @@ public class PaymentController {
         log.info("   Request ID: {}", requestId);
         log.info("   Request Body: {}", requestBody);
 
+        Map<String, Object> payload;
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, Object> payload = mapper.readValue(requestBody, new TypeReference<>() {});
-            String type = (String) payload.get("type");
-
-            log.info("   Tipo de evento: {}", type);
-
-            if ("payment".equals(type)) {
-                Map<String, Object> dataMap = (Map<String, Object>) payload.get("data");
-                String paymentId = String.valueOf(dataMap.get("id"));
-
-                log.info("💳 Payment ID recibido de MP: {}", paymentId);
-
-                // 🔎 Obtener detalles completos del pago desde Mercado Pago
-                Map<String, Object> paymentData = paymentService.getMercadoPagoPaymentDetails(paymentId);
-
-                if (paymentData == null || paymentData.isEmpty()) {
-                    log.warn("⚠️ No se pudieron obtener datos del pago ID={}", paymentId);
-                    return ResponseEntity.ok().build();
-                }
-
-                // Extraer campos de forma segura
-                String status = (String) paymentData.getOrDefault("status", "unknown");
-                String externalRef = (String) paymentData.getOrDefault("external_reference", null);
-
-                log.info("✅ Datos MP -> status={}, external_reference={}", status, externalRef);
+            payload = objectMapper.readValue(requestBody, new TypeReference<>() {});
+        } catch (IOException e) {
+            log.warn("⚠️ Webhook MP con body inválido, se ignora: {}", e.getMessage());
+            return ResponseEntity.ok().build(); // Reintentarlo no lo arregla
+        }
 
-                if (externalRef != null && !externalRef.isEmpty()) {
-                    // Procesar el webhook usando el external_reference (Order ID)
-                    paymentService.processMercadoPagoWebhookExternalRef(externalRef, status);
-                    log.info("✅ Webhook procesado exitosamente para orderId={}", externalRef);
-                } else {
-                    log.warn("⚠️ No se encontró external_reference en el pago ID={}", paymentId);
-                }
-            } else {
-                log.info("ℹ️ Tipo de evento ignorado: {}", type);
-            }
+        String type = (String) payload.get("type");
+        log.info("   Tipo de evento: {}", type);
 
+        if (!"payment".equals(type) || !(payload.get("data") instanceof Map<?, ?> dataMap) || dataMap.get("id") == null) {
+            log.info("ℹ️ Tipo de evento ignorado: {}", type);
             return ResponseEntity.ok().build();
+        }
+
+        String paymentId = String.valueOf(dataMap.get("id"));
 
-        } catch (Exception e) {
-            log.error("❌ Error procesando webhook MP: {}", e.getMessage(), e);
-            return ResponseEntity.ok().build(); // Retornar 200 para que MP no reintente
+        // 🔏 ?tenant= llega sin autenticar: solo vale si la firma es de la cuenta de MP de ese tenant
+        // (o de la plataforma si el tenant no tiene cuenta propia)
+        if (!webhookValidator.isValid(signatureHeader, requestId, paymentId, mercadoPagoClients.webhookSecret(tenantId))) {
+            log.warn("🚫 Webhook MP con firma inválida (tenant={}, pago={}), se rechaza", tenantId, paymentId);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
+
+        // 📥 Solo se guarda en el inbox; la consulta a MP y el cambio de estado los hace un worker.
+        // Si no se puede guardar, la excepción responde 5xx y MP vuelve a mandar la notificación.
+        webhookInboxService.enqueueMercadoPagoPayment(paymentId, tenantId, requestBody);
+        return ResponseEntity.ok().build();
     }
 
     // ======================================================
@@ -2,11 +2,19 @@ package com.example.core.controller;
 
 import com.example.core.dto.ServiceDTO;
 import com.example.core.dto.TenantDTO;
+import com.example.core.http.OutboundHttp;
 import com.example.core.model.ServiceItem;
 import com.example.core.model.Tenant;
 import com.example.core.model.TenantConfig;
 import com.example.core.repository.ServiceRepository;
 import com.example.core.repository.TenantRepository;
+import com.example.core.service.CatalogCache;
+import com.example.core.service.DailySalesRollupService;
+import com.example.core.service.GeoRefService;
+import com.example.core.service.MercadoPagoClients;
+import com.example.core.service.MercadoEnviosService;
+import com.example.core.service.TenantResolver;
+import com.example.core.service.WebhookInboxService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -26,11 +34,35 @@ public class SuperAdminController {
 
     private final TenantRepository tenantRepository;
     private final ServiceRepository serviceRepository;
+    private final TenantResolver tenantResolver;
+    private final DailySalesRollupService dailySalesRollupService;
+    private final CatalogCache catalogCache;
+    private final GeoRefService geoRefService;
+    private final MercadoEnviosService mercadoEnviosService;
+    private final OutboundHttp outboundHttp;
+    private final WebhookInboxService webhookInboxService;
+    private final MercadoPagoClients mercadoPagoClients;
 
     public SuperAdminController(TenantRepository tenantRepository,
-                                ServiceRepository serviceRepository) {
+                                ServiceRepository serviceRepository,
+                                TenantResolver tenantResolver,
+                                DailySalesRollupService dailySalesRollupService,
+                                CatalogCache catalogCache,
+                                GeoRefService geoRefService,
+                                MercadoEnviosService mercadoEnviosService,
+                                OutboundHttp outboundHttp,
+                                WebhookInboxService webhookInboxService,
+                                MercadoPagoClients mercadoPagoClients) {
         this.tenantRepository = tenantRepository;
         this.serviceRepository = serviceRepository;
+        this.tenantResolver = tenantResolver;
+        this.dailySalesRollupService = dailySalesRollupService;
+        this.catalogCache = catalogCache;
+        this.geoRefService = geoRefService;
+        this.mercadoEnviosService = mercadoEnviosService;
+        this.outboundHttp = outboundHttp;
+        this.webhookInboxService = webhookInboxService;
+        this.mercadoPagoClients = mercadoPagoClients;
     }
 
     /**
@@ -82,6 +114,7 @@ public class SuperAdminController {
         tenant.setConfig(config);
 
         tenant = tenantRepository.save(tenant);
+        tenantResolver.invalidate(tenant); // Puede haber un "no existe" cacheado
 
         return ResponseEntity.ok(toDTO(tenant));
     }
@@ -132,6 +165,7 @@ public class SuperAdminController {
             }
 
             service = serviceRepository.save(service);
+            catalogCache.invalidate(tenant);
 
             return ResponseEntity.ok(service);
         } catch (Exception e) {
@@ -156,10 +190,12 @@ public class SuperAdminController {
 
                     // Actualizar config si viene
                     if (dto.getConfig() != null) {
+                        dto.getConfig().keepSecretsFrom(tenant.getConfig());
                         tenant.setConfig(dto.getConfig());
                     }
 
                     tenantRepository.save(tenant);
+                    tenantResolver.invalidate(tenant);
                     return ResponseEntity.ok(toDTO(tenant));
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -175,6 +211,7 @@ public class SuperAdminController {
                 .map(tenant -> {
                     tenant.setActive(!tenant.isActive());
                     tenantRepository.save(tenant);
+                    tenantResolver.invalidate(tenant);
 
                     String message = tenant.isActive()
                             ? "Tenant activado exitosamente"
@@ -207,6 +244,7 @@ public class SuperAdminController {
                     tenant.setConfig(config);
 
                     tenantRepository.save(tenant);
+                    tenantResolver.invalidate(tenant);
                     return ResponseEntity.ok(toDTO(tenant));
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -227,11 +265,107 @@ public class SuperAdminController {
                     }
 
                     tenantRepository.delete(tenant);
+                    tenantResolver.invalidate(tenant);
+                    catalogCache.invalidate(tenant);
                     return ResponseEntity.ok(Map.of("message", "Tenant eliminado exitosamente"));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * GET /api/super-admin/metrics/tenant-cache
+     * Métricas del cache de resolución de tenants (hits, misses, tamaño)
+     */
+    @GetMapping("/metrics/tenant-cache")
+    public ResponseEntity<Map<String, Object>> getTenantCacheStats() {
+        return ResponseEntity.ok(tenantResolver.stats());
+    }
+
+    /**
+     * GET /api/super-admin/metrics/catalog-cache
+     * Métricas del cache de catálogo por tenant (productos y servicios)
+     */
+    @GetMapping("/metrics/catalog-cache")
+    public ResponseEntity<Map<String, Object>> getCatalogCacheStats() {
+        return ResponseEntity.ok(catalogCache.stats());
+    }
+
+    /**
+     * GET /api/super-admin/metrics/shipping-quote-cache
+     * Métricas del cache de cotizaciones de MercadoEnvíos
+     */
+    @GetMapping("/metrics/shipping-quote-cache")
+    public ResponseEntity<Map<String, Object>> getShippingQuoteCacheStats() {
+        return ResponseEntity.ok(mercadoEnviosService.quoteCacheStats());
+    }
+
+    /**
+     * GET /api/super-admin/metrics/http-upstreams
+     * Estado de los clientes HTTP salientes: circuito, rechazos, reintentos e histograma de latencias
+     */
+    @GetMapping("/metrics/http-upstreams")
+    public ResponseEntity<Map<String, Object>> getHttpUpstreamStats() {
+        return ResponseEntity.ok(outboundHttp.stats());
+    }
+
+    /**
+     * GET /api/super-admin/metrics/mercadopago-clients
+     * Clientes del SDK de MercadoPago creados (plataforma + tenants con cuenta propia)
+     */
+    @GetMapping("/metrics/mercadopago-clients")
+    public ResponseEntity<Map<String, Object>> getMercadoPagoClientStats() {
+        return ResponseEntity.ok(mercadoPagoClients.stats());
+    }
+
+    /**
+     * POST /api/super-admin/maintenance/daily-sales-rollup/rebuild?tenantId=xxx
+     * Recalcula el rollup de ventas diarias desde las órdenes (sin tenantId: todos)
+     */
+    @PostMapping("/maintenance/daily-sales-rollup/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildDailySalesRollup(
+            @RequestParam(required = false) String tenantId) {
+        int rows = tenantId != null
+                ? dailySalesRollupService.rebuild(tenantId)
+                : dailySalesRollupService.rebuildAll();
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+
+    /**
+     * GET /api/super-admin/metrics/georef
+     * Estado del snapshot local de GeoRef (fecha y cantidades)
+     */
+    @GetMapping("/metrics/georef")
+    public ResponseEntity<Map<String, Object>> getGeoRefStats() {
+        return ResponseEntity.ok(geoRefService.stats());
+    }
+
+    /**
+     * POST /api/super-admin/maintenance/georef/refresh
+     * Fuerza la descarga del snapshot de GeoRef (sin esperar al job semanal)
+     */
+    @PostMapping("/maintenance/georef/refresh")
+    public ResponseEntity<Map<String, Object>> refreshGeoRef() {
+        return ResponseEntity.ok(geoRefService.refresh());
+    }
+
+    /**
+     * GET /api/super-admin/metrics/webhook-inbox
+     * Profundidad de la cola de webhooks, antigüedad del más viejo sin procesar y contadores
+     */
+    @GetMapping("/metrics/webhook-inbox")
+    public ResponseEntity<Map<String, Object>> getWebhookInboxStats() {
+        return ResponseEntity.ok(webhookInboxService.stats());
+    }
+
+    /**
+     * POST /api/super-admin/maintenance/webhook-inbox/retry-failed
+     * Vuelve a encolar los webhooks que quedaron FAILED
+     */
+    @PostMapping("/maintenance/webhook-inbox/retry-failed")
+    public ResponseEntity<Map<String, Object>> retryFailedWebhooks() {
+        return ResponseEntity.ok(Map.of("requeued", webhookInboxService.retryFailed()));
+    }
+
     // ========== HELPERS ==========
 
     private TenantDTO toDTO(Tenant tenant) {
@@ -241,7 +375,7 @@ public class SuperAdminController {
         dto.setBusinessName(tenant.getBusinessName());
         dto.setType(tenant.getType().name());
         dto.setActive(tenant.isActive());
-        dto.setConfig(tenant.getConfig());
+        dto.setConfig(tenant.getConfig() != null ? tenant.getConfig().withoutSecrets() : null);
         dto.setCreatedAt(tenant.getCreatedAt());
         return dto;
     }
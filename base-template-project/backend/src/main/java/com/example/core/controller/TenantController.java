@@ -4,6 +4,7 @@ import com.example.core.dto.TenantDTO;
 import com.example.core.model.Tenant;
 import com.example.core.model.TenantConfig;
 import com.example.core.repository.TenantRepository;
+import com.example.core.service.TenantResolver;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -17,9 +18,12 @@ import java.util.stream.Collectors;
 public class TenantController {
 
     private final TenantRepository tenantRepository;
+    private final TenantResolver tenantResolver;
 
-    public TenantController(TenantRepository tenantRepository) {
+    public TenantController(TenantRepository tenantRepository,
+                            TenantResolver tenantResolver) {
         this.tenantRepository = tenantRepository;
+        this.tenantResolver = tenantResolver;
     }
 
     @GetMapping
@@ -52,6 +56,7 @@ public class TenantController {
         tenant.setConfig(dto.getConfig());
 
         tenant = tenantRepository.save(tenant);
+        tenantResolver.invalidate(tenant);
         return ResponseEntity.ok(toDTO(tenant));
     }
 
@@ -64,8 +69,12 @@ public class TenantController {
                 .map(tenant -> {
                     tenant.setBusinessName(dto.getBusinessName());
                     tenant.setType(Tenant.BusinessType.valueOf(dto.getType()));
+                    if (dto.getConfig() != null) {
+                        dto.getConfig().keepSecretsFrom(tenant.getConfig());
+                    }
                     tenant.setConfig(dto.getConfig());
                     tenantRepository.save(tenant);
+                    tenantResolver.invalidate(tenant);
                     return ResponseEntity.ok(toDTO(tenant));
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -77,7 +86,7 @@ public class TenantController {
         dto.setSubdomain(tenant.getSubdomain());
         dto.setBusinessName(tenant.getBusinessName());
         dto.setType(tenant.getType().name());
-        dto.setConfig(tenant.getConfig());
+        dto.setConfig(tenant.getConfig() != null ? tenant.getConfig().withoutSecrets() : null);
         return dto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example.core.dto;
+
+import com.example.core.model.Booking;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// Reserva para el calendario del vendedor (proyección: sin cargar service/user/order)
+@Data
+@NoArgsConstructor
+public class BookingCalendarEntryDTO {
+    private String id;
+    private String serviceId;
+    private String serviceName;
+    private String customerName;
+    private String customerEmail;
+    private String customerPhone;
+    private LocalDate bookingDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private String status;
+    private String notes;
+    private LocalDateTime createdAt;
+    private String orderId;
+    private BigDecimal orderTotal;
+    private Boolean isPaid;
+
+    // Usado por la query de BookingRepository.findCalendar
+    public BookingCalendarEntryDTO(String id, String serviceId, String serviceName,
+                                   String customerName, String customerEmail, String customerPhone,
+                                   LocalDate bookingDate, LocalTime startTime, LocalTime endTime,
+                                   Booking.BookingStatus status, String notes, LocalDateTime createdAt,
+                                   String orderId, BigDecimal orderTotal) {
+        this.id = id;
+        this.serviceId = serviceId;
+        this.serviceName = serviceName;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+        this.customerPhone = customerPhone;
+        this.bookingDate = bookingDate;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.status = status.name();
+        this.notes = notes;
+        this.createdAt = createdAt;
+        this.orderId = orderId;
+        this.orderTotal = orderTotal;
+        this.isPaid = orderId != null && status == Booking.BookingStatus.CONFIRMED;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Solo el horario de una reserva activa (proyección para calcular disponibilidad)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingIntervalDTO {
+    private LocalDate bookingDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
@@ -0,0 +1,22 @@
+package com.example.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Turno de un servicio con su capacidad libre
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookingSlotDTO {
+    private LocalDate date;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private int availableSpots;
+    private int totalCapacity;
+}
@@ -0,0 +1,22 @@
+package com.example.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Disponibilidad de un día para el calendario (open = el servicio atiende ese día)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DayAvailabilityDTO {
+    private LocalDate date;
+    private boolean open;
+    private int totalSlots;
+    private int availableSlots;
+    private List<BookingSlotDTO> slots;
+}
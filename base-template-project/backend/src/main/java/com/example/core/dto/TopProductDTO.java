@@ -0,0 +1,18 @@
+package com.example.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Producto más vendido (agregado desde order_items de órdenes confirmadas)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopProductDTO {
+    private String id;
+    private String name;
+    private Long quantity;
+    private BigDecimal revenue;
+}
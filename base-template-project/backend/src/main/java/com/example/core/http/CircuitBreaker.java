@@ -0,0 +1,121 @@
+package com.example.core.http;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker por conteo (ventana de las últimas N llamadas).
+ *
+ * CLOSED → OPEN cuando, con al menos minimumCalls en la ventana, el % de fallas llega al umbral.
+ * OPEN rechaza todo durante openDuration; después pasa a HALF_OPEN y deja pasar unas pocas
+ * llamadas de prueba: si una falla vuelve a OPEN, si salen bien se cierra.
+ */
+class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private final boolean[] window;
+    private int windowCount;
+    private int windowIndex;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    private long timesOpened;
+
+    CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold,
+                   Duration openDuration, int halfOpenCalls) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * true si la llamada puede salir
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openUntil < 0) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenInFlight = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenSuccesses++;
+            if (halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+            open();
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+
+    // ========== HELPERS ==========
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.nanoTime() + openNanos;
+        timesOpened++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowCount = 0;
+        windowIndex = 0;
+        windowFailures = 0;
+    }
+}
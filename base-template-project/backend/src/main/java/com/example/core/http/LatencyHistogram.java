@@ -0,0 +1,82 @@
+package com.example.core.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias con buckets fijos (ms). Sin locks: un LongAdder por bucket.
+ * Los percentiles son aproximados (límite superior del bucket donde caen).
+ */
+class LatencyHistogram {
+
+    private static final long[] BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        long ms = nanos / 1_000_000;
+        int i = 0;
+        while (i < BOUNDS_MS.length && ms > BOUNDS_MS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    Map<String, Object> snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", total);
+        stats.put("meanMs", total == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count.sum());
+        stats.put("maxMs", maxNanos.get() / 1_000_000.0);
+        stats.put("p50Ms", percentile(counts, total, 0.50));
+        stats.put("p95Ms", percentile(counts, total, 0.95));
+        stats.put("p99Ms", percentile(counts, total, 0.99));
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            histogram.put("le_" + BOUNDS_MS[i] + "ms", counts[i]);
+        }
+        histogram.put("gt_" + BOUNDS_MS[BOUNDS_MS.length - 1] + "ms", counts[BOUNDS_MS.length]);
+        stats.put("buckets", histogram);
+        return stats;
+    }
+
+    private static Long percentile(long[] counts, long total, double p) {
+        if (total == 0) {
+            return null;
+        }
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS_MS[i];
+            }
+        }
+        return null; // cae en el bucket abierto (> último límite)
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.core.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registro de los clientes HTTP salientes, uno por upstream configurado en app.http.upstreams.
+ * Los services piden el suyo por nombre: outboundHttp.get("mercadopago").
+ */
+public class OutboundHttp {
+
+    private final Map<String, UpstreamClient> clients = new LinkedHashMap<>();
+
+    public OutboundHttp(OutboundHttpProperties properties) {
+        properties.getUpstreams().forEach((name, settings) -> clients.put(name, new UpstreamClient(name, settings)));
+    }
+
+    public UpstreamClient get(String name) {
+        UpstreamClient client = clients.get(name);
+        if (client == null) {
+            throw new IllegalStateException("Upstream HTTP no configurado: app.http.upstreams." + name);
+        }
+        return client;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        clients.forEach((name, client) -> stats.put(name, client.stats()));
+        return stats;
+    }
+}
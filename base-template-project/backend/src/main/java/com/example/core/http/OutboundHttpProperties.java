@@ -0,0 +1,17 @@
+package com.example.core.http;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * app.http.upstreams: un bloque por servicio externo (georef, mercadoenvios, mercadopago)
+ */
+@Data
+@ConfigurationProperties(prefix = "app.http")
+public class OutboundHttpProperties {
+
+    private Map<String, UpstreamSettings> upstreams = new LinkedHashMap<>();
+}
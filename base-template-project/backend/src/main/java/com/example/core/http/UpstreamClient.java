@@ -0,0 +1,201 @@
+package com.example.core.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cliente HTTP de un servicio externo (MercadoPago, MercadoEnvíos, GeoRef...).
+ *
+ * - Un HttpClient de la JDK por upstream: reutiliza conexiones (keep-alive / HTTP/2).
+ * - Timeouts de conexión y de lectura propios del upstream.
+ * - Bulkhead: como mucho maxConcurrent llamadas en vuelo; si no hay lugar en maxWait se rechaza
+ *   en vez de dejar colgados los threads del servidor esperando a un upstream lento.
+ * - Circuit breaker: si el upstream viene fallando, se corta sin llamar.
+ * - Reintentos con backoff exponencial + jitter, solo en callIdempotent().
+ * - Histograma de latencias para /api/super-admin/metrics/http-upstreams.
+ */
+@Slf4j
+public class UpstreamClient {
+
+    private final String name;
+    private final UpstreamSettings settings;
+    private final RestClient restClient;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejectedByBulkhead = new LongAdder();
+    private final LongAdder rejectedByCircuit = new LongAdder();
+
+    public UpstreamClient(String name, UpstreamSettings settings) {
+        this.name = name;
+        this.settings = settings;
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(settings.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(settings.getReadTimeout());
+
+        RestClient.Builder builder = RestClient.builder().requestFactory(requestFactory);
+        if (settings.getBaseUrl() != null) {
+            builder.baseUrl(settings.getBaseUrl());
+        }
+        this.restClient = builder.build();
+
+        this.bulkhead = new Semaphore(settings.getMaxConcurrent(), true);
+        this.circuitBreaker = new CircuitBreaker(settings.getWindowSize(), settings.getMinimumCalls(),
+                settings.getFailureRateThreshold(), settings.getOpenDuration(), settings.getHalfOpenCalls());
+    }
+
+    /**
+     * Un solo intento (POST que crean cosas, pagos...)
+     */
+    public <T> T call(Function<RestClient, T> request) {
+        return execute(request, 1);
+    }
+
+    /**
+     * Reintenta ante errores de red, 5xx y 429. Solo para llamadas que se pueden repetir sin efectos.
+     */
+    public <T> T callIdempotent(Function<RestClient, T> request) {
+        return execute(request, Math.max(1, settings.getMaxAttempts()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("baseUrl", settings.getBaseUrl());
+        stats.put("circuit", circuitBreaker.getState().name());
+        stats.put("circuitOpenedTimes", circuitBreaker.getTimesOpened());
+        stats.put("inFlight", settings.getMaxConcurrent() - bulkhead.availablePermits());
+        stats.put("maxConcurrent", settings.getMaxConcurrent());
+        stats.put("calls", calls.sum());
+        stats.put("failures", failures.sum());
+        stats.put("retries", retries.sum());
+        stats.put("rejectedByBulkhead", rejectedByBulkhead.sum());
+        stats.put("rejectedByCircuit", rejectedByCircuit.sum());
+        stats.put("latency", latency.snapshot());
+        return stats;
+    }
+
+    // ========== HELPERS ==========
+
+    private <T> T execute(Function<RestClient, T> request, int maxAttempts) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attempt(request);
+            } catch (RestClientException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                retries.increment();
+                Duration backoff = backoff(attempt);
+                log.warn("⚠️ {}: intento {}/{} falló ({}), reintento en {} ms",
+                        name, attempt, maxAttempts, e.getMessage(), backoff.toMillis());
+                sleep(backoff);
+            }
+        }
+    }
+
+    private <T> T attempt(Function<RestClient, T> request) {
+        acquireBulkhead();
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                rejectedByCircuit.increment();
+                throw new UpstreamUnavailableException("Circuito abierto para " + name);
+            }
+
+            calls.increment();
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                return request.apply(restClient);
+            } catch (RestClientException e) {
+                failed = isUpstreamFailure(e);
+                throw e;
+            } finally {
+                latency.record(System.nanoTime() - start);
+                if (failed) {
+                    failures.increment();
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void acquireBulkhead() {
+        try {
+            if (!bulkhead.tryAcquire(settings.getMaxWait().toNanos(), TimeUnit.NANOSECONDS)) {
+                rejectedByBulkhead.increment();
+                throw new UpstreamUnavailableException("Demasiadas llamadas en curso a " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamUnavailableException("Interrumpido esperando lugar para llamar a " + name);
+        }
+    }
+
+    /**
+     * Errores que son culpa del upstream (cuentan para el circuit breaker).
+     * Un 4xx es una respuesta válida: el upstream está sano.
+     */
+    private static boolean isUpstreamFailure(RestClientException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof HttpStatusCodeException http) {
+            return http.getStatusCode().is5xxServerError()
+                    || http.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return false;
+    }
+
+    private static boolean isRetryable(RestClientException e) {
+        return !(e instanceof UpstreamUnavailableException) && isUpstreamFailure(e);
+    }
+
+    /**
+     * Backoff exponencial con "full jitter": random entre 0 y min(max, inicial * 2^(intento-1))
+     */
+    private Duration backoff(int attempt) {
+        long initial = settings.getInitialBackoff().toMillis();
+        long cap = Math.min(settings.getMaxBackoff().toMillis(), initial << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamUnavailableException("Interrumpido durante el backoff");
+        }
+    }
+}
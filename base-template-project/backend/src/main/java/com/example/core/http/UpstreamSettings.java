@@ -0,0 +1,37 @@
+package com.example.core.http;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Configuración de un servicio externo (app.http.upstreams.&lt;nombre&gt;.*).
+ * Los defaults sirven para APIs JSON chicas; lo que cambia por upstream va en application.yml.
+ */
+@Data
+public class UpstreamSettings {
+
+    private String baseUrl;
+
+    // ========== TIMEOUTS ==========
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    // ========== BULKHEAD ==========
+    /** Llamadas simultáneas como máximo (el resto espera maxWait y después se rechaza) */
+    private int maxConcurrent = 20;
+    private Duration maxWait = Duration.ofMillis(100);
+
+    // ========== RETRY (solo llamadas idempotentes) ==========
+    private int maxAttempts = 3;
+    private Duration initialBackoff = Duration.ofMillis(200);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+
+    // ========== CIRCUIT BREAKER ==========
+    /** Últimas N llamadas que se miran para calcular el % de fallas */
+    private int windowSize = 20;
+    private int minimumCalls = 10;
+    private int failureRateThreshold = 50; // %
+    private Duration openDuration = Duration.ofSeconds(30);
+    private int halfOpenCalls = 2;
+}
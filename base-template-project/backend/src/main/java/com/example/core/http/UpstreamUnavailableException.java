@@ -0,0 +1,14 @@
+package com.example.core.http;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * La llamada no se hizo: circuito abierto o bulkhead lleno.
+ * Extiende RestClientException para que los catch existentes la traten como cualquier error de red.
+ */
+public class UpstreamUnavailableException extends RestClientException {
+
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
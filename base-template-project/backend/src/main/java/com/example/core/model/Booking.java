@@ -3,6 +3,7 @@ package com.example.core.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcType;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDate;
@@ -11,11 +12,17 @@ import java.time.LocalTime;
 
 @Data
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        // Calendario del vendedor: reservas del tenant por fecha (hoy / semana / mes)
+        @Index(name = "idx_bookings_tenant_date_service", columnList = "tenant_id, booking_date, service_id"),
+        // Disponibilidad y capacidad de un servicio en un día o rango
+        @Index(name = "idx_bookings_service_date", columnList = "service_id, booking_date")
+})
 public class Booking {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Id
+    @JdbcType(UuidStringJdbcType.class)
     private String id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,35 @@
+package com.example.core.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ventas confirmadas por tenant y día (fecha de creación de la orden).
+ * Se mantiene incrementalmente desde DailySalesRollupService cada vez que una orden
+ * entra o sale de CONFIRMED; el job de rebuild la recalcula desde orders.
+ */
+@Data
+@Entity
+@Table(name = "daily_sales_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_daily_sales_rollup_tenant_date",
+                columnNames = {"tenant_id", "sales_date"}))
+public class DailySalesRollup {
+    @Id
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id", nullable = false)
+    private Tenant tenant;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "order_count", nullable = false)
+    private int orderCount;
+
+    @Column(nullable = false)
+    private BigDecimal total = BigDecimal.ZERO;
+}
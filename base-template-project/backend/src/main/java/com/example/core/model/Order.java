@@ -3,19 +3,28 @@ package com.example.core.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcType;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Data
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_tenant_created", columnList = "tenant_id, created_at, id"),
+        @Index(name = "idx_orders_user_created", columnList = "user_id, created_at, id")
+})
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Id
+    @JdbcType(UuidStringJdbcType.class)
     private String id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -48,6 +57,11 @@ public class Order {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Bloqueo optimista (ver Payment.version)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "delivery_address_id")
     private Address deliveryAddress;
@@ -89,7 +103,25 @@ public class Order {
         READY,        // Lista para entrega/retiro
         COMPLETED,    // Completada
         CANCELLED,     // Cancelada
-        PICKUP_READY // Lista para retiro en tienda
+        PICKUP_READY; // Lista para retiro en tienda
+
+        // Transiciones legales (COMPLETED y CANCELLED son finales).
+        // PREPARING → CONFIRMED: las órdenes con envío nacen PREPARING hasta que se acredita el pago.
+        private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+        static {
+            TRANSITIONS.put(PENDING, EnumSet.of(CONFIRMED, PREPARING, CANCELLED));
+            TRANSITIONS.put(CONFIRMED, EnumSet.of(PREPARING, READY, PICKUP_READY, COMPLETED, CANCELLED));
+            TRANSITIONS.put(PREPARING, EnumSet.of(CONFIRMED, READY, PICKUP_READY, COMPLETED, CANCELLED));
+            TRANSITIONS.put(READY, EnumSet.of(COMPLETED, CANCELLED));
+            TRANSITIONS.put(PICKUP_READY, EnumSet.of(COMPLETED, CANCELLED));
+            TRANSITIONS.put(COMPLETED, EnumSet.noneOf(OrderStatus.class));
+            TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+        }
+
+        public boolean canTransitionTo(OrderStatus next) {
+            return TRANSITIONS.get(this).contains(next);
+        }
     }
 
     public enum PaymentMethod {
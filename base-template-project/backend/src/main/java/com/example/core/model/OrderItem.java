@@ -2,6 +2,7 @@ package com.example.core.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.JdbcType;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -12,7 +13,8 @@ import java.time.LocalTime;
 @Table(name = "order_items")
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Id
+    @JdbcType(UuidStringJdbcType.class)
     private String id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -3,17 +3,23 @@ package com.example.core.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcType;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
 @Data
 @Entity
 @Table(name = "payments")
 public class Payment {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Id
+    @JdbcType(UuidStringJdbcType.class)
     private String id;
 
     @OneToOne
@@ -51,6 +57,11 @@ public class Payment {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Bloqueo optimista: dos webhooks/acciones en paralelo sobre el mismo pago no se pisan
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     private LocalDateTime confirmedAt;
 
     public enum PaymentMethod {
@@ -67,6 +78,22 @@ public class Payment {
         APPROVED,       // Aprobado
         REJECTED,       // Rechazado
         CANCELLED,      // Cancelado
-        REFUNDED        // Reembolsado
+        REFUNDED;       // Reembolsado
+
+        // Transiciones legales (REJECTED, CANCELLED y REFUNDED son finales)
+        private static final Map<PaymentStatus, Set<PaymentStatus>> TRANSITIONS = new EnumMap<>(PaymentStatus.class);
+
+        static {
+            TRANSITIONS.put(PENDING, EnumSet.of(PROCESSING, APPROVED, REJECTED, CANCELLED));
+            TRANSITIONS.put(PROCESSING, EnumSet.of(APPROVED, REJECTED, CANCELLED));
+            TRANSITIONS.put(APPROVED, EnumSet.of(REFUNDED));
+            TRANSITIONS.put(REJECTED, EnumSet.noneOf(PaymentStatus.class));
+            TRANSITIONS.put(CANCELLED, EnumSet.noneOf(PaymentStatus.class));
+            TRANSITIONS.put(REFUNDED, EnumSet.noneOf(PaymentStatus.class));
+        }
+
+        public boolean canTransitionTo(PaymentStatus next) {
+            return TRANSITIONS.get(this).contains(next);
+        }
     }
 }
\ No newline at end of file
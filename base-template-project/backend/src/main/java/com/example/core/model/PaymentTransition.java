@@ -0,0 +1,44 @@
+package com.example.core.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.JdbcType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de transiciones aplicadas a un pago, una por idempotency key.
+ * El índice único sobre la key es lo que garantiza que un reintento o una entrega
+ * duplicada/paralela del mismo webhook se aplique una sola vez.
+ */
+@Data
+@Entity
+@Table(name = "payment_transitions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_transitions_key",
+                columnNames = "idempotency_key"),
+        indexes = @Index(name = "idx_payment_transitions_payment", columnList = "payment_id, created_at"))
+public class PaymentTransition {
+    @Id
+    private String id;
+
+    @Column(name = "payment_id", nullable = false)
+    @JdbcType(UuidStringJdbcType.class)
+    private String paymentId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 200)
+    private String idempotencyKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "from_status", nullable = false, length = 20)
+    private Payment.PaymentStatus fromStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "to_status", nullable = false, length = 20)
+    private Payment.PaymentStatus toStatus;
+
+    @Column(nullable = false, length = 30)
+    private String source; // mercadopago, manual...
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -53,6 +53,74 @@ public class TenantConfig {
         this.postalCode = postalCode;
     }
 
+    // ========== MercadoPago propio del tenant (opcional) ==========
+    // Sin access token se cobra con la cuenta de la plataforma (mercadopago.access-token)
+    private MercadoPagoCredentials mercadoPago;
+
+    /**
+     * Copia para devolver por la API: igual pero sin el access token ni el secreto de webhooks de MP.
+     * No modifica este objeto (es el de la entidad).
+     */
+    public TenantConfig withoutSecrets() {
+        TenantConfig copy = new TenantConfig();
+        copy.setLogo(logo);
+        copy.setFavicon(favicon);
+        copy.setPrimaryColor(primaryColor);
+        copy.setSecondaryColor(secondaryColor);
+        copy.setAccentColor(accentColor);
+        copy.setFontFamily(fontFamily);
+        copy.setCustomCssUrl(customCssUrl);
+        copy.setHeaderLayout(headerLayout);
+        copy.setFooterContent(footerContent);
+        copy.setBusinessDescription(businessDescription);
+        copy.setContactEmail(contactEmail);
+        copy.setContactPhone(contactPhone);
+        copy.setAddress(address);
+        copy.setSocialMedia(socialMedia);
+        copy.setCategories(categories);
+        copy.setFeatures(features);
+        copy.setCustomConfig(customConfig);
+        copy.setTranslations(translations);
+        copy.setPostalCode(postalCode);
+        if (mercadoPago != null) {
+            MercadoPagoCredentials publicCredentials = new MercadoPagoCredentials();
+            publicCredentials.setPublicKey(mercadoPago.getPublicKey());
+            copy.setMercadoPago(publicCredentials);
+        }
+        return copy;
+    }
+
+    /**
+     * La API no devuelve los secretos de MP, así que un config editado llega sin ellos:
+     * en ese caso se conservan los que ya estaban guardados.
+     */
+    public void keepSecretsFrom(TenantConfig previous) {
+        if (previous == null || previous.getMercadoPago() == null) {
+            return;
+        }
+        MercadoPagoCredentials stored = previous.getMercadoPago();
+        if (stored.getAccessToken() == null && stored.getWebhookSecret() == null) {
+            return;
+        }
+        if (mercadoPago == null) {
+            mercadoPago = new MercadoPagoCredentials();
+            mercadoPago.setPublicKey(stored.getPublicKey());
+        }
+        if (mercadoPago.getAccessToken() == null) {
+            mercadoPago.setAccessToken(stored.getAccessToken());
+        }
+        if (mercadoPago.getWebhookSecret() == null) {
+            mercadoPago.setWebhookSecret(stored.getWebhookSecret());
+        }
+    }
+
+    @Data
+    public static class MercadoPagoCredentials {
+        private String accessToken;   // Secreto: no sale en las respuestas (ver withoutSecrets)
+        private String publicKey;     // La usa el frontend (Checkout Bricks)
+        private String webhookSecret; // Secreto: firma (x-signature) de los webhooks de su aplicación de MP
+    }
+
     // ========== Clase para Redes Sociales ==========
     @Data
     public static class SocialMedia {
@@ -0,0 +1,91 @@
+package com.example.core.model;
+
+import com.example.core.util.UuidV7;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.ValueExtractor;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.JavaType;
+import org.hibernate.type.descriptor.jdbc.BasicBinder;
+import org.hibernate.type.descriptor.jdbc.BasicExtractor;
+import org.hibernate.type.descriptor.jdbc.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Columna uuid nativa de Postgres (16 bytes) para ids que en Java siguen siendo String.
+ *
+ * Así DTOs, JSON, repositorios y path params no cambian de tipo; solo la columna (y las
+ * FKs que apuntan a ella, que heredan el tipo) pasan de varchar(255) a uuid.
+ *
+ * Un String que no es un UUID válido (id inventado en una URL, "" como "ningún id") se
+ * bindea como el UUID nulo: no matchea ninguna fila, igual que antes con varchar, en vez
+ * de romper la consulta.
+ */
+public class UuidStringJdbcType implements JdbcType {
+
+    @Override
+    public int getJdbcTypeCode() {
+        // OTHER para el driver (setNull/setObject); el DDL sale de getDefaultSqlTypeCode
+        return Types.OTHER;
+    }
+
+    @Override
+    public int getDefaultSqlTypeCode() {
+        return SqlTypes.UUID;
+    }
+
+    @Override
+    public <X> ValueBinder<X> getBinder(JavaType<X> javaType) {
+        return new BasicBinder<>(javaType, this) {
+            @Override
+            protected void doBind(PreparedStatement st, X value, int index, WrapperOptions options)
+                    throws SQLException {
+                st.setObject(index, toUuid(javaType.unwrap(value, String.class, options)), Types.OTHER);
+            }
+
+            @Override
+            protected void doBind(CallableStatement st, X value, String name, WrapperOptions options)
+                    throws SQLException {
+                st.setObject(name, toUuid(javaType.unwrap(value, String.class, options)), Types.OTHER);
+            }
+        };
+    }
+
+    @Override
+    public <X> ValueExtractor<X> getExtractor(JavaType<X> javaType) {
+        return new BasicExtractor<>(javaType, this) {
+            @Override
+            protected X doExtract(ResultSet rs, int paramIndex, WrapperOptions options) throws SQLException {
+                return javaType.wrap(rs.getString(paramIndex), options);
+            }
+
+            @Override
+            protected X doExtract(CallableStatement statement, int index, WrapperOptions options)
+                    throws SQLException {
+                return javaType.wrap(statement.getString(index), options);
+            }
+
+            @Override
+            protected X doExtract(CallableStatement statement, String name, WrapperOptions options)
+                    throws SQLException {
+                return javaType.wrap(statement.getString(name), options);
+            }
+        };
+    }
+
+    // ========== HELPERS ==========
+
+    static UUID toUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return UUID.fromString(UuidV7.NIL);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.core.model;
+
+import com.example.core.util.UuidV7;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Generador de Hibernate detrás de {@link UuidV7Id}
+ */
+public class UuidV7Generator implements IdentifierGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return UuidV7.generate();
+    }
+}
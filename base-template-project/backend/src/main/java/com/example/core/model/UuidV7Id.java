@@ -0,0 +1,18 @@
+package com.example.core.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id generado como UUID v7 (ordenado por tiempo). Reemplaza a
+ * {@code @GeneratedValue(strategy = GenerationType.UUID)}, que genera v4 aleatorios.
+ */
+@IdGeneratorType(UuidV7Generator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface UuidV7Id {
+}
@@ -0,0 +1,70 @@
+package com.example.core.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Inbox de webhooks: cada notificación se guarda acá y se responde 200 enseguida;
+ * WebhookInboxService la procesa después en un pool de workers.
+ *
+ * Una fila por pago de MP (provider + externalId): las notificaciones repetidas del mismo
+ * pago se juntan en la misma fila en vez de procesarse una por una.
+ */
+@Data
+@Entity
+@Table(name = "webhook_inbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_webhook_inbox_provider_external",
+                columnNames = {"provider", "external_id"}),
+        indexes = @Index(name = "idx_webhook_inbox_status_next", columnList = "status, next_attempt_at"))
+public class WebhookEvent {
+    @Id
+    private String id;
+
+    @Column(nullable = false, length = 30)
+    private String provider;
+
+    @Column(name = "external_id", nullable = false, length = 100)
+    private String externalId;
+
+    // Tenant dueño del pago (viene en la URL de notificación); null = cuenta de la plataforma
+    @Column(name = "tenant_id", length = 36)
+    private String tenantId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Cuántas notificaciones llegaron para este pago
+    @Column(nullable = false)
+    private int notifications;
+
+    @Column(columnDefinition = "text")
+    private String payload; // Última notificación recibida (auditoría)
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt; // Primera notificación todavía sin procesar
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public enum Status {
+        PENDING,     // Esperando worker (o reintento)
+        PROCESSING,  // Tomado por un worker
+        DONE,
+        FAILED       // Agotó reintentos o error no recuperable
+    }
+}
@@ -1,13 +1,17 @@
 package com.example.core.repository;
 
+import com.example.core.dto.BookingCalendarEntryDTO;
+import com.example.core.dto.BookingIntervalDTO;
 import com.example.core.model.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -29,6 +33,20 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
 
     List<Booking> findByStatus(Booking.BookingStatus status);
 
+    /**
+     * Horarios de las reservas activas de un servicio en un rango de fechas (solo 3 columnas,
+     * sin cargar entidades): con esto se arma la ocupación de cada día.
+     */
+    @Query("SELECT new com.example.core.dto.BookingIntervalDTO(b.bookingDate, b.startTime, b.endTime) " +
+           "FROM Booking b WHERE b.service.id = :serviceId " +
+           "AND b.bookingDate BETWEEN :startDate AND :endDate " +
+           "AND b.status IN ('PENDING', 'CONFIRMED')")
+    List<BookingIntervalDTO> findActiveIntervals(
+            @Param("serviceId") String serviceId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
     @Query("SELECT b FROM Booking b WHERE b.service.id = :serviceId " +
            "AND b.bookingDate = :date " +
            "AND b.status IN ('PENDING', 'CONFIRMED') " +
@@ -39,4 +57,70 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
             @Param("startTime") LocalTime startTime,
             @Param("endTime") LocalTime endTime
     );
+
+    /**
+     * Reservas activas que se superponen con el horario, sin contar excludeId (reprogramación)
+     */
+    @Query("SELECT COUNT(b) FROM Booking b WHERE b.service.id = :serviceId " +
+           "AND b.bookingDate = :date " +
+           "AND b.status IN ('PENDING', 'CONFIRMED') " +
+           "AND b.startTime < :endTime AND b.endTime > :startTime " +
+           "AND b.id <> :excludeId")
+    long countConflictingBookings(
+            @Param("serviceId") String serviceId,
+            @Param("date") LocalDate date,
+            @Param("startTime") LocalTime startTime,
+            @Param("endTime") LocalTime endTime,
+            @Param("excludeId") String excludeId
+    );
+
+    /**
+     * Lock de Postgres por (servicio, día) hasta el fin de la transacción.
+     * Serializa las reservas del mismo servicio y día; otros servicios o días no esperan.
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext(:serviceId), :epochDay)", nativeQuery = true)
+    Integer lockServiceDay(@Param("serviceId") String serviceId, @Param("epochDay") int epochDay);
+
+    /**
+     * Calendario del tenant (hoy / semana / mes) en una query, ya proyectado.
+     * serviceId null = todos los servicios. Usa idx_bookings_tenant_date_service.
+     */
+    @Query("SELECT new com.example.core.dto.BookingCalendarEntryDTO(b.id, s.id, s.name, " +
+           "b.customerName, b.customerEmail, b.customerPhone, b.bookingDate, b.startTime, b.endTime, " +
+           "b.status, b.notes, b.createdAt, o.id, o.total) " +
+           "FROM Booking b JOIN b.service s LEFT JOIN b.order o " +
+           "WHERE b.tenant.id = :tenantId " +
+           "AND b.bookingDate BETWEEN :startDate AND :endDate " +
+           "AND (:serviceId IS NULL OR s.id = :serviceId) " +
+           "AND b.status IN :statuses " +
+           "ORDER BY b.bookingDate, b.startTime")
+    List<BookingCalendarEntryDTO> findCalendar(
+            @Param("tenantId") String tenantId,
+            @Param("serviceId") String serviceId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("statuses") Collection<Booking.BookingStatus> statuses
+    );
+
+    /**
+     * Confirma en un solo UPDATE las reservas pendientes de una orden (una fila por lugar).
+     * flushAutomatically: los cambios pendientes de la transacción se escriben antes.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE bookings SET status = 'CONFIRMED', updated_at = now() " +
+                   "WHERE order_id = CAST(:orderId AS uuid) AND status = 'PENDING'",
+           nativeQuery = true)
+    int confirmPendingByOrder(@Param("orderId") String orderId);
+
+    /**
+     * Cancela en un solo UPDATE las reservas activas de una orden, agregando el motivo a las notas
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE bookings SET status = 'CANCELLED', updated_at = now(), " +
+                   "notes = LEFT(CASE WHEN CAST(:reason AS text) IS NULL THEN notes " +
+                   "WHEN notes IS NULL THEN CAST(:reason AS text) " +
+                   "ELSE notes || ' | ' || CAST(:reason AS text) END, 1000) " +
+                   "WHERE order_id = CAST(:orderId AS uuid) AND status IN ('PENDING', 'CONFIRMED')",
+           nativeQuery = true)
+    int cancelActiveByOrder(@Param("orderId") String orderId, @Param("reason") String reason);
 }
@@ -0,0 +1,58 @@
+package com.example.core.repository;
+
+import com.example.core.model.DailySalesRollup;
+import com.example.core.model.Tenant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, String> {
+
+    List<DailySalesRollup> findByTenantAndSalesDateGreaterThanEqualOrderBySalesDateAsc(Tenant tenant, LocalDate from);
+
+    @Query("SELECT COALESCE(SUM(r.total), 0) FROM DailySalesRollup r " +
+           "WHERE r.tenant = :tenant AND r.salesDate >= :from")
+    BigDecimal sumTotalSince(@Param("tenant") Tenant tenant, @Param("from") LocalDate from);
+
+    // Suma (o resta) una orden al día correspondiente; atómico ante requests concurrentes
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_rollup (id, tenant_id, sales_date, order_count, total) " +
+                   "VALUES (:id, :tenantId, :salesDate, :countDelta, :totalDelta) " +
+                   "ON CONFLICT (tenant_id, sales_date) DO UPDATE SET " +
+                   "order_count = daily_sales_rollup.order_count + EXCLUDED.order_count, " +
+                   "total = daily_sales_rollup.total + EXCLUDED.total",
+           nativeQuery = true)
+    void upsertDelta(@Param("id") String id,
+                     @Param("tenantId") String tenantId,
+                     @Param("salesDate") LocalDate salesDate,
+                     @Param("countDelta") int countDelta,
+                     @Param("totalDelta") BigDecimal totalDelta);
+
+    // Hasta el commit: choca con el ROW EXCLUSIVE de upsertDelta (y con otro rebuild), no con las lecturas
+    @Modifying
+    @Query(value = "LOCK TABLE daily_sales_rollup IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    // Un solo rebuildAll a la vez entre todas las instancias; false si ya lo está corriendo otra
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('daily_sales_rollup_rebuild_all'))", nativeQuery = true)
+    boolean tryLockRebuildAll();
+
+    @Modifying
+    @Query(value = "DELETE FROM daily_sales_rollup WHERE tenant_id = :tenantId", nativeQuery = true)
+    int deleteByTenantId(@Param("tenantId") String tenantId);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_rollup (id, tenant_id, sales_date, order_count, total) " +
+                   "SELECT gen_random_uuid()::text, o.tenant_id, CAST(o.created_at AS date), COUNT(*), SUM(o.total) " +
+                   "FROM orders o WHERE o.status = 'CONFIRMED' AND o.tenant_id = :tenantId " +
+                   "GROUP BY o.tenant_id, CAST(o.created_at AS date)",
+           nativeQuery = true)
+    int rebuildForTenant(@Param("tenantId") String tenantId);
+}
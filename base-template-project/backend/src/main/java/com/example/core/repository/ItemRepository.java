@@ -0,0 +1,25 @@
+package com.example.core.repository;
+
+import com.example.core.model.Item;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Consultas polimórficas sobre Item (productos y servicios).
+ * Con herencia JOINED, Hibernate resuelve el subtipo con un LEFT JOIN a products/services
+ * en la misma query: no hace falta probar primero un repositorio y después el otro.
+ */
+@Repository
+public interface ItemRepository extends JpaRepository<Item, String> {
+
+    /**
+     * Items del tenant con esos IDs. Los de otro tenant no aparecen (se tratan como inexistentes).
+     */
+    List<Item> findAllByIdInAndTenantId(Collection<String> ids, String tenantId);
+
+    Optional<Item> findByIdAndTenantId(String id, String tenantId);
+}
@@ -1,9 +1,38 @@
 package com.example.core.repository;
 
+import com.example.core.dto.TopProductDTO;
 import com.example.core.model.OrderItem;
+import com.example.core.model.Tenant;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, String> {
-}
\ No newline at end of file
+
+    // Productos más vendidos: agrupado en la DB, el Pageable aplica el LIMIT
+    @Query("SELECT new com.example.core.dto.TopProductDTO(oi.item.id, oi.itemName, " +
+           "SUM(oi.quantity), SUM(oi.priceAtPurchase * oi.quantity)) " +
+           "FROM OrderItem oi JOIN oi.order o " +
+           "WHERE o.tenant = :tenant AND o.status = 'CONFIRMED' AND oi.itemType = 'PRODUCT' " +
+           "GROUP BY oi.item.id, oi.itemName " +
+           "ORDER BY SUM(oi.quantity) DESC")
+    List<TopProductDTO> findTopProducts(@Param("tenant") Tenant tenant, Pageable pageable);
+
+    @Query("SELECT new com.example.core.dto.TopProductDTO(oi.item.id, oi.itemName, " +
+           "SUM(oi.quantity), SUM(oi.priceAtPurchase * oi.quantity)) " +
+           "FROM OrderItem oi JOIN oi.order o " +
+           "WHERE o.tenant = :tenant AND o.status = 'CONFIRMED' AND oi.itemType = 'PRODUCT' " +
+           "AND o.createdAt >= :from AND o.createdAt < :to " +
+           "GROUP BY oi.item.id, oi.itemName " +
+           "ORDER BY SUM(oi.quantity) DESC")
+    List<TopProductDTO> findTopProductsBetween(@Param("tenant") Tenant tenant,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to,
+                                               Pageable pageable);
+}
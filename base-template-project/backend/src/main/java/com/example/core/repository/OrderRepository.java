@@ -3,9 +3,16 @@ package com.example.core.repository;
 import com.example.core.model.Order;
 import com.example.core.model.Tenant;
 import com.example.core.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,4 +22,62 @@ public interface OrderRepository extends JpaRepository<Order, String> {
     List<Order> findByTenant(Tenant tenant);
     List<Order> findByTenantOrderByCreatedAtDesc(Tenant tenant);
     List<Order> findByStatus(Order.OrderStatus status);
-}
\ No newline at end of file
+
+    // ========== LISTADO PAGINADO (keyset sobre created_at DESC, id DESC) ==========
+
+    // 1️⃣ IDs de la página (el LIMIT viene del Pageable)
+    @Query("SELECT o.id FROM Order o WHERE o.tenant = :tenant " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<String> findPageIdsByTenant(@Param("tenant") Tenant tenant,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") String id,
+                                     Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user = :user " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<String> findPageIdsByUser(@Param("user") User user,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") String id,
+                                   Pageable pageable);
+
+    // 2️⃣ Órdenes de la página con items y usuario en una sola query
+    @EntityGraph(attributePaths = {"items", "user"})
+    List<Order> findWithItemsByIdIn(Collection<String> ids);
+
+    // ========== AGREGADOS (dashboard) ==========
+
+    // Totales del dashboard en una sola pasada: siempre devuelve una fila
+    @Query("SELECT COUNT(o) AS totalOrders, " +
+           "COALESCE(SUM(CASE WHEN o.status = 'CONFIRMED' THEN o.total ELSE 0 END), 0) AS totalSales, " +
+           "COALESCE(SUM(CASE WHEN o.status = 'PENDING' THEN 1 ELSE 0 END), 0) AS pendingOrders, " +
+           "COUNT(DISTINCT o.user.id) AS activeCustomers " +
+           "FROM Order o WHERE o.tenant = :tenant")
+    DashboardTotals getDashboardTotals(@Param("tenant") Tenant tenant);
+
+    @Query("SELECT o.status AS status, COUNT(o) AS total FROM Order o " +
+           "WHERE o.tenant = :tenant GROUP BY o.status")
+    List<StatusCount> countByStatus(@Param("tenant") Tenant tenant);
+
+    @Query("SELECT o.paymentMethod AS paymentMethod, COUNT(o) AS total FROM Order o " +
+           "WHERE o.tenant = :tenant AND o.paymentMethod IS NOT NULL GROUP BY o.paymentMethod")
+    List<PaymentMethodCount> countByPaymentMethod(@Param("tenant") Tenant tenant);
+
+    interface DashboardTotals {
+        long getTotalOrders();
+        BigDecimal getTotalSales();
+        long getPendingOrders();
+        long getActiveCustomers();
+    }
+
+    interface StatusCount {
+        Order.OrderStatus getStatus();
+        long getTotal();
+    }
+
+    interface PaymentMethodCount {
+        Order.PaymentMethod getPaymentMethod();
+        long getTotal();
+    }
+}
@@ -4,6 +4,8 @@ import com.example.core.model.Payment;
 import com.example.core.model.Order;
 import com.example.core.model.Tenant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +18,13 @@ public interface PaymentRepository extends JpaRepository<Payment, String> {
     List<Payment> findByTenant(Tenant tenant);
     List<Payment> findByStatus(Payment.PaymentStatus status);
     List<Payment> findByTenantAndStatus(Tenant tenant, Payment.PaymentStatus status);
-}
\ No newline at end of file
+
+    @Query("SELECT p.status AS status, COUNT(p) AS total FROM Payment p " +
+           "WHERE p.tenant = :tenant GROUP BY p.status")
+    List<StatusCount> countByStatus(@Param("tenant") Tenant tenant);
+
+    interface StatusCount {
+        Payment.PaymentStatus getStatus();
+        long getTotal();
+    }
+}
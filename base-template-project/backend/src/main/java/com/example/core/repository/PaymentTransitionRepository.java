@@ -0,0 +1,36 @@
+package com.example.core.repository;
+
+import com.example.core.model.PaymentTransition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PaymentTransitionRepository extends JpaRepository<PaymentTransition, String> {
+
+    /**
+     * Reserva la idempotency key dentro de la transacción actual. 0 = ya estaba usada.
+     * Una transacción concurrente con la misma key espera a que esta termine (índice único)
+     * y después recibe 0; keys distintas no se bloquean entre sí.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment_transitions (id, payment_id, idempotency_key, from_status, to_status, " +
+                   "source, created_at) " +
+                   "VALUES (:id, CAST(:paymentId AS uuid), :key, :fromStatus, :toStatus, :source, :now) " +
+                   "ON CONFLICT (idempotency_key) DO NOTHING",
+           nativeQuery = true)
+    int claim(@Param("id") String id,
+              @Param("paymentId") String paymentId,
+              @Param("key") String idempotencyKey,
+              @Param("fromStatus") String fromStatus,
+              @Param("toStatus") String toStatus,
+              @Param("source") String source,
+              @Param("now") LocalDateTime now);
+
+    List<PaymentTransition> findByPaymentIdOrderByCreatedAtAsc(String paymentId);
+}
@@ -3,7 +3,10 @@ package com.example.core.repository;
 import com.example.core.model.Product;
 import com.example.core.model.Tenant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -15,4 +18,24 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     List<Product> findByCategoryAndActiveTrueAndTenant(String category, Tenant tenant); // ← AGREGAR
     List<Product> findByStockGreaterThan(Integer stock);
     List<Product> findByStockGreaterThanAndTenant(Integer stock, Tenant tenant); // ← AGREGAR
+
+    /**
+     * Descuenta stock de forma atómica solo si alcanza.
+     * Devuelve el stock resultante o null si no había suficiente (la fila no se toca).
+     * Sin @Modifying porque RETURNING devuelve un result set.
+     */
+    @Transactional
+    @Query(value = "UPDATE products SET stock = stock - :quantity " +
+            "WHERE id = :id AND stock >= :quantity " +
+            "RETURNING stock", nativeQuery = true)
+    Integer decrementStock(@Param("id") String id, @Param("quantity") int quantity);
+
+    /**
+     * Devuelve stock de forma atómica (cancelaciones/rechazos). Null si el producto no existe.
+     */
+    @Transactional
+    @Query(value = "UPDATE products SET stock = stock + :quantity " +
+            "WHERE id = :id " +
+            "RETURNING stock", nativeQuery = true)
+    Integer incrementStock(@Param("id") String id, @Param("quantity") int quantity);
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.example.core.repository;
 import com.example.core.model.Role;
 import com.example.core.model.Tenant;
 import com.example.core.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -12,6 +13,11 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByEmail(String email);
+
+    // Usuario + tenant en una sola query (CurrentUser)
+    @EntityGraph(attributePaths = "tenant")
+    Optional<User> findWithTenantById(String id);
+
     List<User> findByRole(Role role);
     List<User> findByTenant(Tenant tenant); // ← AGREGAR
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.example.core.repository;
+
+import com.example.core.model.WebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, String> {
+
+    /**
+     * Encola la notificación (una fila por pago). Si ya había una fila se vuelve a dejar PENDING:
+     * - PENDING: no cambia nada, el worker va a consultar el estado actual del pago igual
+     * - PROCESSING: queda PENDING y se procesa otra vez (markDone no la pisa)
+     * - DONE / FAILED: se reactiva (el pago pudo cambiar de estado)
+     * El tenant queda el de la primera notificación: si llega otro para el mismo pago no se toca
+     * la fila y devuelve null.
+     * Devuelve la cantidad de notificaciones acumuladas (1 = primera).
+     */
+    @Transactional
+    @Query(value = "INSERT INTO webhook_inbox (id, provider, external_id, tenant_id, status, attempts, notifications, " +
+                   "payload, received_at, next_attempt_at) " +
+                   "VALUES (:id, :provider, :externalId, :tenantId, 'PENDING', 0, 1, :payload, :now, :now) " +
+                   "ON CONFLICT (provider, external_id) DO UPDATE SET " +
+                   "notifications = webhook_inbox.notifications + 1, " +
+                   "payload = EXCLUDED.payload, " +
+                   "received_at = CASE WHEN webhook_inbox.status IN ('PENDING', 'PROCESSING') " +
+                   "THEN webhook_inbox.received_at ELSE EXCLUDED.received_at END, " +
+                   "next_attempt_at = CASE WHEN webhook_inbox.status = 'PENDING' " +
+                   "THEN webhook_inbox.next_attempt_at ELSE EXCLUDED.next_attempt_at END, " +
+                   "attempts = CASE WHEN webhook_inbox.status = 'PENDING' THEN webhook_inbox.attempts ELSE 0 END, " +
+                   "status = 'PENDING' " +
+                   "WHERE webhook_inbox.tenant_id IS NOT DISTINCT FROM EXCLUDED.tenant_id " +
+                   "RETURNING notifications",
+           nativeQuery = true)
+    Integer enqueue(@Param("id") String id,
+                    @Param("provider") String provider,
+                    @Param("externalId") String externalId,
+                    @Param("tenantId") String tenantId,
+                    @Param("payload") String payload,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * Toma hasta :limit eventos listos (o PROCESSING abandonados por un worker caído).
+     * SKIP LOCKED: varias instancias pueden hacer polling sin pisarse.
+     */
+    @Transactional
+    @Query(value = "UPDATE webhook_inbox SET status = 'PROCESSING', locked_at = :now, attempts = attempts + 1 " +
+                   "WHERE id IN (SELECT id FROM webhook_inbox " +
+                   "  WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+                   "     OR (status = 'PROCESSING' AND locked_at < :staleBefore) " +
+                   "  ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING *",
+           nativeQuery = true)
+    List<WebhookEvent> claim(@Param("limit") int limit,
+                             @Param("now") LocalDateTime now,
+                             @Param("staleBefore") LocalDateTime staleBefore);
+
+    // Los tres cierres solo valen para el claim de quien los llama (locked_at = :claimedAt): si llegó
+    // otra notificación (PENDING) o el evento quedó colgado y lo retomó otro worker, devuelven 0
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE webhook_inbox SET status = 'DONE', processed_at = :now, locked_at = NULL, " +
+                   "last_error = :note WHERE id = :id AND status = 'PROCESSING' AND locked_at = :claimedAt",
+           nativeQuery = true)
+    int markDone(@Param("id") String id,
+                 @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("now") LocalDateTime now,
+                 @Param("note") String note);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE webhook_inbox SET status = 'PENDING', next_attempt_at = :nextAttemptAt, " +
+                   "locked_at = NULL, last_error = :error " +
+                   "WHERE id = :id AND status = 'PROCESSING' AND locked_at = :claimedAt",
+           nativeQuery = true)
+    int reschedule(@Param("id") String id,
+                   @Param("claimedAt") LocalDateTime claimedAt,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE webhook_inbox SET status = 'FAILED', processed_at = :now, locked_at = NULL, " +
+                   "last_error = :error WHERE id = :id AND status = 'PROCESSING' AND locked_at = :claimedAt",
+           nativeQuery = true)
+    int markFailed(@Param("id") String id,
+                   @Param("claimedAt") LocalDateTime claimedAt,
+                   @Param("now") LocalDateTime now,
+                   @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE webhook_inbox SET status = 'PENDING', attempts = 0, next_attempt_at = :now, " +
+                   "received_at = :now WHERE status = 'FAILED'",
+           nativeQuery = true)
+    int retryFailed(@Param("now") LocalDateTime now);
+
+    long countByStatus(WebhookEvent.Status status);
+
+    @Query("SELECT MIN(e.receivedAt) FROM WebhookEvent e WHERE e.status IN :statuses")
+    LocalDateTime findOldestReceivedAt(@Param("statuses") List<WebhookEvent.Status> statuses);
+}
@@ -0,0 +1,57 @@
+package com.example.core.security;
+
+import com.example.core.model.User;
+import io.jsonwebtoken.Claims;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal que queda en el SecurityContext después de validar el JWT.
+ * authentication.getName() sigue devolviendo el email, así que los controllers no cambian.
+ */
+@Value
+public class AuthenticatedUser implements Principal {
+
+    String userId;
+    String email;
+    String role;
+    String tenantId;
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public Collection<GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+
+    /**
+     * Construye el principal solo con los claims del token (sin ir a la DB).
+     * Devuelve null si el token es viejo y no trae role/tenantId.
+     */
+    public static AuthenticatedUser fromClaims(Claims claims) {
+        String role = claims.get(JwtUtil.CLAIM_ROLE, String.class);
+        String tenantId = claims.get(JwtUtil.CLAIM_TENANT_ID, String.class);
+        if (role == null || tenantId == null) {
+            return null;
+        }
+        return new AuthenticatedUser(
+                claims.get(JwtUtil.CLAIM_USER_ID, String.class),
+                claims.getSubject(),
+                role,
+                tenantId
+        );
+    }
+
+    public static AuthenticatedUser from(User user) {
+        String role = user.getRole() != null ? user.getRole().name() : "CLIENTE";
+        String tenantId = user.getTenant() != null ? user.getTenant().getId() : null;
+        return new AuthenticatedUser(user.getId(), user.getEmail(), role, tenantId);
+    }
+}
@@ -1,12 +1,13 @@
 package com.example.core.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,10 +20,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    private final boolean stateless;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil,
+                                   CustomUserDetailsService userDetailsService,
+                                   TokenRevocationService tokenRevocationService,
+                                   @Value("${app.jwt.stateless:true}") boolean stateless) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.stateless = stateless;
     }
 
     @Override
@@ -31,28 +39,40 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String username = null;
-
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            try {
-                username = jwtUtil.getUsernameFromToken(token);
-            } catch (Exception e) {
-                // token inválido; dejamos pasar para que security bloquee si corresponde
-            }
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Token inválido → claims vacío; dejamos pasar para que security bloquee si corresponde
+            jwtUtil.parseClaims(authHeader.substring(7))
+                    .map(this::resolveUser)
+                    .ifPresent(user -> {
+                        UsernamePasswordAuthenticationToken auth =
+                                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+                        auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        SecurityContextHolder.getContext().setAuthentication(auth);
+                    });
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Arma el usuario desde los claims. Solo va a la DB si el modo stateless está apagado,
+     * si el token no trae role/tenantId o si el usuario cambió después de emitirse el token.
+     */
+    private AuthenticatedUser resolveUser(Claims claims) {
+        String email = claims.getSubject();
+        if (email == null) {
+            return null;
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails ud = this.userDetailsService.loadUserByUsername(username);
-            if (ud != null && jwtUtil.validateToken(token)) {
-                UsernamePasswordAuthenticationToken auth =
-                        new UsernamePasswordAuthenticationToken(ud, null, ud.getAuthorities());
-                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(auth);
+        if (stateless && !tokenRevocationService.isStale(email, claims.getIssuedAt())) {
+            AuthenticatedUser fromClaims = AuthenticatedUser.fromClaims(claims);
+            if (fromClaims != null) {
+                return fromClaims;
             }
         }
 
-        filterChain.doFilter(request, response);
+        return userDetailsService.findAuthenticatedUser(email).orElse(null);
     }
 }
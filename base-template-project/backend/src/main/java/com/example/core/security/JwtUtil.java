@@ -8,12 +8,19 @@ import org.springframework.stereotype.Component;
 import java.security.Key;
 import java.util.Date;
 import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class JwtUtil {
 
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TENANT_ID = "tenantId";
+
     private final Key key;
     private final long expirationMs;
+    // El parser es inmutable y thread-safe: se arma una sola vez
+    private final JwtParser parser;
 
     public JwtUtil(@Value("${app.jwt.secret}") String secret,
                    @Value("${app.jwt.expiration-ms}") long expirationMs) {
@@ -23,6 +30,7 @@ public class JwtUtil {
         }
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String generateToken(String username, Map<String, Object> extraClaims) {
@@ -39,18 +47,23 @@ public class JwtUtil {
         return b.compact();
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verifica firma y expiración una sola vez y devuelve los claims.
+     * Vacío si el token es inválido.
+     */
+    public Optional<Claims> parseClaims(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
+            return Optional.of(parser.parseClaimsJws(token).getBody());
         } catch (JwtException | IllegalArgumentException ex) {
-            return false;
+            return Optional.empty();
         }
     }
 
+    public boolean validateToken(String token) {
+        return parseClaims(token).isPresent();
+    }
+
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder().setSigningKey(key).build()
-                .parseClaimsJws(token).getBody();
-        return claims.getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 }
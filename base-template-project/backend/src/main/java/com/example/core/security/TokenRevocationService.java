@@ -0,0 +1,109 @@
+package com.example.core.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro en memoria de usuarios cuyos tokens ya no se pueden validar solo con los claims
+ * (cambio de rol, baja, etc.).
+ *
+ * Guarda email → instante del cambio. Los tokens emitidos antes de ese instante pasan por
+ * la DB en JwtAuthenticationFilter. Cada entrada vive exactamente lo mismo que un JWT (pasado
+ * ese tiempo todos los tokens anteriores ya expiraron) y nunca se descarta antes.
+ *
+ * Si se llega a maxEntries revocaciones vigentes, en vez de perder alguna se falla cerrado:
+ * todos los tokens emitidos hasta ese momento pasan a revalidarse contra la DB.
+ *
+ * El registro es por instancia: una revocación hecha en un nodo no llega a los demás. Con varias
+ * instancias usar app.jwt.stateless=false o compartir el registro.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private final long tokenTtlMs;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Long> changedAt = new ConcurrentHashMap<>();
+    // Revocación global por desborde: tokens emitidos hasta este instante se revalidan (0 = nunca)
+    private volatile long allChangedAt;
+    private final LongAdder overflows = new LongAdder();
+
+    public TokenRevocationService(@Value("${app.jwt.expiration-ms}") long expirationMs,
+                                  @Value("${app.jwt.revocation-max-entries:10000}") int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries debe ser mayor a 0");
+        }
+        this.tokenTtlMs = expirationMs;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Marca los tokens actuales del usuario como desactualizados
+     */
+    public synchronized void revokeTokensOf(String email) {
+        if (email == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        if (!changedAt.containsKey(email) && changedAt.size() >= maxEntries) {
+            changedAt.values().removeIf(changed -> isExpired(changed, now));
+        }
+        if (!changedAt.containsKey(email) && changedAt.size() >= maxEntries) {
+            // Lleno de revocaciones vigentes: la global cubre a todas (y a esta) antes de soltarlas
+            allChangedAt = now;
+            changedAt.clear();
+            overflows.increment();
+            log.warn("⚠️ Más de {} revocaciones vigentes: todos los tokens emitidos hasta ahora se revalidan contra la DB",
+                    maxEntries);
+            return;
+        }
+
+        changedAt.merge(email, now, Math::max);
+        log.info("🔒 Tokens de {} marcados para revalidar contra la DB", email);
+    }
+
+    /**
+     * true si el token fue emitido antes del último cambio del usuario
+     */
+    public boolean isStale(String email, Date issuedAt) {
+        long now = System.currentTimeMillis();
+        long changed = allChangedAt;
+        Long userChanged = email == null ? null : changedAt.get(email);
+        if (userChanged != null && userChanged > changed) {
+            changed = userChanged;
+        }
+        if (changed == 0 || isExpired(changed, now)) {
+            return false;
+        }
+        // iat tiene precisión de segundos: ante la duda, revalidar
+        return issuedAt == null || issuedAt.getTime() <= changed;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", "jwt-revocations");
+        stats.put("size", changedAt.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMs", tokenTtlMs);
+        stats.put("overflows", overflows.sum());
+        stats.put("allRevokedAt", allChangedAt == 0 ? null : Instant.ofEpochMilli(allChangedAt).toString());
+        return stats;
+    }
+
+    // ========== HELPERS ==========
+
+    // Pasado el TTL del JWT ya no queda ningún token emitido antes del cambio
+    private boolean isExpired(long changed, long now) {
+        return now - changed > tokenTtlMs;
+    }
+}
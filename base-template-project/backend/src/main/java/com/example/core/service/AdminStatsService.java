@@ -0,0 +1,131 @@
+package com.example.core.service;
+
+import com.example.core.dto.AdminStatsDTO;
+import com.example.core.dto.DailySalesDTO;
+import com.example.core.dto.TopProductDTO;
+import com.example.core.model.Payment;
+import com.example.core.model.Tenant;
+import com.example.core.repository.DailySalesRollupRepository;
+import com.example.core.repository.OrderItemRepository;
+import com.example.core.repository.OrderRepository;
+import com.example.core.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Estadísticas del panel admin calculadas en la DB (COUNT/SUM/GROUP BY).
+ * La memoria usada no depende de la cantidad de órdenes del tenant.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdminStatsService {
+
+    private static final int MAX_TOP_PRODUCTS = 100;
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final PaymentRepository paymentRepository;
+    private final DailySalesRollupRepository dailySalesRollupRepository;
+
+    @Transactional(readOnly = true)
+    public AdminStatsDTO getDashboardStats(Tenant tenant) {
+        OrderRepository.DashboardTotals totals = orderRepository.getDashboardTotals(tenant);
+
+        long approvedPayments = 0;
+        long pendingPayments = 0;
+        for (PaymentRepository.StatusCount row : paymentRepository.countByStatus(tenant)) {
+            if (row.getStatus() == Payment.PaymentStatus.APPROVED) {
+                approvedPayments = row.getTotal();
+            } else if (row.getStatus() == Payment.PaymentStatus.PENDING) {
+                pendingPayments = row.getTotal();
+            }
+        }
+
+        AdminStatsDTO stats = new AdminStatsDTO();
+        stats.setTotalSales(totals.getTotalSales());
+        stats.setTotalOrders((int) totals.getTotalOrders());
+        stats.setPendingOrders((int) totals.getPendingOrders());
+        stats.setApprovedPayments((int) approvedPayments);
+        stats.setPendingPayments((int) pendingPayments);
+        stats.setActiveCustomers((int) totals.getActiveCustomers());
+        // Ingresos del mes: sale del rollup diario (un registro por día, no por orden)
+        LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
+        stats.setMonthlyRevenue(dailySalesRollupRepository.sumTotalSince(tenant, startOfMonth));
+
+        // Promedio de ticket (ventas confirmadas sobre el total de órdenes, igual que antes)
+        BigDecimal averageTicket = totals.getTotalSales().compareTo(BigDecimal.ZERO) > 0
+                ? totals.getTotalSales().divide(BigDecimal.valueOf(totals.getTotalOrders()), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+        stats.setAverageTicket(averageTicket);
+
+        return stats;
+    }
+
+    /**
+     * Ventas diarias de los últimos N días, leídas del rollup
+     */
+    @Transactional(readOnly = true)
+    public List<DailySalesDTO> getDailySales(Tenant tenant, int days) {
+        LocalDate from = LocalDate.now().minusDays(days);
+
+        return dailySalesRollupRepository
+                .findByTenantAndSalesDateGreaterThanEqualOrderBySalesDateAsc(tenant, from)
+                .stream()
+                .filter(r -> r.getOrderCount() > 0)
+                .map(r -> {
+                    DailySalesDTO dto = new DailySalesDTO();
+                    dto.setDate(r.getSalesDate());
+                    dto.setTotal(r.getTotal());
+                    dto.setOrderCount(r.getOrderCount());
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Productos más vendidos (cantidad), opcionalmente entre dos fechas inclusive
+     */
+    @Transactional(readOnly = true)
+    public List<TopProductDTO> getTopProducts(Tenant tenant, int limit, LocalDate from, LocalDate to) {
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_TOP_PRODUCTS)));
+
+        if (from == null && to == null) {
+            return orderItemRepository.findTopProducts(tenant, page);
+        }
+
+        LocalDate start = from != null ? from : LocalDate.of(1970, 1, 1);
+        LocalDate end = to != null ? to : LocalDate.now();
+        return orderItemRepository.findTopProductsBetween(tenant,
+                start.atStartOfDay(), end.plusDays(1).atStartOfDay(), page);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Integer> getOrderStatusDistribution(Tenant tenant) {
+        Map<String, Integer> distribution = new HashMap<>();
+        for (OrderRepository.StatusCount row : orderRepository.countByStatus(tenant)) {
+            distribution.put(row.getStatus().name(), (int) row.getTotal());
+        }
+        return distribution;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Integer> getPaymentMethodsDistribution(Tenant tenant) {
+        Map<String, Integer> distribution = new HashMap<>();
+        for (OrderRepository.PaymentMethodCount row : orderRepository.countByPaymentMethod(tenant)) {
+            distribution.put(row.getPaymentMethod().name(), (int) row.getTotal());
+        }
+        return distribution;
+    }
+}
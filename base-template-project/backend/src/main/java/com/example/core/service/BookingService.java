@@ -1,22 +1,32 @@
 package com.example.core.service;
 
+import com.example.core.dto.BookingCalendarEntryDTO;
+import com.example.core.dto.BookingIntervalDTO;
+import com.example.core.dto.BookingSlotDTO;
+import com.example.core.dto.DayAvailabilityDTO;
+import com.example.core.exception.BadRequestException;
 import com.example.core.model.Booking;
 import com.example.core.model.ServiceItem;
 import com.example.core.model.User;
 import com.example.core.repository.BookingRepository;
+import com.example.core.repository.ItemRepository;
 import com.example.core.repository.ServiceRepository;
-import com.example.core.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class BookingService {
@@ -25,29 +35,29 @@ public class BookingService {
 
     private final BookingRepository bookingRepository;
     private final ServiceRepository serviceRepository;
-    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final BookingCapacityService bookingCapacityService;
+    private final int maxAvailabilityDays;
 
     public BookingService(BookingRepository bookingRepository,
                           ServiceRepository serviceRepository,
-                          UserRepository userRepository) {
+                          ItemRepository itemRepository,
+                          BookingCapacityService bookingCapacityService,
+                          @Value("${app.booking-availability.max-days:62}") int maxAvailabilityDays) {
         this.bookingRepository = bookingRepository;
         this.serviceRepository = serviceRepository;
-        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.bookingCapacityService = bookingCapacityService;
+        this.maxAvailabilityDays = maxAvailabilityDays;
     }
 
     /**
      * Obtener slots disponibles para un servicio en una fecha específica
      */
-    public List<Map<String, Object>> getAvailableSlots(String serviceId, LocalDate date) {
+    public List<BookingSlotDTO> getAvailableSlots(String serviceId, LocalDate date) {
         logger.info("📅 Obteniendo slots disponibles para servicio: {} - Fecha: {}", serviceId, date);
 
-        ServiceItem service = serviceRepository.findById(serviceId)
-                .orElseThrow(() -> new RuntimeException("Service not found"));
-
-        // Validar que el servicio requiera reserva
-        if (!service.isRequiresBooking()) {
-            throw new RuntimeException("Este servicio no requiere reserva");
-        }
+        ServiceItem service = findBookableService(serviceId);
 
         // Validar que el día esté disponible
         if (!service.getAvailableDays().contains(date.getDayOfWeek())) {
@@ -55,86 +65,116 @@ public class BookingService {
             return List.of();
         }
 
-        // Generar todos los slots posibles del día
-        List<Map<String, Object>> allSlots = generateAllSlots(service, date);
-
-        // Obtener bookings existentes para ese día
-        List<Booking> existingBookings = bookingRepository.findByServiceAndBookingDate(service, date);
-
-        // Filtrar slots disponibles
-        List<Map<String, Object>> availableSlots = new ArrayList<>();
-
-        for (Map<String, Object> slot : allSlots) {
-            LocalTime slotStart = (LocalTime) slot.get("startTime");
-            LocalTime slotEnd = (LocalTime) slot.get("endTime");
-
-            // Contar cuántos bookings activos hay en este slot
-            long bookingsInSlot = existingBookings.stream()
-                    .filter(b -> b.getStatus() == Booking.BookingStatus.PENDING ||
-                                 b.getStatus() == Booking.BookingStatus.CONFIRMED)
-                    .filter(b -> timesOverlap(b.getStartTime(), b.getEndTime(), slotStart, slotEnd))
-                    .count();
-
-            // Si hay capacidad disponible, agregar el slot
-            int maxCapacity = service.getMaxCapacity() != null ? service.getMaxCapacity() : 1;
-            if (bookingsInSlot < maxCapacity) {
-                slot.put("availableSpots", maxCapacity - bookingsInSlot);
-                slot.put("totalCapacity", maxCapacity);
-                availableSlots.add(slot);
-            }
-        }
-
-        logger.info("✅ Slots disponibles: {}/{}", availableSlots.size(), allSlots.size());
-        return availableSlots;
+        DayAvailabilityDTO day = getAvailability(service, date, date, false).get(0);
+        logger.info("✅ Slots disponibles: {}/{}", day.getAvailableSlots(), day.getTotalSlots());
+        return day.getSlots();
     }
 
     /**
-     * Generar todos los slots posibles para un servicio en un día
+     * Disponibilidad de varios días (semana/mes del calendario) con una sola query.
+     * includeFull: también devuelve los turnos sin lugar (vista del vendedor).
      */
-    private List<Map<String, Object>> generateAllSlots(ServiceItem service, LocalDate date) {
-        List<Map<String, Object>> slots = new ArrayList<>();
+    public List<DayAvailabilityDTO> getAvailability(String serviceId, LocalDate startDate, LocalDate endDate,
+                                                    boolean includeFull) {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("La fecha de fin es anterior a la de inicio");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= maxAvailabilityDays) {
+            throw new BadRequestException("El rango no puede superar " + maxAvailabilityDays + " días");
+        }
+        return getAvailability(findBookableService(serviceId), startDate, endDate, includeFull);
+    }
 
-        LocalTime currentTime = service.getWorkStartTime();
-        LocalTime endTime = service.getWorkEndTime();
-        int intervalMinutes = service.getSlotIntervalMinutes() != null ? service.getSlotIntervalMinutes() : service.getDurationMinutes();
+    private List<DayAvailabilityDTO> getAvailability(ServiceItem service, LocalDate startDate, LocalDate endDate,
+                                                     boolean includeFull) {
+        int[] slotStarts = slotStartMinutes(service);
+        int duration = service.getDurationMinutes();
+        int capacity = service.getMaxCapacity() != null ? service.getMaxCapacity() : 1;
+
+        // 🗓️ Una query para todo el rango, agrupada por día
+        Map<LocalDate, List<BookingIntervalDTO>> bookingsByDay = bookingRepository
+                .findActiveIntervals(service.getId(), startDate, endDate).stream()
+                .collect(Collectors.groupingBy(BookingIntervalDTO::getBookingDate));
+
+        List<DayAvailabilityDTO> days = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (!service.getAvailableDays().contains(date.getDayOfWeek())) {
+                days.add(DayAvailabilityDTO.builder().date(date).open(false).slots(List.of()).build());
+                continue;
+            }
 
-        while (currentTime.plusMinutes(service.getDurationMinutes()).isBefore(endTime) ||
-               currentTime.plusMinutes(service.getDurationMinutes()).equals(endTime)) {
+            DayOccupancy occupancy = DayOccupancy.of(bookingsByDay.getOrDefault(date, List.of()));
+            List<BookingSlotDTO> slots = new ArrayList<>(slotStarts.length);
+            int available = 0;
+            for (int start : slotStarts) {
+                int free = Math.max(0, capacity - occupancy.overlapping(start, start + duration));
+                if (free > 0) {
+                    available++;
+                } else if (!includeFull) {
+                    continue;
+                }
+                slots.add(BookingSlotDTO.builder()
+                        .date(date)
+                        .startTime(LocalTime.of(start / 60, start % 60))
+                        .endTime(LocalTime.of((start + duration) / 60, (start + duration) % 60))
+                        .availableSpots(free)
+                        .totalCapacity(capacity)
+                        .build());
+            }
 
-            Map<String, Object> slot = new HashMap<>();
-            slot.put("startTime", currentTime);
-            slot.put("endTime", currentTime.plusMinutes(service.getDurationMinutes()));
-            slot.put("date", date);
+            days.add(DayAvailabilityDTO.builder()
+                    .date(date)
+                    .open(true)
+                    .totalSlots(slotStarts.length)
+                    .availableSlots(available)
+                    .slots(slots)
+                    .build());
+        }
+        return days;
+    }
 
-            slots.add(slot);
+    private ServiceItem findBookableService(String serviceId) {
+        ServiceItem service = serviceRepository.findById(serviceId)
+                .orElseThrow(() -> new RuntimeException("Service not found"));
 
-            currentTime = currentTime.plusMinutes(intervalMinutes);
+        // Validar que el servicio requiera reserva
+        if (!service.isRequiresBooking()) {
+            throw new RuntimeException("Este servicio no requiere reserva");
         }
-
-        return slots;
+        return service;
     }
 
     /**
-     * Verificar si dos rangos de tiempo se superponen
+     * Minuto de inicio de cada turno del día (igual para todos los días del servicio)
      */
-    private boolean timesOverlap(LocalTime start1, LocalTime end1, LocalTime start2, LocalTime end2) {
-        return start1.isBefore(end2) && end1.isAfter(start2);
+    private int[] slotStartMinutes(ServiceItem service) {
+        if (service.getWorkStartTime() == null || service.getWorkEndTime() == null) {
+            return new int[0];
+        }
+        int duration = service.getDurationMinutes();
+        int interval = service.getSlotIntervalMinutes() != null ? service.getSlotIntervalMinutes() : duration;
+        int first = DayOccupancy.minuteOf(service.getWorkStartTime());
+        int last = DayOccupancy.minuteOf(service.getWorkEndTime()) - duration;
+        if (interval <= 0 || last < first) {
+            return new int[0];
+        }
+        return IntStream.iterate(first, m -> m <= last, m -> m + interval).toArray();
     }
 
     /**
      * Crear una reserva
      */
     @Transactional
-    public Booking createBooking(String serviceId, String userEmail, LocalDate date, LocalTime startTime, String notes) {
+    public Booking createBooking(String serviceId, User user, LocalDate date, LocalTime startTime, String notes) {
         logger.info("📝 Creando booking - Servicio: {} - Usuario: {} - Fecha: {} - Hora: {}",
-                serviceId, userEmail, date, startTime);
+                serviceId, user.getEmail(), date, startTime);
 
-        ServiceItem service = serviceRepository.findById(serviceId)
+        // Solo servicios del tenant del usuario
+        ServiceItem service = itemRepository.findByIdAndTenantId(serviceId, user.getTenant().getId())
+                .filter(ServiceItem.class::isInstance)
+                .map(ServiceItem.class::cast)
                 .orElseThrow(() -> new RuntimeException("Service not found"));
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
         // Validar que el servicio requiera reserva
         if (!service.isRequiresBooking()) {
             throw new RuntimeException("Este servicio no requiere reserva");
@@ -153,13 +193,8 @@ public class BookingService {
             throw new RuntimeException("El horario está fuera del horario de atención");
         }
 
-        // Verificar que no haya conflictos
-        List<Booking> conflicts = bookingRepository.findConflictingBookings(serviceId, date, startTime, endTime);
-
-        int maxCapacity = service.getMaxCapacity() != null ? service.getMaxCapacity() : 1;
-        if (conflicts.size() >= maxCapacity) {
-            throw new RuntimeException("No hay capacidad disponible en ese horario");
-        }
+        // 🔒 Verificar capacidad (con lock por servicio y día hasta el commit: sin sobreventa)
+        bookingCapacityService.reserve(service, date, startTime, endTime, 1);
 
         // Crear booking
         Booking booking = new Booking();
@@ -180,6 +215,27 @@ public class BookingService {
         return savedBooking;
     }
 
+    /**
+     * Mover una reserva a otra fecha/hora (misma duración), respetando la capacidad
+     */
+    @Transactional
+    public Booking rescheduleBooking(String bookingId, LocalDate newDate, LocalTime newTime) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
+
+        ServiceItem service = booking.getService();
+        LocalTime endTime = newTime.plusMinutes(service.getDurationMinutes());
+
+        bookingCapacityService.reserveForReschedule(service, newDate, newTime, endTime, bookingId);
+
+        booking.setBookingDate(newDate);
+        booking.setStartTime(newTime);
+        booking.setEndTime(endTime);
+
+        logger.info("🔁 Booking {} reprogramado: {} {}", bookingId, newDate, newTime);
+        return bookingRepository.save(booking);
+    }
+
     /**
      * Cancelar una reserva
      */
@@ -230,12 +286,31 @@ public class BookingService {
     }
 
     /**
-     * Obtener mis reservas
+     * Calendario del vendedor: reservas del tenant en un rango (hoy / semana / mes), ya proyectadas.
+     * serviceId null = todos los servicios; sin includeCancelled no trae las canceladas.
      */
-    public List<Booking> getMyBookings(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    @Transactional(readOnly = true)
+    public List<BookingCalendarEntryDTO> getCalendar(String tenantId, String serviceId,
+                                                     LocalDate startDate, LocalDate endDate,
+                                                     boolean includeCancelled) {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("La fecha de fin es anterior a la de inicio");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= maxAvailabilityDays) {
+            throw new BadRequestException("El rango no puede superar " + maxAvailabilityDays + " días");
+        }
 
+        Set<Booking.BookingStatus> statuses = EnumSet.allOf(Booking.BookingStatus.class);
+        if (!includeCancelled) {
+            statuses.remove(Booking.BookingStatus.CANCELLED);
+        }
+        return bookingRepository.findCalendar(tenantId, serviceId, startDate, endDate, statuses);
+    }
+
+    /**
+     * Obtener mis reservas
+     */
+    public List<Booking> getMyBookings(User user) {
         return bookingRepository.findByUserOrderByBookingDateDescStartTimeDesc(user);
     }
 }
@@ -0,0 +1,150 @@
+package com.example.core.service;
+
+import com.example.core.dto.ProductDTO;
+import com.example.core.dto.ServiceDTO;
+import com.example.core.mapper.ItemMapper;
+import com.example.core.model.Tenant;
+import com.example.core.repository.ProductRepository;
+import com.example.core.repository.ServiceRepository;
+import com.example.core.repository.TenantRepository;
+import com.example.core.util.ETags;
+import com.example.core.util.TtlCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache por tenant del catálogo público (productos y servicios activos ya mapeados a DTO).
+ *
+ * El storefront pega a /api/items/products y /api/items/services en cada visita; con esto
+ * solo la primera request del tenant va a Postgres y al mapper. Cualquier escritura sobre
+ * items del tenant (alta, edición, baja, cambios de stock) debe llamar a invalidate().
+ * Las listas cacheadas son inmutables: se comparten entre requests. Cada lista guarda su ETag
+ * (hash del contenido) para responder 304 sin ir a la base.
+ */
+@Service
+@Slf4j
+public class CatalogCache {
+
+    private final ProductRepository productRepository;
+    private final ServiceRepository serviceRepository;
+    private final TenantRepository tenantRepository;
+    private final ItemMapper itemMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+
+    private final TtlCache<String, Snapshot<ProductDTO>> products;
+    private final TtlCache<String, Snapshot<ServiceDTO>> services;
+
+    public CatalogCache(ProductRepository productRepository,
+                        ServiceRepository serviceRepository,
+                        TenantRepository tenantRepository,
+                        ItemMapper itemMapper,
+                        ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${app.catalog-cache.max-size:500}") int maxSize,
+                        @Value("${app.catalog-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.productRepository = productRepository;
+        this.serviceRepository = serviceRepository;
+        this.tenantRepository = tenantRepository;
+        this.itemMapper = itemMapper;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.products = new TtlCache<>("catalog-products", maxSize, Duration.ofSeconds(ttlSeconds));
+        this.services = new TtlCache<>("catalog-services", maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    /**
+     * Sin @Transactional a propósito: un hit no debe ni pedir conexión al pool.
+     * Solo la carga (miss) abre una transacción de lectura.
+     */
+    public Snapshot<ProductDTO> getProducts(String tenantId) {
+        return products.get(tenantId, id -> readOnlyTx.execute(s -> loadProducts(id)));
+    }
+
+    public Snapshot<ServiceDTO> getServices(String tenantId) {
+        return services.get(tenantId, id -> readOnlyTx.execute(s -> loadServices(id)));
+    }
+
+    /**
+     * Invalida el catálogo del tenant. Si hay una transacción en curso se invalida otra vez
+     * después del commit, para que una lectura concurrente no vuelva a cachear el estado viejo.
+     */
+    public void invalidate(String tenantId) {
+        if (tenantId == null) {
+            return;
+        }
+        evict(tenantId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(tenantId);
+                }
+            });
+        }
+    }
+
+    public void invalidate(Tenant tenant) {
+        if (tenant != null) {
+            invalidate(tenant.getId());
+        }
+    }
+
+    public void invalidateAll() {
+        products.invalidateAll();
+        services.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", products.stats());
+        stats.put("services", services.stats());
+        return stats;
+    }
+
+    // ========== HELPERS ==========
+
+    private void evict(String tenantId) {
+        products.invalidate(tenantId);
+        services.invalidate(tenantId);
+        log.debug("Cache de catálogo invalidado para tenant: {}", tenantId);
+    }
+
+    private Snapshot<ProductDTO> loadProducts(String tenantId) {
+        Tenant tenant = tenantRepository.getReferenceById(tenantId);
+        List<ProductDTO> items = productRepository.findByActiveTrueAndTenant(tenant).stream()
+                .map(itemMapper::toProductDTO)
+                .toList();
+        return new Snapshot<>(items, ETags.of(objectMapper, items));
+    }
+
+    private Snapshot<ServiceDTO> loadServices(String tenantId) {
+        Tenant tenant = tenantRepository.getReferenceById(tenantId);
+        List<ServiceDTO> items = serviceRepository.findByActiveTrueAndTenant(tenant).stream()
+                .map(itemMapper::toServiceDTO)
+                .toList();
+        return new Snapshot<>(items, ETags.of(objectMapper, items));
+    }
+
+    /**
+     * Lista del catálogo ya mapeada + su ETag
+     */
+    @lombok.Value
+    public static class Snapshot<T> {
+        List<T> items;
+        String etag;
+    }
+}
@@ -2,11 +2,13 @@ package com.example.core.service;
 
 import com.example.core.model.User;
 import com.example.core.repository.UserRepository;
+import com.example.core.security.AuthenticatedUser;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.Optional;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -33,4 +35,11 @@ public class CustomUserDetailsService implements UserDetailsService {
                 Collections.singletonList(authority)
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Camino con DB del filtro JWT: rol y tenant actuales del usuario
+     */
+    public Optional<AuthenticatedUser> findAuthenticatedUser(String email) {
+        return userRepository.findByEmail(email).map(AuthenticatedUser::from);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.core.service;
+
+import com.example.core.model.Order;
+import com.example.core.model.Tenant;
+import com.example.core.repository.DailySalesRollupRepository;
+import com.example.core.repository.TenantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Mantiene la tabla daily_sales_rollup.
+ *
+ * Todo cambio de estado de una orden tiene que pasar por changeStatus() (vía
+ * PaymentStateMachine.moveOrder): si la orden entra a CONFIRMED suma al día de creación,
+ * si sale de CONFIRMED resta.
+ * El rebuild recalcula desde orders (backfill inicial + corrección nocturna). Borra y vuelve a
+ * insertar bajo un lock de tabla, así ningún upsertDelta queda a medias entre las dos cosas:
+ * los que ya escribieron terminan antes (y el rebuild ve sus órdenes) y los nuevos esperan
+ * al commit (y suman sobre las filas recalculadas).
+ *
+ * rebuildAll corre en una sola instancia (advisory lock de Postgres; las demás lo saltean) y va
+ * tenant por tenant, cada uno en su transacción: el lock de tabla dura lo que un tenant, no
+ * el recálculo entero.
+ */
+@Service
+@Slf4j
+public class DailySalesRollupService {
+
+    private final DailySalesRollupRepository rollupRepository;
+    private final TenantRepository tenantRepository;
+    private final TransactionTemplate tenantTx;
+
+    public DailySalesRollupService(DailySalesRollupRepository rollupRepository,
+                                   TenantRepository tenantRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.tenantRepository = tenantRepository;
+        this.tenantTx = new TransactionTemplate(transactionManager);
+        this.tenantTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Cambia el estado de la orden y ajusta el rollup si cruza CONFIRMED
+     */
+    @Transactional
+    public void changeStatus(Order order, Order.OrderStatus newStatus) {
+        Order.OrderStatus oldStatus = order.getStatus();
+        order.setStatus(newStatus);
+
+        boolean wasConfirmed = oldStatus == Order.OrderStatus.CONFIRMED;
+        boolean isConfirmed = newStatus == Order.OrderStatus.CONFIRMED;
+        if (wasConfirmed == isConfirmed || order.getTenant() == null) {
+            return;
+        }
+
+        LocalDate salesDate = order.getCreatedAt() != null
+                ? order.getCreatedAt().toLocalDate()
+                : LocalDate.now();
+        BigDecimal total = order.getTotal() != null ? order.getTotal() : BigDecimal.ZERO;
+
+        if (isConfirmed) {
+            rollupRepository.upsertDelta(UUID.randomUUID().toString(),
+                    order.getTenant().getId(), salesDate, 1, total);
+        } else {
+            rollupRepository.upsertDelta(UUID.randomUUID().toString(),
+                    order.getTenant().getId(), salesDate, -1, total.negate());
+        }
+    }
+
+    /**
+     * Recalcula el rollup de un tenant desde la tabla orders
+     */
+    @Transactional
+    public int rebuild(String tenantId) {
+        rollupRepository.lockForRebuild();
+        rollupRepository.deleteByTenantId(tenantId);
+        int rows = rollupRepository.rebuildForTenant(tenantId);
+        log.info("📊 Rollup de ventas reconstruido para tenant {}: {} días", tenantId, rows);
+        return rows;
+    }
+
+    /**
+     * Recalcula el rollup de todos los tenants (corre de noche para corregir cualquier desvío).
+     * La transacción externa solo sostiene el advisory lock; cada tenant commitea por separado.
+     */
+    @Scheduled(cron = "${app.daily-sales-rollup.rebuild-cron:0 30 3 * * *}")
+    @Transactional
+    public int rebuildAll() {
+        if (!rollupRepository.tryLockRebuildAll()) {
+            log.info("📊 Rebuild del rollup de ventas en curso en otra instancia, se saltea");
+            return 0;
+        }
+
+        List<String> tenantIds = tenantRepository.findAll().stream().map(Tenant::getId).toList();
+        int rows = 0;
+        for (String tenantId : tenantIds) {
+            rows += tenantTx.execute(status -> rebuild(tenantId));
+        }
+        log.info("📊 Rollup de ventas reconstruido: {} tenants, {} filas", tenantIds.size(), rows);
+        return rows;
+    }
+
+    /**
+     * Backfill del histórico la primera vez que arranca con la tabla vacía
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() == 0) {
+            rebuildAll();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.core.service;
+
+import com.example.core.dto.BookingIntervalDTO;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Ocupación de un servicio en un día, indexada por minuto (inmutable).
+ *
+ * Guarda dos contadores acumulados de 1441 posiciones: reservas que empiezan antes del
+ * minuto m y reservas que terminan en o antes del minuto m. Las reservas que se superponen
+ * con [inicio, fin) son las que empiezan antes de fin menos las que ya terminaron en inicio,
+ * así que cada turno se resuelve con dos lecturas, sin recorrer las reservas.
+ *
+ * Mismo criterio que findConflictingBookings: cuenta reservas superpuestas (no el pico simultáneo).
+ * Resolución de minuto (los segundos se ignoran).
+ */
+public final class DayOccupancy {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final DayOccupancy EMPTY = new DayOccupancy(new int[MINUTES_PER_DAY + 1], new int[MINUTES_PER_DAY + 1]);
+
+    private final int[] startsBefore;
+    private final int[] endsUpTo;
+
+    private DayOccupancy(int[] startsBefore, int[] endsUpTo) {
+        this.startsBefore = startsBefore;
+        this.endsUpTo = endsUpTo;
+    }
+
+    public static DayOccupancy empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Arma la ocupación con las reservas activas del día
+     */
+    public static DayOccupancy of(List<BookingIntervalDTO> bookings) {
+        if (bookings.isEmpty()) {
+            return EMPTY;
+        }
+        int[] startsBefore = new int[MINUTES_PER_DAY + 1];
+        int[] endsUpTo = new int[MINUTES_PER_DAY + 1];
+        for (BookingIntervalDTO booking : bookings) {
+            int start = minuteOf(booking.getStartTime());
+            int end = minuteOf(booking.getEndTime());
+            if (end <= start) {
+                continue; // Horario inválido: no se superpone con ningún turno
+            }
+            startsBefore[start + 1]++;
+            endsUpTo[end]++;
+        }
+        for (int m = 1; m <= MINUTES_PER_DAY; m++) {
+            startsBefore[m] += startsBefore[m - 1];
+            endsUpTo[m] += endsUpTo[m - 1];
+        }
+        return new DayOccupancy(startsBefore, endsUpTo);
+    }
+
+    /**
+     * Cantidad de reservas que se superponen con [startMinute, endMinute)
+     */
+    public int overlapping(int startMinute, int endMinute) {
+        return startsBefore[endMinute] - endsUpTo[startMinute];
+    }
+
+    public static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
@@ -5,30 +5,75 @@ import com.example.core.dto.*;
 import com.example.core.dto.GeoRefProvincesResponse;
 import com.example.core.dto.GeoRefMunicipalitiesResponse;
 import com.example.core.dto.GeoRefLocalitiesResponse;
+import com.example.core.exception.ServiceUnavailableException;
+import com.example.core.http.OutboundHttp;
+import com.example.core.http.UpstreamClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Datos geográficos de Argentina (provincias, municipios, localidades).
+ *
+ * Se responden desde un snapshot en memoria (GeoRefSnapshot): al arrancar se lee la copia
+ * en disco y un job lo refresca contra apis.datos.gob.ar (cambia muy poco). Así los listados
+ * y las validaciones de direcciones no dependen de la red.
+ *
+ * Sin snapshot (sin copia en disco y GeoRef caído al arrancar) las consultas fallan enseguida
+ * con 503 y la descarga se reintenta en segundo plano: una request nunca espera a GeoRef.
+ */
 @Service
 @Slf4j
 public class GeoRefService {
 
-    private static final String GEOREF_BASE_URL = "https://apis.datos.gob.ar/georef/api";
-
-    private final RestTemplate restTemplate;
-
-    public GeoRefService() {
-        this.restTemplate = new RestTemplate();
+    private static final int PAGE_SIZE = 5000; // máximo que acepta GeoRef por request
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    private final UpstreamClient georef;
+    private final ObjectMapper objectMapper;
+    private final Path snapshotPath;
+    private final boolean refreshOnStartup;
+    private final Duration retryInterval;
+
+    private volatile GeoRefSnapshot snapshot = GeoRefSnapshot.empty();
+    private volatile Instant lastRefreshAttempt = Instant.EPOCH;
+    private final AtomicBoolean retryPending = new AtomicBoolean();
+    private final ExecutorService retryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "georef-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public GeoRefService(OutboundHttp outboundHttp,
+                         ObjectMapper objectMapper,
+                         @Value("${app.georef.snapshot-path:data/georef-snapshot.json}") String snapshotPath,
+                         @Value("${app.georef.refresh-on-startup:true}") boolean refreshOnStartup,
+                         @Value("${app.georef.retry-interval:1m}") Duration retryInterval) {
+        this.georef = outboundHttp.get("georef");
+        this.objectMapper = objectMapper;
+        this.snapshotPath = Path.of(snapshotPath);
+        this.refreshOnStartup = refreshOnStartup;
+        this.retryInterval = retryInterval;
     }
 
     // ========== PROVINCIAS ==========
@@ -37,40 +82,7 @@ public class GeoRefService {
      * Obtiene todas las provincias de Argentina
      */
     public List<ProvinceDTO> getAllProvinces() {
-        try {
-            String url = UriComponentsBuilder
-                    .fromHttpUrl(GEOREF_BASE_URL + "/provincias")
-                    .queryParam("campos", "id,nombre")
-                    .queryParam("max", "24") // Argentina tiene 23 provincias + CABA
-                    .toUriString();
-
-            // DEBUG: Ver JSON crudo
-            ResponseEntity<String> debugResponse = restTemplate.getForEntity(url, String.class);
-            log.info("=== DEBUG GeoRef API ===");
-            log.info("URL: {}", url);
-            log.info("JSON crudo: {}", debugResponse.getBody());
-            log.info("========================");
-
-            ResponseEntity<GeoRefProvincesResponse> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<GeoRefProvincesResponse>() {}
-            );
-            log.info("ResponseGeoRef{}",response.getBody());
-            if (response.getBody() != null && response.getBody().getProvincias() != null) {
-                return response.getBody().getProvincias().stream()
-                        .map(p -> new ProvinceDTO(p.getId(), p.getNombre()))
-                        .collect(Collectors.toList());
-            }
-
-            log.warn("GeoRef API retornó respuesta vacía para provincias");
-            return Collections.emptyList();
-
-        } catch (RestClientException e) {
-            log.error("Error al consultar provincias en GeoRef API", e);
-            return Collections.emptyList();
-        }
+        return snapshot().getProvinces();
     }
 
     // ========== MUNICIPIOS ==========
@@ -79,46 +91,7 @@ public class GeoRefService {
      * Obtiene municipios de una provincia específica
      */
     public List<MunicipalityDTO> getMunicipalitiesByProvince(String provinceId) {
-        try {
-            String url = UriComponentsBuilder
-                    .fromHttpUrl(GEOREF_BASE_URL + "/municipios")
-                    .queryParam("provincia", provinceId)
-                    .queryParam("campos", "id,nombre,provincia.id,provincia.nombre")
-                    .queryParam("max", "500")
-                    .toUriString();
-
-            // DEBUG: Ver JSON crudo para municipios
-            ResponseEntity<String> debugResponse = restTemplate.getForEntity(url, String.class);
-            log.info("=== DEBUG MUNICIPIOS API ===");
-            log.info("URL: {}", url);
-            log.info("JSON crudo: {}", debugResponse.getBody());
-            log.info("========================");
-
-            ResponseEntity<GeoRefMunicipalitiesResponse> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<GeoRefMunicipalitiesResponse>() {}
-            );
-
-            if (response.getBody() != null && response.getBody().getMunicipios() != null) {
-                return response.getBody().getMunicipios().stream()
-                        .map(m -> new MunicipalityDTO(
-                                m.getId(),
-                                m.getNombre(),
-                                m.getProvincia().getId(),
-                                m.getProvincia().getNombre()
-                        ))
-                        .collect(Collectors.toList());
-            }
-
-            log.warn("GeoRef API retornó respuesta vacía para municipios de provincia {}", provinceId);
-            return Collections.emptyList();
-
-        } catch (RestClientException e) {
-            log.error("Error al consultar municipios en GeoRef API para provincia {}", provinceId, e);
-            return Collections.emptyList();
-        }
+        return snapshot().getMunicipalities(provinceId);
     }
 
     // ========== LOCALIDADES ==========
@@ -127,147 +100,215 @@ public class GeoRefService {
      * Obtiene localidades de un municipio específico
      */
     public List<LocalityDTO> getLocalitiesByMunicipality(String municipalityId) {
-        try {
-            String url = UriComponentsBuilder
-                    .fromHttpUrl(GEOREF_BASE_URL + "/localidades")
-                    .queryParam("municipio", municipalityId)
-                    .queryParam("campos", "id,nombre,municipio.id,municipio.nombre,provincia.id,provincia.nombre")
-                    .queryParam("max", "500")
-                    .toUriString();
-
-            // DEBUG: Ver JSON crudo para localidades
-            ResponseEntity<String> debugResponse = restTemplate.getForEntity(url, String.class);
-            log.info("=== DEBUG LOCALIDADES API ===");
-            log.info("URL: {}", url);
-            log.info("JSON crudo localidades: {}", debugResponse.getBody());
-            log.info("========================");
-
-            ResponseEntity<GeoRefLocalitiesResponse> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<GeoRefLocalitiesResponse>() {}
-            );
-
-            if (response.getBody() != null && response.getBody().getLocalidades() != null) {
-                return response.getBody().getLocalidades().stream()
-                        .map(l -> new LocalityDTO(
-                                l.getId(),
-                                l.getNombre(),
-                                l.getMunicipio() != null ? l.getMunicipio().getId() : null,
-                                l.getMunicipio() != null ? l.getMunicipio().getNombre() : null,
-                                l.getProvincia().getId(),
-                                l.getProvincia().getNombre()
-                        ))
-                        .collect(Collectors.toList());
-            }
+        return snapshot().getLocalities(municipalityId);
+    }
 
-            log.warn("GeoRef API retornó respuesta vacía para localidades de municipio {}", municipalityId);
-            return Collections.emptyList();
+    // ========== BÚSQUEDA POR NOMBRE ==========
 
-        } catch (RestClientException e) {
-            log.error("Error al consultar localidades en GeoRef API para municipio {}", municipalityId, e);
-            return Collections.emptyList();
-        }
+    /**
+     * Busca municipios por nombre (autocomplete), opcionalmente dentro de una provincia.
+     * Ignora acentos y mayúsculas; se resuelve en memoria.
+     */
+    public List<MunicipalityDTO> searchMunicipalitiesByName(String query, String provinceId, int limit) {
+        return snapshot().searchMunicipalities(query, provinceId, searchLimit(limit));
     }
 
-    // ========== BÚSQUEDA POR NOMBRE ==========
+    /**
+     * Busca localidades por nombre (autocomplete), opcionalmente dentro de una provincia
+     */
+    public List<LocalityDTO> searchLocalitiesByName(String query, String provinceId, int limit) {
+        return snapshot().searchLocalities(query, provinceId, searchLimit(limit));
+    }
+
+    // ========== VALIDACIÓN ==========
+
+    /**
+     * Valida que exista una provincia con el ID dado
+     */
+    public boolean isValidProvinceId(String provinceId) {
+        return snapshot().hasProvince(provinceId);
+    }
+
+    /**
+     * Valida que exista un municipio con el ID dado
+     */
+    public boolean isValidMunicipalityId(String municipalityId) {
+        return snapshot().hasMunicipality(municipalityId);
+    }
+
+    // ========== SNAPSHOT ==========
 
     /**
-     * Busca municipios por nombre (autocomplete)
+     * Al arrancar: cargar la copia en disco y, si no hay, bajarla de GeoRef
      */
-    public List<MunicipalityDTO> searchMunicipalitiesByName(String query) {
-        if (query == null || query.trim().length() < 3) {
-            return Collections.emptyList();
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        loadFromDisk();
+        if (snapshot.isEmpty() && refreshOnStartup) {
+            refresh();
         }
+    }
 
+    /**
+     * Baja todo de GeoRef y reemplaza el snapshot (y la copia en disco).
+     * Si algo falla se sigue usando el snapshot anterior.
+     */
+    @Scheduled(cron = "${app.georef.refresh-cron:0 0 4 * * MON}")
+    public synchronized Map<String, Object> refresh() {
+        lastRefreshAttempt = Instant.now();
         try {
-            String url = UriComponentsBuilder
-                    .fromHttpUrl(GEOREF_BASE_URL + "/municipios")
-                    .queryParam("nombre", query)
-                    .queryParam("campos", "id,nombre,provincia.id,provincia.nombre")
-                    .queryParam("max", "20")
-                    .toUriString();
-
-            ResponseEntity<GeoRefMunicipalitiesResponse> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<GeoRefMunicipalitiesResponse>() {}
-            );
-
-            if (response.getBody() != null && response.getBody().getMunicipios() != null) {
-                return response.getBody().getMunicipios().stream()
-                        .map(m -> new MunicipalityDTO(
-                                m.getId(),
-                                m.getNombre(),
-                                m.getProvincia().getId(),
-                                m.getProvincia().getNombre()
-                        ))
-                        .collect(Collectors.toList());
+            long start = System.nanoTime();
+
+            List<ProvinceDTO> provinces = fetchAll("/provincias", "id,nombre",
+                    GeoRefProvincesResponse.class,
+                    GeoRefProvincesResponse::getProvincias, GeoRefProvincesResponse::getTotal,
+                    p -> new ProvinceDTO(p.getId(), p.getNombre()));
+
+            List<MunicipalityDTO> municipalities = fetchAll("/municipios", "id,nombre,provincia.id,provincia.nombre",
+                    GeoRefMunicipalitiesResponse.class,
+                    GeoRefMunicipalitiesResponse::getMunicipios, GeoRefMunicipalitiesResponse::getTotal,
+                    m -> new MunicipalityDTO(
+                            m.getId(),
+                            m.getNombre(),
+                            m.getProvincia().getId(),
+                            m.getProvincia().getNombre()
+                    ));
+
+            List<LocalityDTO> localities = fetchAll("/localidades",
+                    "id,nombre,municipio.id,municipio.nombre,provincia.id,provincia.nombre",
+                    GeoRefLocalitiesResponse.class,
+                    GeoRefLocalitiesResponse::getLocalidades, GeoRefLocalitiesResponse::getTotal,
+                    l -> new LocalityDTO(
+                            l.getId(),
+                            l.getNombre(),
+                            l.getMunicipio() != null ? l.getMunicipio().getId() : null,
+                            l.getMunicipio() != null ? l.getMunicipio().getNombre() : null,
+                            l.getProvincia().getId(),
+                            l.getProvincia().getNombre()
+                    ));
+
+            if (provinces.isEmpty()) {
+                throw new IllegalStateException("GeoRef no devolvió provincias");
             }
 
-            return Collections.emptyList();
+            GeoRefSnapshot.Dump dump = new GeoRefSnapshot.Dump(Instant.now(), provinces, municipalities, localities);
+            snapshot = GeoRefSnapshot.of(dump);
+            saveToDisk(dump);
 
-        } catch (RestClientException e) {
-            log.error("Error al buscar municipios por nombre: {}", query, e);
-            return Collections.emptyList();
+            log.info("🗺️ Snapshot GeoRef actualizado en {} ms: {}",
+                    (System.nanoTime() - start) / 1_000_000, snapshot.stats());
+        } catch (RuntimeException e) {
+            log.error("❌ No se pudo refrescar GeoRef, se mantiene el snapshot anterior", e);
         }
+        return stats();
     }
 
-    // ========== VALIDACIÓN ==========
+    public Map<String, Object> stats() {
+        return snapshot.stats();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        retryExecutor.shutdownNow();
+    }
+
+    // ========== HELPERS ==========
 
     /**
-     * Valida que exista una provincia con el ID dado
+     * Snapshot actual. Si está vacío (sin copia en disco y sin red al arrancar) responde 503
+     * y programa la descarga en segundo plano, como mucho una vez por retryInterval (1 minuto).
      */
-    public boolean isValidProvinceId(String provinceId) {
+    private GeoRefSnapshot snapshot() {
+        GeoRefSnapshot current = snapshot;
+        if (current.isEmpty()) {
+            retryInBackground();
+            throw new ServiceUnavailableException("Datos geográficos no disponibles por el momento, reintentá en unos minutos");
+        }
+        return current;
+    }
+
+    private void retryInBackground() {
+        if (!retryDue() || !retryPending.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            String url = UriComponentsBuilder
-                    .fromHttpUrl(GEOREF_BASE_URL + "/provincias")
-                    .queryParam("id", provinceId)
-                    .queryParam("campos", "id")
-                    .toUriString();
-
-            ResponseEntity<GeoRefResponse<GeoRefProvince>> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<GeoRefResponse<GeoRefProvince>>() {}
-            );
-
-            return response.getBody() != null &&
-                    response.getBody().getCantidad() > 0;
-
-        } catch (RestClientException e) {
-            log.error("Error al validar provincia {}", provinceId, e);
-            return false;
+            retryExecutor.execute(() -> {
+                try {
+                    if (snapshot.isEmpty()) {
+                        refresh();
+                    }
+                } finally {
+                    retryPending.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Apagándose
+            retryPending.set(false);
+        }
+    }
+
+    private boolean retryDue() {
+        return lastRefreshAttempt.plus(retryInterval).isBefore(Instant.now());
+    }
+
+    private int searchLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+    }
+
+    private <R, T, D> List<D> fetchAll(String path, String fields, Class<R> responseType,
+                                       Function<R, List<T>> results, Function<R, Integer> total,
+                                       Function<T, D> mapper) {
+        List<D> all = new ArrayList<>();
+        int offset = 0;
+        while (true) {
+            int inicio = offset;
+            R body = georef.callIdempotent(client -> client.get()
+                    .uri(uri -> uri.path(path)
+                            .queryParam("campos", fields)
+                            .queryParam("max", PAGE_SIZE)
+                            .queryParam("inicio", inicio)
+                            .build())
+                    .retrieve()
+                    .body(responseType));
+            List<T> page = body != null ? results.apply(body) : null;
+            if (page == null || page.isEmpty()) {
+                return all;
+            }
+            page.stream().map(mapper).forEach(all::add);
+
+            offset += page.size();
+            if (offset >= total.apply(body)) {
+                return all;
+            }
+        }
+    }
+
+    private void loadFromDisk() {
+        if (!Files.exists(snapshotPath)) {
+            log.info("🗺️ Sin snapshot GeoRef en disco ({})", snapshotPath.toAbsolutePath());
+            return;
+        }
+        try {
+            GeoRefSnapshot.Dump dump = objectMapper.readValue(snapshotPath.toFile(), GeoRefSnapshot.Dump.class);
+            snapshot = GeoRefSnapshot.of(dump);
+            log.info("🗺️ Snapshot GeoRef cargado de disco: {}", snapshot.stats());
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ Snapshot GeoRef ilegible en {}, se ignora", snapshotPath.toAbsolutePath(), e);
         }
     }
 
     /**
-     * Valida que exista un municipio con el ID dado
+     * Escribe a un archivo temporal y lo mueve, así nunca queda un snapshot a medio escribir
      */
-    public boolean isValidMunicipalityId(String municipalityId) {
+    private void saveToDisk(GeoRefSnapshot.Dump dump) {
         try {
-            String url = UriComponentsBuilder
-                    .fromHttpUrl(GEOREF_BASE_URL + "/municipios")
-                    .queryParam("id", municipalityId)
-                    .queryParam("campos", "id")
-                    .toUriString();
-
-            ResponseEntity<GeoRefResponse<GeoRefMunicipality>> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<GeoRefResponse<GeoRefMunicipality>>() {}
-            );
-
-            return response.getBody() != null &&
-                    response.getBody().getCantidad() > 0;
-
-        } catch (RestClientException e) {
-            log.error("Error al validar municipio {}", municipalityId, e);
-            return false;
+            Path dir = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, "georef-", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), dump);
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo guardar el snapshot GeoRef en {}", snapshotPath.toAbsolutePath(), e);
         }
     }
-}
\ No newline at end of file
+}
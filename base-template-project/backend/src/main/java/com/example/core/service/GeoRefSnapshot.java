@@ -0,0 +1,133 @@
+package com.example.core.service;
+
+import com.example.core.dto.LocalityDTO;
+import com.example.core.dto.MunicipalityDTO;
+import com.example.core.dto.ProvinceDTO;
+import com.example.core.util.AutocompleteIndex;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Copia local (inmutable) de los datos de GeoRef: provincias, municipios y localidades
+ * ya indexados para responder desde memoria (incluye los índices de autocompletado).
+ * Se reemplaza entera en cada refresh.
+ */
+public final class GeoRefSnapshot {
+
+    private static final GeoRefSnapshot EMPTY = new GeoRefSnapshot(new Dump(null, List.of(), List.of(), List.of()));
+
+    private final Instant fetchedAt;
+    private final List<ProvinceDTO> provinces;
+    private final List<MunicipalityDTO> municipalities;
+    private final Map<String, List<MunicipalityDTO>> municipalitiesByProvince;
+    private final Map<String, List<LocalityDTO>> localitiesByMunicipality;
+    private final Set<String> provinceIds;
+    private final Set<String> municipalityIds;
+    private final int localityCount;
+    private final AutocompleteIndex<MunicipalityDTO> municipalityIndex;
+    private final AutocompleteIndex<LocalityDTO> localityIndex;
+
+    private GeoRefSnapshot(Dump dump) {
+        this.fetchedAt = dump.getFetchedAt();
+        this.provinces = List.copyOf(dump.getProvinces());
+        this.municipalities = List.copyOf(dump.getMunicipalities());
+        this.municipalitiesByProvince = groupBy(dump.getMunicipalities(), MunicipalityDTO::getProvinceId);
+        this.localitiesByMunicipality = groupBy(dump.getLocalities(), LocalityDTO::getMunicipalityId);
+        this.provinceIds = provinces.stream().map(ProvinceDTO::getId).collect(Collectors.toUnmodifiableSet());
+        this.municipalityIds = municipalities.stream().map(MunicipalityDTO::getId).collect(Collectors.toUnmodifiableSet());
+        this.localityCount = dump.getLocalities().size();
+        this.municipalityIndex = new AutocompleteIndex<>(municipalities,
+                MunicipalityDTO::getName, MunicipalityDTO::getProvinceId);
+        this.localityIndex = new AutocompleteIndex<>(dump.getLocalities(),
+                LocalityDTO::getName, LocalityDTO::getProvinceId);
+    }
+
+    public static GeoRefSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static GeoRefSnapshot of(Dump dump) {
+        return new GeoRefSnapshot(dump);
+    }
+
+    public boolean isEmpty() {
+        return provinces.isEmpty();
+    }
+
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public List<ProvinceDTO> getProvinces() {
+        return provinces;
+    }
+
+    public List<MunicipalityDTO> getMunicipalities() {
+        return municipalities;
+    }
+
+    public List<MunicipalityDTO> getMunicipalities(String provinceId) {
+        return municipalitiesByProvince.getOrDefault(provinceId, List.of());
+    }
+
+    public List<LocalityDTO> getLocalities(String municipalityId) {
+        return localitiesByMunicipality.getOrDefault(municipalityId, List.of());
+    }
+
+    public boolean hasProvince(String provinceId) {
+        return provinceId != null && provinceIds.contains(provinceId);
+    }
+
+    public boolean hasMunicipality(String municipalityId) {
+        return municipalityId != null && municipalityIds.contains(municipalityId);
+    }
+
+    public List<MunicipalityDTO> searchMunicipalities(String query, String provinceId, int limit) {
+        return municipalityIndex.search(query, provinceId, limit);
+    }
+
+    public List<LocalityDTO> searchLocalities(String query, String provinceId, int limit) {
+        return localityIndex.search(query, provinceId, limit);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fetchedAt", fetchedAt);
+        stats.put("provinces", provinces.size());
+        stats.put("municipalities", municipalities.size());
+        stats.put("localities", localityCount);
+        return stats;
+    }
+
+    // ========== HELPERS ==========
+
+    private static <T> Map<String, List<T>> groupBy(List<T> values, java.util.function.Function<T, String> key) {
+        Map<String, List<T>> grouped = new HashMap<>();
+        for (T value : values) {
+            String k = key.apply(value);
+            if (k != null) {
+                grouped.computeIfAbsent(k, x -> new ArrayList<>()).add(value);
+            }
+        }
+        grouped.replaceAll((k, list) -> List.copyOf(list));
+        return Map.copyOf(grouped);
+    }
+
+    /**
+     * Formato del snapshot en disco (JSON)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Dump {
+        private Instant fetchedAt;
+        private List<ProvinceDTO> provinces;
+        private List<MunicipalityDTO> municipalities;
+        private List<LocalityDTO> localities;
+    }
+}
@@ -2,69 +2,89 @@ package com.example.core.service;
 
 import com.example.core.dto.*;
 import com.example.core.exception.*;
+import com.example.core.http.OutboundHttp;
+import com.example.core.http.UpstreamClient;
+import com.example.core.util.TtlCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class MercadoEnviosService {
 
-    private static final String ML_API_BASE_URL = "https://api.mercadolibre.com";
+    private final String accessToken; // Mismo token de MercadoPago
+    private final BigDecimal listCostBucket;
 
-    @Value("${mercadopago.access-token}")
-    private String accessToken; // Mismo token de MercadoPago
+    private final UpstreamClient mercadoEnvios;
 
-    private final RestTemplate restTemplate;
-
-    public MercadoEnviosService() {
-        this.restTemplate = new RestTemplate();
+    /**
+     * Cotizaciones recientes de MercadoLibre. Solo pasan por acá la creación de órdenes con envío
+     * (OrderService, paquete fijo) e isShippingAvailable: los checkouts repetidos hacia el mismo
+     * CP y rango de precio reutilizan la cotización. La que ve el cliente en /api/shipping la
+     * calcula ShippingService localmente y no toca este cache.
+     */
+    private final TtlCache<QuoteKey, ShippingQuoteResponse> quoteCache;
+
+    public MercadoEnviosService(@Value("${mercadopago.access-token}") String accessToken,
+                                OutboundHttp outboundHttp,
+                                @Value("${app.shipping-quote-cache.max-size:5000}") int cacheMaxSize,
+                                @Value("${app.shipping-quote-cache.ttl-seconds:300}") long cacheTtlSeconds,
+                                @Value("${app.shipping-quote-cache.list-cost-bucket:1000}") BigDecimal listCostBucket) {
+        this.accessToken = accessToken;
+        this.listCostBucket = listCostBucket;
+        this.mercadoEnvios = outboundHttp.get("mercadoenvios");
+        this.quoteCache = new TtlCache<>("shipping-quotes", cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds));
     }
 
     // ========== COTIZAR ENVÍO ==========
 
     /**
-     * Cotiza opciones de envío con MercadoEnvíos
+     * Cotiza opciones de envío con MercadoEnvíos (cacheado por origen, destino, paquete,
+     * rango de precio y envío gratis; los errores no se cachean)
      *
      * @param request Datos de la cotización
      * @return Lista de opciones de envío disponibles
      */
     public ShippingQuoteResponse calculateShipping(ShippingCalculationRequest request) {
+        return quoteCache.get(QuoteKey.of(request, listCostBucket), key -> fetchQuote(request));
+    }
+
+    public Map<String, Object> quoteCacheStats() {
+        return quoteCache.stats();
+    }
+
+    private ShippingQuoteResponse fetchQuote(ShippingCalculationRequest request) {
         try {
             // Según documentación: https://developers.mercadolibre.com.ar/es_ar/envios
             // Endpoint para cotizar costos de envío
-            String url = ML_API_BASE_URL + "/sites/MLA/shipping_costs";
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(accessToken);
-
-            HttpEntity<ShippingCalculationRequest> entity = new HttpEntity<>(request, headers);
-
             log.info("Cotizando envío ML: {} → {}", request.getZipCodeFrom(), request.getZipCodeTo());
-            log.info("URL: {}", url);
-            log.info("Request body: {}", request);
-
-            ResponseEntity<MercadoLibreShippingResponse> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    entity,
-                    MercadoLibreShippingResponse.class
-            );
-
-            if (response.getBody() == null || response.getBody().getOptions() == null) {
+            log.debug("Request body: {}", request);
+
+            // Es un POST pero solo cotiza (no crea nada): se puede reintentar
+            MercadoLibreShippingResponse response = mercadoEnvios.callIdempotent(client -> client.post()
+                    .uri("/sites/MLA/shipping_costs")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .headers(h -> h.setBearerAuth(accessToken))
+                    .body(request)
+                    .retrieve()
+                    .body(MercadoLibreShippingResponse.class));
+
+            if (response == null || response.getOptions() == null) {
                 log.warn("MercadoEnvíos retornó respuesta vacía");
                 throw new BadRequestException("No hay opciones de envío disponibles");
             }
 
-            List<ShippingOptionDTO> options = response.getBody().getOptions().stream()
+            List<ShippingOptionDTO> options = response.getOptions().stream()
                     .map(ShippingOptionDTO::fromMercadoLibre)
                     .collect(Collectors.toList());
 
@@ -85,7 +105,7 @@ public class MercadoEnviosService {
     // ========== BUSCAR OPCIÓN POR ID ==========
 
     /**
-     * Busca una opción de envío específica por su ID
+     * Busca una opción de envío específica por su ID (sobre la cotización cacheada)
      */
     public ShippingOptionDTO findShippingOption(
             ShippingCalculationRequest request,
@@ -180,24 +200,15 @@ public class MercadoEnviosService {
         log.info("🔑 Token length: {}", accessToken != null ? accessToken.length() : 0);
         
         // Primero obtenemos los métodos de shipping disponibles
-        String methodsUrl = ML_API_BASE_URL + "/sites/MLA/shipping_methods";
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(accessToken);
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-        
         try {
             log.info("🔍 Consultando métodos de shipping disponibles...");
-            ResponseEntity<String> methodsResponse = restTemplate.exchange(
-                methodsUrl,
-                HttpMethod.GET, 
-                entity,
-                String.class
-            );
+            String methods = mercadoEnvios.call(client -> client.get()
+                    .uri("/sites/MLA/shipping_methods")
+                    .headers(h -> h.setBearerAuth(accessToken))
+                    .retrieve()
+                    .body(String.class));
             
-            log.info("📦 Métodos de shipping disponibles: {}", methodsResponse.getBody());
+            log.info("📦 Métodos de shipping disponibles: {}", methods);
             
         } catch (Exception e) {
             log.error("❌ Error al consultar métodos de shipping", e);
@@ -218,4 +229,26 @@ public class MercadoEnviosService {
         
         log.info("=== FIN INVESTIGACIÓN CPs ===");
     }
-}
\ No newline at end of file
+
+    // ========== HELPERS ==========
+
+    /**
+     * Clave del cache de cotizaciones. El precio se agrupa en rangos (listCostBucket)
+     * para que carritos de precio casi igual compartan cotización.
+     */
+    @lombok.Value
+    static class QuoteKey {
+        String zipCodeFrom;
+        String zipCodeTo;
+        String dimensions;
+        BigDecimal listCostBucket;
+        Boolean freeShipping;
+
+        static QuoteKey of(ShippingCalculationRequest request, BigDecimal bucketSize) {
+            BigDecimal bucket = request.getListCost() == null ? null
+                    : request.getListCost().divide(bucketSize, 0, RoundingMode.FLOOR);
+            return new QuoteKey(request.getZipCodeFrom(), request.getZipCodeTo(),
+                    request.getDimensions(), bucket, request.getFreeShipping());
+        }
+    }
+}
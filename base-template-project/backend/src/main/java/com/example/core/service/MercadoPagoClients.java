@@ -0,0 +1,167 @@
+package com.example.core.service;
+
+import com.example.core.http.OutboundHttpProperties;
+import com.example.core.http.UpstreamSettings;
+import com.example.core.model.Tenant;
+import com.example.core.model.TenantConfig;
+import com.example.core.repository.TenantRepository;
+import com.mercadopago.client.preference.PreferenceClient;
+import com.mercadopago.client.preference.PreferenceRequest;
+import com.mercadopago.core.MPRequestOptions;
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
+import com.mercadopago.resources.preference.Preference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clientes del SDK de MercadoPago por tenant.
+ *
+ * Cada tenant cobra con su access token (TenantConfig.mercadoPago) o, si no tiene,
+ * con el de la plataforma. El token va en los MPRequestOptions de cada request, así que
+ * nunca se toca MercadoPagoConfig (estado global del SDK): preferencias de tenants
+ * distintos se pueden crear en paralelo sin pisarse.
+ *
+ * Los clientes se crean la primera vez que se usan y se reutilizan; si el tenant cambia
+ * el token, el siguiente uso crea uno nuevo.
+ */
+@Service
+@Slf4j
+public class MercadoPagoClients {
+
+    private static final String PLATFORM = "platform";
+
+    private final String platformAccessToken;
+    private final String platformWebhookSecret;
+    private final TenantRepository tenantRepository;
+    private final int connectTimeoutMs;
+    private final int socketTimeoutMs;
+
+    private final Map<String, TenantClient> clients = new ConcurrentHashMap<>();
+    private final LongAdder created = new LongAdder();
+
+    public MercadoPagoClients(@Value("${mercadopago.access-token}") String platformAccessToken,
+                              @Value("${mercadopago.webhook-secret}") String platformWebhookSecret,
+                              TenantRepository tenantRepository,
+                              OutboundHttpProperties outboundHttpProperties) {
+        this.platformAccessToken = platformAccessToken;
+        this.platformWebhookSecret = platformWebhookSecret;
+        this.tenantRepository = tenantRepository;
+        // Mismos timeouts que el resto del tráfico a api.mercadopago.com (app.http.upstreams.mercadopago)
+        UpstreamSettings settings = outboundHttpProperties.getUpstreams()
+                .getOrDefault("mercadopago", new UpstreamSettings());
+        this.connectTimeoutMs = (int) settings.getConnectTimeout().toMillis();
+        this.socketTimeoutMs = (int) settings.getReadTimeout().toMillis();
+    }
+
+    /**
+     * Cliente del tenant (o el de la plataforma si el tenant no tiene credenciales propias)
+     */
+    public TenantClient forTenant(Tenant tenant) {
+        String token = ownAccessToken(tenant);
+        if (token == null) {
+            return client(PLATFORM, platformAccessToken);
+        }
+        return client(tenant.getId(), token);
+    }
+
+    /**
+     * Access token para las llamadas REST (ej. GET /v1/payments del webhook).
+     * tenantId null o desconocido = cuenta de la plataforma.
+     */
+    public String accessToken(String tenantId) {
+        String token = ownAccessToken(findTenant(tenantId));
+        return token != null ? token : platformAccessToken;
+    }
+
+    /**
+     * Secreto con el que MP firma (x-signature) los webhooks de la cuenta que usa el tenant.
+     * Un tenant con cuenta propia pero sin secreto cargado devuelve null: no se acepta ninguna firma.
+     */
+    public String webhookSecret(String tenantId) {
+        Tenant tenant = findTenant(tenantId);
+        if (ownAccessToken(tenant) == null) {
+            return platformWebhookSecret;
+        }
+        String secret = tenant.getConfig().getMercadoPago().getWebhookSecret();
+        return secret != null && !secret.isBlank() ? secret : null;
+    }
+
+    /**
+     * Dueño de la cuenta de MP que usa el tenant: su id si tiene credenciales propias,
+     * null si cobra con la cuenta de la plataforma
+     */
+    public String accountOwner(String tenantId) {
+        Tenant tenant = findTenant(tenantId);
+        return ownAccessToken(tenant) != null ? tenant.getId() : null;
+    }
+
+    public String accountOwner(Tenant tenant) {
+        return ownAccessToken(tenant) != null ? tenant.getId() : null;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("clients", clients.size());
+        stats.put("tenantClients", clients.keySet().stream().filter(k -> !PLATFORM.equals(k)).count());
+        stats.put("created", created.sum());
+        return stats;
+    }
+
+    // ========== HELPERS ==========
+
+    private TenantClient client(String key, String token) {
+        TenantClient current = clients.get(key);
+        if (current != null && current.getAccessToken().equals(token)) {
+            return current;
+        }
+        // compute: dos requests simultáneos del mismo tenant no crean dos clientes
+        return clients.compute(key, (k, existing) -> {
+            if (existing != null && existing.getAccessToken().equals(token)) {
+                return existing;
+            }
+            created.increment();
+            log.info("🔑 Cliente MercadoPago creado para {}{}", k, existing != null ? " (token actualizado)" : "");
+            return new TenantClient(new PreferenceClient(), MPRequestOptions.builder()
+                    .accessToken(token)
+                    .connectionTimeout(connectTimeoutMs)
+                    .connectionRequestTimeout(connectTimeoutMs)
+                    .socketTimeout(socketTimeoutMs)
+                    .build(), token);
+        });
+    }
+
+    private Tenant findTenant(String tenantId) {
+        return tenantId == null ? null : tenantRepository.findById(tenantId).orElse(null);
+    }
+
+    private static String ownAccessToken(Tenant tenant) {
+        TenantConfig config = tenant != null ? tenant.getConfig() : null;
+        if (config == null || config.getMercadoPago() == null) {
+            return null;
+        }
+        String token = config.getMercadoPago().getAccessToken();
+        return token != null && !token.isBlank() ? token : null;
+    }
+
+    /**
+     * Cliente ya armado de un tenant: el PreferenceClient y las opciones con su token
+     */
+    @lombok.Value
+    public static class TenantClient {
+        PreferenceClient preferenceClient;
+        MPRequestOptions requestOptions;
+        @lombok.ToString.Exclude
+        String accessToken;
+
+        public Preference createPreference(PreferenceRequest request) throws MPException, MPApiException {
+            return preferenceClient.create(request, requestOptions);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.core.service;
+
+import com.example.core.model.Order;
+import com.example.core.model.Tenant;
+import com.example.core.model.User;
+import com.example.core.repository.OrderRepository;
+import com.example.core.repository.TenantRepository;
+import com.example.core.util.OrderCursor;
+import jakarta.persistence.EntityManager;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Listados de órdenes paginados por keyset (created_at DESC, id DESC).
+ *
+ * Cada página son dos queries: los IDs con LIMIT y después las órdenes con items y usuario
+ * en un solo fetch (sin N+1 y sin paginar en memoria un JOIN FETCH de colección).
+ */
+@Service
+@Slf4j
+public class OrderListingService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_PAGE_SIZE = 500;
+
+    private static final Comparator<Order> NEWEST_FIRST = Comparator
+            .comparing(Order::getCreatedAt).reversed()
+            .thenComparing(Order::getId, Comparator.reverseOrder());
+
+    private final OrderRepository orderRepository;
+    private final TenantRepository tenantRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTx;
+
+    public OrderListingService(OrderRepository orderRepository,
+                               TenantRepository tenantRepository,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.tenantRepository = tenantRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @Transactional(readOnly = true)
+    public OrderPage findTenantOrders(Tenant tenant, String cursor, Integer limit) {
+        OrderCursor after = OrderCursor.decode(cursor);
+        int size = pageSize(limit);
+        List<String> ids = orderRepository.findPageIdsByTenant(
+                tenant, after.getCreatedAt(), after.getId(), PageRequest.of(0, size));
+        return toPage(ids, size);
+    }
+
+    @Transactional(readOnly = true)
+    public OrderPage findUserOrders(User user, String cursor, Integer limit) {
+        OrderCursor after = OrderCursor.decode(cursor);
+        int size = pageSize(limit);
+        List<String> ids = orderRepository.findPageIdsByUser(
+                user, after.getCreatedAt(), after.getId(), PageRequest.of(0, size));
+        return toPage(ids, size);
+    }
+
+    /**
+     * Recorre todo el historial del tenant de a páginas, cada una en su propia transacción
+     * y con el contexto de persistencia limpio: la memoria usada es la de una página.
+     */
+    public void forEachTenantOrderPage(String tenantId, Consumer<List<Order>> pageConsumer) {
+        OrderCursor after = OrderCursor.start();
+        Pageable page = PageRequest.of(0, EXPORT_PAGE_SIZE);
+
+        while (after != null) {
+            OrderCursor current = after;
+            after = readOnlyTx.execute(status -> {
+                Tenant tenant = tenantRepository.getReferenceById(tenantId);
+                List<String> ids = orderRepository.findPageIdsByTenant(
+                        tenant, current.getCreatedAt(), current.getId(), page);
+                if (ids.isEmpty()) {
+                    return null;
+                }
+
+                List<Order> orders = loadSorted(ids);
+                pageConsumer.accept(orders);
+                entityManager.clear();
+
+                return ids.size() < EXPORT_PAGE_SIZE ? null : OrderCursor.after(orders.get(orders.size() - 1));
+            });
+        }
+
+        log.info("📤 Export de órdenes finalizado para tenant {}", tenantId);
+    }
+
+    // ========== HELPERS ==========
+
+    private OrderPage toPage(List<String> ids, int size) {
+        if (ids.isEmpty()) {
+            return new OrderPage(List.of(), null);
+        }
+        List<Order> orders = loadSorted(ids);
+        String nextCursor = ids.size() < size
+                ? null
+                : OrderCursor.after(orders.get(orders.size() - 1)).encode();
+        return new OrderPage(orders, nextCursor);
+    }
+
+    private List<Order> loadSorted(List<String> ids) {
+        List<Order> orders = new ArrayList<>(orderRepository.findWithItemsByIdIn(ids));
+        orders.sort(NEWEST_FIRST);
+        return orders;
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    @Value
+    public static class OrderPage {
+        List<Order> orders;
+        String nextCursor;
+    }
+}
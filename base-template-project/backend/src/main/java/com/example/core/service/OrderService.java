@@ -15,7 +15,10 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -26,61 +29,60 @@ public class OrderService {
 
     private final OrderRepository orderRepository;
     private final MercadoEnviosService mercadoEnviosService;
-    private final UserRepository userRepository;
-    private final ProductRepository productRepository;
-    private final ServiceRepository serviceRepository;
+    private final StockReservationService stockReservationService;
     private final BookingRepository bookingRepository;
     private final AddressRepository addressRepository;
+    private final PaymentStateMachine paymentStateMachine;
+    private final BookingCapacityService bookingCapacityService;
 
     public OrderService(OrderRepository orderRepository,
                         MercadoEnviosService mercadoEnviosService,
-                        UserRepository userRepository,
-                        ProductRepository productRepository,
-                        ServiceRepository serviceRepository,
+                        StockReservationService stockReservationService,
                         BookingRepository bookingRepository,
-                        AddressRepository addressRepository) {
+                        AddressRepository addressRepository,
+                        PaymentStateMachine paymentStateMachine,
+                        BookingCapacityService bookingCapacityService) {
         this.orderRepository = orderRepository;
         this.mercadoEnviosService = mercadoEnviosService;
-        this.userRepository = userRepository;
-        this.productRepository = productRepository;
-        this.serviceRepository = serviceRepository;
+        this.stockReservationService = stockReservationService;
         this.bookingRepository = bookingRepository;
         this.addressRepository = addressRepository;
+        this.paymentStateMachine = paymentStateMachine;
+        this.bookingCapacityService = bookingCapacityService;
     }
 
     @Transactional
-    public Order createOrder(CreateOrderRequest request, String userEmail) {
-        logger.info("📝 Creando orden para usuario: {}", userEmail);
+    public Order createOrder(CreateOrderRequest request, User user) {
+        logger.info("📝 Creando orden para usuario: {}", user.getEmail());
 
-        // Obtener usuario
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // 1️⃣ VALIDAR STOCK PRIMERO (antes de crear la orden)
-        Map<String, Integer> stockNeeded = new HashMap<>();
+        // 1️⃣ CARGAR ITEMS (una sola vez, sin locks)
+        Map<String, Integer> quantities = new LinkedHashMap<>();
         for (CreateOrderRequest.OrderItemRequest itemReq : request.getItems()) {
-            Item item = findItem(itemReq.getItemId());
+            quantities.merge(itemReq.getItemId(), itemReq.getQuantity(), Integer::sum);
+        }
 
-            if (item == null) {
-                throw new RuntimeException("Item not found: " + itemReq.getItemId());
-            }
+        // Solo items del tenant del usuario (los de otro tenant se rechazan como inexistentes)
+        Map<String, Item> items = stockReservationService.loadItems(quantities.keySet(), user.getTenant().getId());
 
-            // Solo validar stock para productos físicos
-            if (item instanceof Product) {
-                Product product = (Product) item;
-                if (product.getType() == Product.ProductType.PHYSICAL) {
-                    if (product.getStock() < itemReq.getQuantity()) {
-                        throw new RuntimeException(
-                                String.format("Stock insuficiente para '%s'. Disponible: %d, Solicitado: %d",
-                                        product.getName(), product.getStock(), itemReq.getQuantity())
-                        );
-                    }
-                    stockNeeded.put(product.getId(), itemReq.getQuantity());
-                }
-            }
+        BigDecimal total = BigDecimal.ZERO;
+        for (CreateOrderRequest.OrderItemRequest itemReq : request.getItems()) {
+            BigDecimal itemTotal = items.get(itemReq.getItemId()).getPrice().multiply(BigDecimal.valueOf(itemReq.getQuantity()));
+            total = total.add(itemTotal);
+        }
+
+        // 2️⃣ COTIZAR ENVÍO antes de reservar: la llamada a MercadoEnvíos no puede quedar
+        // esperando con los locks de stock y de capacidad de turnos tomados
+        Address deliveryAddress = null;
+        ShippingOptionDTO selectedOption = null;
+        if (request.getIsDelivery()) {
+            deliveryAddress = findDeliveryAddress(request, user);
+            selectedOption = quoteShipping(request, user, deliveryAddress, total);
         }
 
-        // 2️⃣ CREAR ORDEN
+        // 3️⃣ RESERVAR STOCK
+        stockReservationService.reserve(items, quantities);
+
+        // 4️⃣ CREAR ORDEN
         Order order = new Order();
         order.setUser(user);
         order.setTenant(user.getTenant());
@@ -88,27 +90,9 @@ public class OrderService {
         order.setNotes(request.getNotes());
         order.setStatus(Order.OrderStatus.PENDING);
 
-        BigDecimal total = BigDecimal.ZERO;
-
-        // 3️⃣ AGREGAR ITEMS Y DESCONTAR STOCK
+        // 5️⃣ AGREGAR ITEMS
         for (CreateOrderRequest.OrderItemRequest itemReq : request.getItems()) {
-            Item item = findItem(itemReq.getItemId());
-
-            if (!item.getTenant().getId().equals(user.getTenant().getId())) {
-                throw new RuntimeException("Item does not belong to your tenant");
-            }
-
-            // Descontar stock solo si es producto físico
-            if (item instanceof Product) {
-                Product product = (Product) item;
-                if (product.getType() == Product.ProductType.PHYSICAL) {
-                    int newStock = product.getStock() - itemReq.getQuantity();
-                    product.setStock(newStock);
-                    productRepository.save(product);
-                    logger.info("📦 Stock actualizado: {} - Stock restante: {}",
-                            product.getName(), newStock);
-                }
-            }
+            Item item = items.get(itemReq.getItemId());
 
             // Crear OrderItem
             OrderItem orderItem = new OrderItem();
@@ -132,106 +116,78 @@ public class OrderService {
             }
 
             order.getItems().add(orderItem);
-
-            // Calcular total
-            BigDecimal itemTotal = item.getPrice().multiply(BigDecimal.valueOf(itemReq.getQuantity()));
-            total = total.add(itemTotal);
         }
 
         order.setTotal(total);
-        Order savedOrder = orderRepository.save(order);
-
-        // 4️⃣ CREAR BOOKINGS PARA SERVICIOS
-        for (OrderItem orderItem : savedOrder.getItems()) {
-            if ("SERVICE".equals(orderItem.getItemType()) && orderItem.getBookingDate() != null) {
-                ServiceItem service = (ServiceItem) orderItem.getItem();
-
-                // Crear un booking por cada cantidad
-                for (int i = 0; i < orderItem.getQuantity(); i++) {
-                    Booking booking = new Booking();
-                    booking.setService(service);
-                    booking.setOrder(savedOrder);
-                    booking.setOrderItem(orderItem);
-                    booking.setUser(user);
-                    booking.setTenant(user.getTenant());
-                    booking.setBookingDate(orderItem.getBookingDate());
-                    booking.setStartTime(orderItem.getBookingTime());
-                    booking.setEndTime(orderItem.getBookingTime().plusMinutes(service.getDurationMinutes()));
-                    booking.setStatus(Booking.BookingStatus.PENDING);
-                    booking.setCustomerName(user.getName());
-                    booking.setCustomerEmail(user.getEmail());
-                    booking.setNotes(savedOrder.getNotes());
-
-                    bookingRepository.save(booking);
-                    logger.info("🗓️ Booking creado para orden: {} - Fecha: {} - Hora: {}",
-                            savedOrder.getId(), booking.getBookingDate(), booking.getStartTime());
-                }
-            }
-        }
-        // ========== PROCESAR ENVÍO ==========
-        if (request.getIsDelivery()) {
-
-            // Validar que se haya enviado dirección
-            if (request.getDeliveryAddressId() == null || request.getDeliveryAddressId().isBlank()) {
-                throw new IllegalArgumentException("Se requiere una dirección para delivery");
-            }
 
-            // Validar que se haya seleccionado método de envío
-            if (request.getShippingMethodId() == null) {
-                throw new IllegalArgumentException("Se requiere seleccionar un método de envío");
-            }
-
-            // Obtener dirección del usuario
-            Address deliveryAddress = addressRepository.findByIdAndUserIdAndTenantId(
-                            request.getDeliveryAddressId(),
-                            user.getId(),
-                            user.getTenant().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Dirección no encontrada"));
-
-            // Obtener CP del tenant (origen)
-            String zipCodeFrom = getTenantPostalCode(user.getTenant());
-            if (zipCodeFrom == null) {
-                throw new IllegalArgumentException("El negocio no tiene código postal configurado");
-            }
-
-            // Cotizar envío para validar el método seleccionado
-            ShippingCalculationRequest shippingRequest = ShippingCalculationRequest.builder()
-                    .zipCodeFrom(zipCodeFrom)
-                    .zipCodeTo(deliveryAddress.getPostalCode())
-                    .dimensions("20x20x10,1000") // TODO: Hacer configurable por tenant
-                    .listCost(total)
-                    .freeShipping(false)
-                    .build();
-
-            ShippingOptionDTO selectedOption = mercadoEnviosService.findShippingOption(
-                    shippingRequest,
-                    request.getShippingMethodId());
-
-            // Configurar datos de envío en la orden
+        // ========== ENVÍO (ya cotizado) ==========
+        if (selectedOption != null) {
             order.setDeliveryAddress(deliveryAddress);
             order.setDeliveryCost(selectedOption.getCost());
             order.setDelivery(true);
             order.setDeliveryNotes(request.getDeliveryNotes());
             order.setShippingMethodId(selectedOption.getShippingMethodId());
             order.setStatus(Order.OrderStatus.PREPARING); // Pendiente hasta que se confirme el pago
-
-            log.info("Envío configurado: {} (${}) para orden {}",
-                    selectedOption.getName(),
-                    selectedOption.getCost(),
-                    order.getId());
-
         } else {
             // Es retiro en local (pickup)
             order.setDelivery(false);
             order.setDeliveryCost(BigDecimal.ZERO);
-            order.setStatus(Order.OrderStatus.CANCELLED);
+            order.setStatus(Order.OrderStatus.PENDING); // Pendiente de pago
+        }
 
-            log.info("Orden configurada para retiro en local: {}", order.getId());
+        // Total incluyendo envío
+        order.setTotal(order.getTotalWithDelivery());
+        Order savedOrder = orderRepository.save(order);
+
+        if (selectedOption != null) {
+            log.info("Envío configurado: {} (${}) para orden {}",
+                    selectedOption.getName(),
+                    selectedOption.getCost(),
+                    savedOrder.getId());
+        } else {
+            log.info("Orden configurada para retiro en local: {}", savedOrder.getId());
         }
 
-        // Recalcular total incluyendo envío
-        BigDecimal totalWithShipping = order.getTotalWithDelivery();
-        order.setTotal(totalWithShipping);
+        // 6️⃣ CREAR BOOKINGS PARA SERVICIOS
+        // Ordenados por servicio/fecha/hora: los locks de capacidad se toman siempre en el mismo
+        // orden y dos carritos con los mismos turnos no se bloquean en cruz
+        List<OrderItem> bookingItems = savedOrder.getItems().stream()
+                .filter(oi -> "SERVICE".equals(oi.getItemType()) && oi.getBookingDate() != null)
+                .sorted(Comparator.comparing((OrderItem oi) -> oi.getItem().getId())
+                        .thenComparing(OrderItem::getBookingDate)
+                        .thenComparing(OrderItem::getBookingTime))
+                .toList();
+
+        for (OrderItem orderItem : bookingItems) {
+            ServiceItem service = (ServiceItem) orderItem.getItem();
+            LocalTime endTime = orderItem.getBookingTime().plusMinutes(service.getDurationMinutes());
+
+            // 🔒 Todos los lugares del item entran o se rechaza la orden (rollback del stock)
+            bookingCapacityService.reserve(service, orderItem.getBookingDate(),
+                    orderItem.getBookingTime(), endTime, orderItem.getQuantity());
+
+            // Crear un booking por cada cantidad (se insertan en batch con saveAll)
+            List<Booking> seats = new ArrayList<>(orderItem.getQuantity());
+            for (int i = 0; i < orderItem.getQuantity(); i++) {
+                Booking booking = new Booking();
+                booking.setService(service);
+                booking.setOrder(savedOrder);
+                booking.setOrderItem(orderItem);
+                booking.setUser(user);
+                booking.setTenant(user.getTenant());
+                booking.setBookingDate(orderItem.getBookingDate());
+                booking.setStartTime(orderItem.getBookingTime());
+                booking.setEndTime(endTime);
+                booking.setStatus(Booking.BookingStatus.PENDING);
+                booking.setCustomerName(user.getName());
+                booking.setCustomerEmail(user.getEmail());
+                booking.setNotes(savedOrder.getNotes());
+                seats.add(booking);
+            }
+            bookingRepository.saveAll(seats);
+            logger.info("🗓️ {} bookings creados para orden: {} - Fecha: {} - Hora: {}",
+                    seats.size(), savedOrder.getId(), orderItem.getBookingDate(), orderItem.getBookingTime());
+        }
 
         logger.info("✅ Orden creada: {} - Total: ${}", savedOrder.getId(), total);
         return savedOrder;
@@ -244,21 +200,28 @@ public class OrderService {
     public void restoreStock(Order order) {
         logger.info("🔄 Restaurando stock para orden: {}", order.getId());
 
+        Map<String, Integer> quantities = new LinkedHashMap<>();
         for (OrderItem item : order.getItems()) {
             if ("PRODUCT".equals(item.getItemType())) {
-                Product product = productRepository.findById(item.getItem().getId())
-                        .orElse(null);
-
-                if (product != null && product.getType() == Product.ProductType.PHYSICAL) {
-                    int restoredStock = product.getStock() + item.getQuantity();
-                    product.setStock(restoredStock);
-                    productRepository.save(product);
-
-                    logger.info("↩️ Stock restaurado: {} - Nuevo stock: {}",
-                            product.getName(), restoredStock);
-                }
+                quantities.merge(item.getItem().getId(), item.getQuantity(), Integer::sum);
             }
         }
+
+        if (!quantities.isEmpty()) {
+            stockReservationService.release(quantities);
+        }
+    }
+
+    /**
+     * Cambiar estado de una orden (panel vendedor/admin). Solo transiciones legales.
+     */
+    @Transactional
+    public Order updateOrderStatus(String orderId, Order.OrderStatus newStatus) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        paymentStateMachine.moveOrderOrThrow(order, newStatus);
+        return orderRepository.save(order);
     }
 
     /**
@@ -277,11 +240,12 @@ public class OrderService {
             throw new RuntimeException("No se puede cancelar una orden en estado: " + order.getStatus());
         }
 
+        // Cambiar estado (máquina de estados + rollup) antes de devolver el stock
+        paymentStateMachine.moveOrderOrThrow(order, Order.OrderStatus.CANCELLED);
+
         // Restaurar stock
         restoreStock(order);
 
-        // Cambiar estado
-        order.setStatus(Order.OrderStatus.CANCELLED);
         if (reason != null && !reason.isEmpty()) {
             order.setNotes(order.getNotes() + " | CANCELACIÓN: " + reason);
         }
@@ -292,7 +256,48 @@ public class OrderService {
         return savedOrder;
     }
 
+    /**
+     * Dirección de entrega del usuario (de su tenant) y método de envío elegido
+     */
+    private Address findDeliveryAddress(CreateOrderRequest request, User user) {
+        // Validar que se haya enviado dirección
+        if (request.getDeliveryAddressId() == null || request.getDeliveryAddressId().isBlank()) {
+            throw new IllegalArgumentException("Se requiere una dirección para delivery");
+        }
+
+        // Validar que se haya seleccionado método de envío
+        if (request.getShippingMethodId() == null) {
+            throw new IllegalArgumentException("Se requiere seleccionar un método de envío");
+        }
+
+        return addressRepository.findByIdAndUserIdAndTenantId(
+                        request.getDeliveryAddressId(),
+                        user.getId(),
+                        user.getTenant().getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Dirección no encontrada"));
+    }
+
+    /**
+     * Cotiza el envío en MercadoEnvíos y valida el método seleccionado (llamada remota: sin locks tomados)
+     */
+    private ShippingOptionDTO quoteShipping(CreateOrderRequest request, User user, Address deliveryAddress,
+                                           BigDecimal itemsTotal) {
+        // Obtener CP del tenant (origen)
+        String zipCodeFrom = getTenantPostalCode(user.getTenant());
+        if (zipCodeFrom == null) {
+            throw new IllegalArgumentException("El negocio no tiene código postal configurado");
+        }
+
+        ShippingCalculationRequest shippingRequest = ShippingCalculationRequest.builder()
+                .zipCodeFrom(zipCodeFrom)
+                .zipCodeTo(deliveryAddress.getPostalCode())
+                .dimensions("20x20x10,1000") // TODO: Hacer configurable por tenant
+                .listCost(itemsTotal)
+                .freeShipping(false)
+                .build();
 
+        return mercadoEnviosService.findShippingOption(shippingRequest, request.getShippingMethodId());
+    }
 
     private String getTenantPostalCode(Tenant tenant) {
         try {
@@ -314,9 +319,10 @@ public class OrderService {
     // ========== ACTUALIZAR ESTADO DE ENVÍO (cuando se confirma el pago) ==========
 
     // En el método que confirma el pago (ej: después del webhook de MercadoPago)
+    @Transactional
     public void updateShippingStatus(Order order) {
         if (order.isDelivery() && order.getStatus().equals(Order.OrderStatus.PENDING)) {
-            order.setStatus(Order.OrderStatus.CONFIRMED);
+            paymentStateMachine.moveOrderOrThrow(order, Order.OrderStatus.CONFIRMED);
             orderRepository.save(order);
 
             // TODO: Crear shipment en MercadoEnvíos si se necesita tracking
@@ -326,16 +332,4 @@ public class OrderService {
             log.info("Estado de envío actualizado a ready_to_ship para orden {}", order.getId());
         }
     }
-
-    private Item findItem(String itemId) {
-        // Intentar buscar como producto
-        return productRepository.findById(itemId)
-                .map(p -> (Item) p)
-                .orElseGet(() ->
-                        // Si no es producto, buscar como servicio
-                        serviceRepository.findById(itemId)
-                                .map(s -> (Item) s)
-                                .orElse(null)
-                );
-    }
-}
\ No newline at end of file
+}
@@ -1,13 +1,15 @@
 package com.example.core.service;
 
 import com.example.core.dto.CreatePaymentRequest;
+import com.example.core.exception.BadRequestException;
+import com.example.core.http.OutboundHttp;
+import com.example.core.http.UpstreamClient;
 import com.example.core.model.*;
 import com.example.core.repository.BookingRepository;
+import com.example.core.repository.ItemRepository;
 import com.example.core.repository.OrderRepository;
 import com.example.core.repository.PaymentRepository;
-import com.mercadopago.MercadoPagoConfig;
 import com.mercadopago.client.preference.PreferenceBackUrlsRequest;
-import com.mercadopago.client.preference.PreferenceClient;
 import com.mercadopago.client.preference.PreferenceItemRequest;
 import com.mercadopago.client.preference.PreferenceRequest;
 import com.mercadopago.exceptions.MPApiException;
@@ -19,12 +21,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class PaymentService {
@@ -34,11 +38,11 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
     private final BookingRepository bookingRepository;
-    private final RestClient restClient;
+    private final ItemRepository itemRepository;
+    private final UpstreamClient mercadoPago;
     private final OrderService orderService;
-
-    @Value("${mercadopago.access-token}")
-    private String mercadoPagoAccessToken;
+    private final PaymentStateMachine paymentStateMachine;
+    private final MercadoPagoClients mercadoPagoClients;
 
     @Value("${mercadopago.webhook-url}")
     private String webhookUrl;
@@ -55,13 +59,19 @@ public class PaymentService {
     public PaymentService(PaymentRepository paymentRepository,
                           OrderRepository orderRepository,
                           BookingRepository bookingRepository,
-                          RestClient.Builder builder,
-                          OrderService orderService) {
+                          ItemRepository itemRepository,
+                          OutboundHttp outboundHttp,
+                          OrderService orderService,
+                          PaymentStateMachine paymentStateMachine,
+                          MercadoPagoClients mercadoPagoClients) {
         this.paymentRepository = paymentRepository;
         this.orderRepository = orderRepository;
         this.bookingRepository = bookingRepository;
-        this.restClient = builder.build();
+        this.itemRepository = itemRepository;
+        this.mercadoPago = outboundHttp.get("mercadopago");
         this.orderService = orderService;
+        this.paymentStateMachine = paymentStateMachine;
+        this.mercadoPagoClients = mercadoPagoClients;
     }
 
     // ======================================================
@@ -112,9 +122,13 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
+        // Solo mientras está pendiente de revisión (no pisar un pago ya aprobado/rechazado)
+        if (payment.getStatus() != Payment.PaymentStatus.PENDING) {
+            throw new BadRequestException("El pago ya está " + payment.getStatus());
+        }
+
         payment.setReceiptUrl(receiptUrl);
         payment.setReceiptNotes(notes);
-        payment.setStatus(Payment.PaymentStatus.PENDING); // Pendiente de revisión
 
         logger.info("✅ Comprobante guardado. URL: {}", receiptUrl);
         return paymentRepository.save(payment);
@@ -130,11 +144,14 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
-        payment.setStatus(Payment.PaymentStatus.APPROVED);
+        if (!paymentStateMachine.applyOrThrow(payment, Payment.PaymentStatus.APPROVED,
+                manualKey(paymentId, Payment.PaymentStatus.APPROVED), "manual")) {
+            return payment; // Ya estaba aprobado
+        }
         payment.setConfirmedAt(LocalDateTime.now());
 
         if (payment.getOrder() != null) {
-            payment.getOrder().setStatus(Order.OrderStatus.CONFIRMED);
+            paymentStateMachine.moveOrder(payment.getOrder(), Order.OrderStatus.CONFIRMED);
             orderRepository.save(payment.getOrder());
 
             // 🗓️ Confirmar bookings asociados
@@ -155,19 +172,16 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
-        payment.setStatus(Payment.PaymentStatus.REJECTED);
+        if (!paymentStateMachine.applyOrThrow(payment, Payment.PaymentStatus.REJECTED,
+                manualKey(paymentId, Payment.PaymentStatus.REJECTED), "manual")) {
+            return payment; // Ya estaba rechazado
+        }
         payment.setReceiptNotes(reason);
 
         // 🔄 Restaurar stock cuando se rechaza el pago
         if (payment.getOrder() != null) {
-            orderService.restoreStock(payment.getOrder());
-            payment.getOrder().setStatus(Order.OrderStatus.CANCELLED);
+            cancelOrder(payment.getOrder(), "Pago rechazado: " + reason);
             orderRepository.save(payment.getOrder());
-
-            // 🗓️ Cancelar bookings asociados
-            cancelOrderBookings(payment.getOrder(), "Pago rechazado: " + reason);
-
-            logger.info("↩️ Stock restaurado por rechazo de pago - orderId: {}", payment.getOrder().getId());
         }
 
         return paymentRepository.save(payment);
@@ -177,13 +191,26 @@ public class PaymentService {
     // ✅ MERCADO PAGO: Crear preferencia
     // ======================================================
     private Map<String, String> createMercadoPagoPreference(Order order) throws MPException, MPApiException {
-        MercadoPagoConfig.setAccessToken(mercadoPagoAccessToken);
+        // Precargar todos los items en una query (si no, cada getItem() lazy es un SELECT con JOINs)
+        // Un OrderItem puede no tener item (ej. borrado del catálogo): ese no se precarga
+        List<String> itemIds = order.getItems().stream()
+                .map(OrderItem::getItem)
+                .filter(Objects::nonNull)
+                .map(Item::getId)
+                .distinct()
+                .toList();
+        if (!itemIds.isEmpty()) {
+            itemRepository.findAllByIdInAndTenantId(itemIds, order.getTenant().getId());
+        }
 
         List<PreferenceItemRequest> itemsMP = order.getItems().stream()
                 .map(orderItem -> {
                     // 🛡️ Protección contra nulls y longitud excesiva
+                    BigDecimal unitPrice = orderItem.getItem() != null
+                            ? orderItem.getItem().getPrice()
+                            : orderItem.getPriceAtPurchase();
                     String title = orderItem.getItemName() + " x " + orderItem.getQuantity()
-                            + " $" + orderItem.getItem().getPrice();
+                            + " $" + unitPrice;
                     if (title.length() > 256) {
                         title = title.substring(0, 253) + "...";
                     }
@@ -223,10 +250,11 @@ public class PaymentService {
                 .backUrls(backUrls)
                 .autoReturn("approved")
                 .externalReference(String.valueOf(order.getId()))
-                .notificationUrl(webhookUrl)
+                .notificationUrl(notificationUrl(order.getTenant()))
                 .build();
 
-        Preference preference = new PreferenceClient().create(preferenceRequest);
+        // 🔑 Con el cliente (y el token) del tenant: no se toca la config global del SDK
+        Preference preference = mercadoPagoClients.forTenant(order.getTenant()).createPreference(preferenceRequest);
 
         Map<String, String> result = new HashMap<>();
         result.put("preferenceId", preference.getId());
@@ -246,112 +274,103 @@ public class PaymentService {
         Payment payment = paymentRepository.findByExternalId(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
-        payment.setExternalStatus(status);
-
-        switch (status) {
-            case "approved":
-                payment.setStatus(Payment.PaymentStatus.APPROVED);
-                payment.setConfirmedAt(LocalDateTime.now());
-                payment.getOrder().setStatus(Order.OrderStatus.CONFIRMED);
-                break;
-            case "rejected":
-            case "cancelled":
-                payment.setStatus(Payment.PaymentStatus.REJECTED);
-                break;
-            case "in_process":
-                payment.setStatus(Payment.PaymentStatus.PROCESSING);
-                break;
-            default:
-                payment.setStatus(Payment.PaymentStatus.PENDING);
-        }
+        applyMercadoPagoStatus(payment, payment.getOrder(), status, mercadoPagoKey(paymentId, status));
 
         paymentRepository.save(payment);
         orderRepository.save(payment.getOrder());
     }
 
     public Map<String, Object> getMercadoPagoPaymentDetails(String paymentId) {
-        logger.info("🔍 Consultando detalles del pago en Mercado Pago: {}", paymentId);
-
         try {
-            // 🔗 Endpoint oficial de MercadoPago
-            String url = "https://api.mercadopago.com/v1/payments/" + paymentId;
-
-            // 🧾 Realizar la solicitud con el Access Token
-            Map<String, Object> response = restClient.get()
-                    .uri(url)
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + mercadoPagoAccessToken)
-                    .retrieve()
-                    .body(Map.class);
-
-            if (response == null || response.isEmpty()) {
-                logger.warn("⚠️ Respuesta vacía desde Mercado Pago para paymentId={}", paymentId);
-                return Map.of();
-            }
-
-            // 🔍 Log opcional para debugging
-            logger.info("✅ Detalles de pago obtenidos: id={}, status={}, external_reference={}",
-                    response.get("id"), response.get("status"), response.get("external_reference"));
-
-            return response;
-
+            return fetchMercadoPagoPayment(paymentId);
         } catch (Exception e) {
             logger.error("❌ Error al consultar detalles de pago MP: {}", e.getMessage(), e);
             return Map.of("error", e.getMessage());
         }
     }
 
+    /**
+     * Detalles del pago en MP. A diferencia de getMercadoPagoPaymentDetails, los errores se
+     * propagan (el inbox de webhooks decide si reintentar).
+     */
+    public Map<String, Object> fetchMercadoPagoPayment(String paymentId) {
+        return fetchMercadoPagoPayment(paymentId, null);
+    }
+
+    /**
+     * Igual, con el access token del tenant dueño del pago (null = cuenta de la plataforma)
+     */
+    public Map<String, Object> fetchMercadoPagoPayment(String paymentId, String tenantId) {
+        logger.info("🔍 Consultando detalles del pago en Mercado Pago: {}", paymentId);
+        String accessToken = mercadoPagoClients.accessToken(tenantId);
+
+        // 🧾 GET /v1/payments/{id} con el Access Token (lectura: se reintenta si MP falla)
+        Map<String, Object> response = mercadoPago.callIdempotent(client -> client.get()
+                .uri("/v1/payments/{id}", paymentId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .retrieve()
+                .body(Map.class));
+
+        if (response == null || response.isEmpty()) {
+            logger.warn("⚠️ Respuesta vacía desde Mercado Pago para paymentId={}", paymentId);
+            return Map.of();
+        }
+
+        // 🔍 Log opcional para debugging
+        logger.info("✅ Detalles de pago obtenidos: id={}, status={}, external_reference={}",
+                response.get("id"), response.get("status"), response.get("external_reference"));
+
+        return response;
+    }
+
 
     @Transactional
     public void processMercadoPagoWebhookExternalRef(String externalReference, String status) {
+        processMercadoPagoWebhookExternalRef(externalReference, status, mercadoPagoKey(externalReference, status));
+    }
+
+    /**
+     * Aplica el estado informado por MP al pago de la orden (external_reference = orderId).
+     * idempotencyKey identifica la notificación (ej. "mp:<paymentIdMP>:approved"): reintentos y
+     * entregas duplicadas o paralelas de la misma notificación se aplican una sola vez.
+     */
+    @Transactional
+    public void processMercadoPagoWebhookExternalRef(String externalReference, String status, String idempotencyKey) {
+        processMercadoPagoWebhookExternalRef(externalReference, status, idempotencyKey, null);
+    }
+
+    /**
+     * fetchedWithTenantId: tenant cuyas credenciales se usaron para leer el pago en MP
+     * (null = cuenta de la plataforma). El external_reference lo elige quien crea el pago: solo
+     * se acepta si la orden cobra con esa misma cuenta de MP, si no cualquier tenant con cuenta
+     * propia podría confirmar órdenes de otro.
+     */
+    @Transactional
+    public void processMercadoPagoWebhookExternalRef(String externalReference, String status, String idempotencyKey,
+                                                     String fetchedWithTenantId) {
         logger.info("🔔 Procesando webhook MP por external_reference={} status={}", externalReference, status);
 
         // 1️⃣ Buscar la orden local por externalReference
         Order order = orderRepository.findById(externalReference)
                 .orElseThrow(() -> new RuntimeException("Order not found by external_reference: " + externalReference));
 
+        // 🔐 El pago tiene que venir de la cuenta de MP con la que cobra el tenant de la orden
+        String paidTo = mercadoPagoClients.accountOwner(fetchedWithTenantId);
+        String billedTo = mercadoPagoClients.accountOwner(order.getTenant());
+        if (!Objects.equals(paidTo, billedTo)) {
+            logger.warn("🚫 Pago MP de la cuenta {} apunta a la orden {} de la cuenta {}: se ignora",
+                    paidTo != null ? paidTo : "plataforma", order.getId(), billedTo != null ? billedTo : "plataforma");
+            throw new BadRequestException("El pago de MercadoPago no pertenece al tenant de la orden");
+        }
+
         // 2️⃣ Buscar el pago local asociado a la orden
         Payment payment = paymentRepository.findByOrder(order)
                 .orElseThrow(() -> new RuntimeException("Payment not found for order: " + order.getId()));
 
-        // 3️⃣ Evitar reprocesar un estado idéntico (MP puede mandar el mismo webhook varias veces)
-        if (payment.getExternalStatus() != null && payment.getExternalStatus().equalsIgnoreCase(status)) {
-            logger.warn("⚠️ Webhook duplicado ignorado para orderId={}, status={}", order.getId(), status);
-            return;
-        }
-
-        // 4️⃣ Actualizar el estado recibido
-        payment.setExternalStatus(status);
+        // 3️⃣ Transición + efectos (una sola vez por key; @Version corta carreras entre keys distintas)
+        applyMercadoPagoStatus(payment, order, status, idempotencyKey);
 
-        switch (status) {
-            case "approved":
-                payment.setStatus(Payment.PaymentStatus.APPROVED);
-                payment.setConfirmedAt(LocalDateTime.now());
-                order.setStatus(Order.OrderStatus.CONFIRMED);
-                // 🗓️ Confirmar bookings asociados
-                confirmOrderBookings(order);
-                break;
-
-            case "rejected":
-            case "cancelled":
-                payment.setStatus(Payment.PaymentStatus.REJECTED);
-                order.setStatus(Order.OrderStatus.CANCELLED);
-                // 🔄 Restaurar stock cuando MercadoPago rechaza/cancela el pago
-                orderService.restoreStock(order);
-                // 🗓️ Cancelar bookings asociados
-                cancelOrderBookings(order, "Pago rechazado por MercadoPago");
-                logger.info("↩️ Stock restaurado por webhook MP - orderId: {}", order.getId());
-                break;
-
-            case "in_process":
-                payment.setStatus(Payment.PaymentStatus.PROCESSING);
-                break;
-
-            default:
-                logger.warn("⚠️ Estado desconocido recibido desde MP: {}", status);
-                payment.setStatus(Payment.PaymentStatus.PENDING);
-        }
-
-        // 5️⃣ Guardar cambios
+        // 4️⃣ Guardar cambios
         paymentRepository.save(payment);
         orderRepository.save(order);
 
@@ -366,16 +385,14 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
-        payment.setStatus(Payment.PaymentStatus.CANCELLED);
+        if (!paymentStateMachine.applyOrThrow(payment, Payment.PaymentStatus.CANCELLED,
+                manualKey(paymentId, Payment.PaymentStatus.CANCELLED), "manual")) {
+            return; // Ya estaba cancelado
+        }
         payment.setReceiptNotes(reason);
 
-        // Restaurar stock
-        orderService.restoreStock(payment.getOrder());
-
-        // 🗓️ Cancelar bookings asociados
-        cancelOrderBookings(payment.getOrder(), reason);
-
-        payment.getOrder().setStatus(Order.OrderStatus.CANCELLED);
+        // Restaurar stock y cancelar bookings (solo si la orden no estaba ya cancelada)
+        cancelOrder(payment.getOrder(), reason);
 
         paymentRepository.save(payment);
         orderRepository.save(payment.getOrder());
@@ -383,43 +400,114 @@ public class PaymentService {
         logger.info("✅ Pago cancelado, stock restaurado y bookings cancelados");
     }
 
+    // ======================================================
+    // 🔀 TRANSICIONES
+    // ======================================================
+
+    /**
+     * Traduce el estado de MP y aplica la transición con sus efectos sobre orden, stock y bookings
+     */
+    private void applyMercadoPagoStatus(Payment payment, Order order, String status, String idempotencyKey) {
+        Payment.PaymentStatus target = fromMercadoPago(status);
+        if (target == null) {
+            logger.warn("⚠️ Estado desconocido recibido desde MP: {}", status);
+            payment.setExternalStatus(status);
+            return;
+        }
+
+        PaymentStateMachine.Result result = paymentStateMachine.apply(payment, target, idempotencyKey, "mercadopago");
+        if (result == PaymentStateMachine.Result.DUPLICATE) {
+            return; // Otra entrega ya la aplicó: no tocar el pago (la copia puede estar vieja)
+        }
+        // Último estado informado por MP, aunque la transición no aplique (queda para revisión)
+        payment.setExternalStatus(status);
+        if (result != PaymentStateMachine.Result.APPLIED) {
+            return;
+        }
+
+        switch (target) {
+            case APPROVED -> {
+                payment.setConfirmedAt(LocalDateTime.now());
+                paymentStateMachine.moveOrder(order, Order.OrderStatus.CONFIRMED);
+                // 🗓️ Confirmar bookings asociados
+                confirmOrderBookings(order);
+            }
+            // 🔄 Restaurar stock cuando MercadoPago rechaza/cancela el pago
+            case REJECTED -> cancelOrder(order, "Pago rechazado por MercadoPago");
+            case REFUNDED -> logger.warn("💸 Pago reembolsado por MP - orderId: {} (revisar la orden)", order.getId());
+            default -> {
+                // PROCESSING: solo cambia el pago
+            }
+        }
+    }
+
+    /**
+     * Cancela la orden y devuelve stock/bookings. Si la orden ya estaba cancelada (u otro
+     * camino ya lo hizo) no hace nada: el stock nunca se restaura dos veces.
+     */
+    private void cancelOrder(Order order, String reason) {
+        if (!paymentStateMachine.moveOrder(order, Order.OrderStatus.CANCELLED)) {
+            return;
+        }
+        orderService.restoreStock(order);
+        // 🗓️ Cancelar bookings asociados
+        cancelOrderBookings(order, reason);
+        logger.info("↩️ Stock restaurado - orderId: {}", order.getId());
+    }
+
+    private static Payment.PaymentStatus fromMercadoPago(String status) {
+        if (status == null) {
+            return null;
+        }
+        return switch (status) {
+            case "approved" -> Payment.PaymentStatus.APPROVED;
+            case "rejected", "cancelled" -> Payment.PaymentStatus.REJECTED;
+            case "in_process", "in_mediation", "authorized" -> Payment.PaymentStatus.PROCESSING;
+            case "pending" -> Payment.PaymentStatus.PENDING;
+            case "refunded", "charged_back" -> Payment.PaymentStatus.REFUNDED;
+            default -> null;
+        };
+    }
+
+    private static String mercadoPagoKey(String reference, String status) {
+        return "mp:" + reference + ":" + status;
+    }
+
+    private static String manualKey(String paymentId, Payment.PaymentStatus target) {
+        return "manual:" + paymentId + ":" + target;
+    }
+
+    /**
+     * URL del webhook con el tenant: al llegar la notificación, el pago se consulta en MP
+     * con la misma cuenta que creó la preferencia.
+     */
+    private String notificationUrl(Tenant tenant) {
+        return UriComponentsBuilder.fromUriString(webhookUrl)
+                .queryParam("tenant", tenant.getId())
+                .toUriString();
+    }
+
     // ======================================================
     // 🗓️ MÉTODOS AUXILIARES PARA BOOKINGS
     // ======================================================
 
     /**
-     * Confirmar todos los bookings de una orden
+     * Confirmar todos los bookings de una orden (un UPDATE, sin importar cuántos lugares tenga)
      */
     private void confirmOrderBookings(Order order) {
-        List<Booking> bookings = bookingRepository.findByOrder(order);
-
-        for (Booking booking : bookings) {
-            if (booking.getStatus() == Booking.BookingStatus.PENDING) {
-                booking.setStatus(Booking.BookingStatus.CONFIRMED);
-                bookingRepository.save(booking);
-                logger.info("✅ Booking confirmado: {} - Fecha: {} - Hora: {}",
-                        booking.getId(), booking.getBookingDate(), booking.getStartTime());
-            }
+        int confirmed = bookingRepository.confirmPendingByOrder(order.getId());
+        if (confirmed > 0) {
+            logger.info("✅ {} bookings confirmados - orderId: {}", confirmed, order.getId());
         }
     }
 
     /**
-     * Cancelar todos los bookings de una orden
+     * Cancelar todos los bookings de una orden (un UPDATE)
      */
     private void cancelOrderBookings(Order order, String reason) {
-        List<Booking> bookings = bookingRepository.findByOrder(order);
-
-        for (Booking booking : bookings) {
-            if (booking.getStatus() == Booking.BookingStatus.PENDING ||
-                booking.getStatus() == Booking.BookingStatus.CONFIRMED) {
-                booking.setStatus(Booking.BookingStatus.CANCELLED);
-                if (reason != null) {
-                    booking.setNotes(booking.getNotes() + " | " + reason);
-                }
-                bookingRepository.save(booking);
-                logger.info("🚫 Booking cancelado: {} - Fecha: {} - Hora: {}",
-                        booking.getId(), booking.getBookingDate(), booking.getStartTime());
-            }
+        int cancelled = bookingRepository.cancelActiveByOrder(order.getId(), reason);
+        if (cancelled > 0) {
+            logger.info("🚫 {} bookings cancelados - orderId: {}", cancelled, order.getId());
         }
     }
 }
@@ -0,0 +1,108 @@
+package com.example.core.service;
+
+import com.example.core.exception.BadRequestException;
+import com.example.core.model.Order;
+import com.example.core.model.Payment;
+import com.example.core.repository.PaymentTransitionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Máquina de estados de pagos y órdenes.
+ *
+ * Cada transición de un pago:
+ * 1. tiene que ser legal según Payment.PaymentStatus (los estados finales no se mueven),
+ * 2. reserva su idempotency key en payment_transitions (si ya estaba, no se aplica de nuevo),
+ * 3. se guarda con @Version: si otra transacción cambió el pago o la orden en el medio,
+ *    el commit falla con un error de concurrencia y quien llamó reintenta sobre el estado nuevo.
+ * No hay lock global: solo esperan entre sí las entregas con la misma key.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentStateMachine {
+
+    private final PaymentTransitionRepository transitionRepository;
+    private final DailySalesRollupService dailySalesRollupService;
+
+    public enum Result {
+        APPLIED,    // Se aplicó: el llamador ejecuta los efectos (stock, bookings...)
+        DUPLICATE,  // La key ya se había usado: otra entrega ya la aplicó, no tocar nada
+        SKIPPED     // Ya estaba en ese estado o la transición es ilegal
+    }
+
+    /**
+     * Aplica la transición si es legal y la key no se usó
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Result apply(Payment payment, Payment.PaymentStatus target, String idempotencyKey, String source) {
+        Payment.PaymentStatus current = payment.getStatus();
+        if (current == target) {
+            log.info("ℹ️ Pago {} ya está en {}, sin cambios (key={})", payment.getId(), target, idempotencyKey);
+            return Result.SKIPPED;
+        }
+        if (!current.canTransitionTo(target)) {
+            log.warn("⚠️ Transición ilegal ignorada para pago {}: {} → {} (key={})",
+                    payment.getId(), current, target, idempotencyKey);
+            return Result.SKIPPED;
+        }
+
+        int claimed = transitionRepository.claim(UUID.randomUUID().toString(), payment.getId(), idempotencyKey,
+                current.name(), target.name(), source, LocalDateTime.now());
+        if (claimed == 0) {
+            log.warn("⚠️ Transición duplicada ignorada para pago {} (key={})", payment.getId(), idempotencyKey);
+            return Result.DUPLICATE;
+        }
+
+        payment.setStatus(target);
+        log.info("🔀 Pago {}: {} → {} ({})", payment.getId(), current, target, source);
+        return Result.APPLIED;
+    }
+
+    /**
+     * Igual que apply() pero para acciones de un usuario: una transición ilegal es un error.
+     * true = se aplicó.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean applyOrThrow(Payment payment, Payment.PaymentStatus target, String idempotencyKey, String source) {
+        if (payment.getStatus() != target && !payment.getStatus().canTransitionTo(target)) {
+            throw new BadRequestException("No se puede pasar un pago " + payment.getStatus() + " a " + target);
+        }
+        return apply(payment, target, idempotencyKey, source) == Result.APPLIED;
+    }
+
+    /**
+     * Mueve la orden si la transición es legal (pasando por el rollup de ventas).
+     * true = cambió de estado.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean moveOrder(Order order, Order.OrderStatus target) {
+        Order.OrderStatus current = order.getStatus();
+        if (current == target) {
+            return false;
+        }
+        if (!current.canTransitionTo(target)) {
+            log.warn("⚠️ Transición ilegal ignorada para orden {}: {} → {}", order.getId(), current, target);
+            return false;
+        }
+        dailySalesRollupService.changeStatus(order, target);
+        return true;
+    }
+
+    /**
+     * Igual que moveOrder() pero una transición ilegal es un error (panel vendedor/admin)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean moveOrderOrThrow(Order order, Order.OrderStatus target) {
+        if (order.getStatus() != target && !order.getStatus().canTransitionTo(target)) {
+            throw new BadRequestException("No se puede pasar una orden " + order.getStatus() + " a " + target);
+        }
+        return moveOrder(order, target);
+    }
+}
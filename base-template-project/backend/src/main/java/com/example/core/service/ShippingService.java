@@ -9,12 +9,9 @@ import com.example.core.exception.BadRequestException;
 import com.example.core.repository.AddressRepository;
 import com.example.core.repository.TenantRepository;
 import com.example.core.context.TenantContext;
-import com.mercadopago.MercadoPagoConfig;
-import com.mercadopago.client.merchantorder.MerchantOrderClient;
 import com.mercadopago.resources.merchantorder.MerchantOrderShippingOption;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -32,9 +29,6 @@ public class ShippingService {
     private final AddressRepository addressRepository;
     private final TenantRepository tenantRepository;
 
-    @Value("${mercadopago.access-token}")
-    private String mercadoPagoAccessToken;
-
     // Dimensiones y peso por defecto (paquete estándar e-commerce)
     private static final int DEFAULT_WIDTH = 30;   // cm
     private static final int DEFAULT_HEIGHT = 20;  // cm
@@ -116,9 +110,6 @@ public class ShippingService {
                                                     BigDecimal orderTotal,
                                                     ShippingQuoteRequest request) {
         try {
-            // Configurar el SDK de MercadoPago
-            MercadoPagoConfig.setAccessToken(mercadoPagoAccessToken);
-
             // Usar dimensiones del request o defaults
             int width = (request != null && request.getWidth() != null) ? request.getWidth() : DEFAULT_WIDTH;
             int height = (request != null && request.getHeight() != null) ? request.getHeight() : DEFAULT_HEIGHT;
@@ -152,8 +143,7 @@ public class ShippingService {
 
             // Llamar a la API para obtener opciones de envío
             // Nota: El SDK de ML no tiene método directo para /shipments/options
-            // Usamos MerchantOrderClient como alternativa
-            MerchantOrderClient merchantOrderClient = new MerchantOrderClient();
+            // (la cotización real está en MercadoEnviosService)
 
             // TODO: Implementar llamada correcta según documentación de ML
             // Por ahora, construir respuesta con opciones default
@@ -0,0 +1,165 @@
+package com.example.core.service;
+
+import com.example.core.exception.BadRequestException;
+import com.example.core.model.Item;
+import com.example.core.model.Product;
+import com.example.core.repository.ItemRepository;
+import com.example.core.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Carga de items y reserva de stock para el checkout.
+ *
+ * - Todos los items de un carrito se cargan con una sola query polimórfica filtrada por tenant,
+ *   sin importar el tamaño del carrito ni la mezcla de productos y servicios.
+ * - El stock se descuenta con un UPDATE condicional atómico (stock >= cantidad), así dos
+ *   checkouts concurrentes nunca venden más de lo que hay. Los productos se procesan
+ *   ordenados por ID para que dos carritos no se bloqueen en orden cruzado (deadlock).
+ * - Si algún producto no alcanza se lanza excepción y la transacción del llamador hace rollback
+ *   de lo ya descontado.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private final ItemRepository itemRepository;
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final CatalogCache catalogCache;
+
+    public StockReservationService(ItemRepository itemRepository,
+                                   ProductRepository productRepository,
+                                   EntityManager entityManager,
+                                   CatalogCache catalogCache) {
+        this.itemRepository = itemRepository;
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.catalogCache = catalogCache;
+    }
+
+    /**
+     * Carga todos los items pedidos (productos o servicios) del tenant, indexados por ID.
+     * Lanza excepción si alguno no existe o es de otro tenant.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Item> loadItems(Collection<String> itemIds, String tenantId) {
+        Set<String> pending = new LinkedHashSet<>(itemIds);
+        Map<String, Item> items = new HashMap<>();
+
+        itemRepository.findAllByIdInAndTenantId(pending, tenantId).forEach(i -> items.put(i.getId(), i));
+        pending.removeAll(items.keySet());
+
+        if (!pending.isEmpty()) {
+            throw new RuntimeException("Item not found: " + pending.iterator().next());
+        }
+        return items;
+    }
+
+    /**
+     * Descuenta stock de los productos físicos pedidos (itemId → cantidad total).
+     * Debe llamarse dentro de la transacción del checkout.
+     */
+    @Transactional
+    public void reserve(Map<String, Item> items, Map<String, Integer> quantities) {
+        SortedMap<String, Integer> physical = physicalProducts(items, quantities);
+
+        // 1️⃣ Fail fast con el stock ya cargado (evita UPDATEs si el carrito no puede salir)
+        physical.forEach((id, quantity) -> {
+            Product product = (Product) items.get(id);
+            if (product.getStock() < quantity) {
+                throw insufficientStock(product, product.getStock(), quantity);
+            }
+        });
+
+        // 2️⃣ Descuento atómico: la base tiene la última palabra
+        for (Map.Entry<String, Integer> entry : physical.entrySet()) {
+            Product product = (Product) items.get(entry.getKey());
+            Integer remaining = productRepository.decrementStock(entry.getKey(), entry.getValue());
+
+            if (remaining == null) {
+                throw insufficientStock(product, null, entry.getValue());
+            }
+
+            syncStock(product, remaining);
+            log.info("📦 Stock reservado: {} - Stock restante: {}", product.getName(), remaining);
+        }
+
+        invalidateCatalogs(items, physical.keySet());
+    }
+
+    /**
+     * Devuelve stock de los productos físicos (cancelaciones, pagos rechazados).
+     */
+    @Transactional
+    public void release(Map<String, Integer> quantities) {
+        Map<String, Item> items = new HashMap<>();
+        productRepository.findAllById(quantities.keySet()).forEach(p -> items.put(p.getId(), p));
+
+        SortedMap<String, Integer> physical = physicalProducts(items, quantities);
+        for (Map.Entry<String, Integer> entry : physical.entrySet()) {
+            Product product = (Product) items.get(entry.getKey());
+            Integer restored = productRepository.incrementStock(entry.getKey(), entry.getValue());
+
+            if (restored != null) {
+                syncStock(product, restored);
+                log.info("↩️ Stock restaurado: {} - Nuevo stock: {}", product.getName(), restored);
+            }
+        }
+
+        invalidateCatalogs(items, physical.keySet());
+    }
+
+    // ========== HELPERS ==========
+
+    private SortedMap<String, Integer> physicalProducts(Map<String, Item> items, Map<String, Integer> quantities) {
+        SortedMap<String, Integer> physical = new TreeMap<>();
+        quantities.forEach((id, quantity) -> {
+            if (quantity == null || quantity <= 0) {
+                throw new BadRequestException("Cantidad inválida para el item: " + id);
+            }
+            Item item = items.get(id);
+            if (item instanceof Product product && product.getType() == Product.ProductType.PHYSICAL) {
+                physical.merge(id, quantity, Integer::sum);
+            }
+        });
+        return physical;
+    }
+
+    private void invalidateCatalogs(Map<String, Item> items, Collection<String> changedIds) {
+        changedIds.stream()
+                .map(id -> items.get(id).getTenant().getId())
+                .distinct()
+                .forEach(catalogCache::invalidate);
+    }
+
+    /**
+     * Refleja el stock devuelto por el UPDATE en la entidad ya cargada sin marcarla dirty
+     * (si no, el flush escribiría de nuevo la columna con un UPDATE extra).
+     */
+    private void syncStock(Product product, int stock) {
+        Session session = entityManager.unwrap(Session.class);
+        if (!session.contains(product)) {
+            product.setStock(stock);
+            return;
+        }
+        session.setReadOnly(product, true);
+        product.setStock(stock);
+        session.setReadOnly(product, false);
+    }
+
+    private RuntimeException insufficientStock(Product product, Integer available, int requested) {
+        if (available == null) {
+            return new RuntimeException(String.format(
+                    "Stock insuficiente para '%s'. Solicitado: %d", product.getName(), requested));
+        }
+        return new RuntimeException(String.format(
+                "Stock insuficiente para '%s'. Disponible: %d, Solicitado: %d",
+                product.getName(), available, requested));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.core.service;
+
+import com.example.core.dto.TenantDTO;
+import com.example.core.model.Tenant;
+import com.example.core.repository.TenantRepository;
+import com.example.core.util.ETags;
+import com.example.core.util.TtlCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resuelve subdomain → Tenant con un cache en memoria (TTL + cacheo negativo).
+ *
+ * Lo usa TenantInterceptor en cada request /api/**, así evitamos ir a Postgres
+ * solo para traducir el subdomain a un ID. Cualquier cambio sobre un tenant
+ * (alta, edición, suspensión, features, baja) debe llamar a invalidate().
+ * En despliegues con varias instancias el TTL acota cuánto puede quedar desactualizado.
+ * También guarda la config pública ya armada (y su ETag) para servir /api/config/current sin queries.
+ */
+@Service
+@Slf4j
+public class TenantResolver {
+
+    public static final String DEFAULT_SUBDOMAIN = "default";
+
+    private final TenantRepository tenantRepository;
+    private final ObjectMapper objectMapper;
+    private final TtlCache<String, ResolvedTenant> cache;
+
+    public TenantResolver(TenantRepository tenantRepository,
+                          ObjectMapper objectMapper,
+                          @Value("${app.tenant-cache.max-size:1000}") int maxSize,
+                          @Value("${app.tenant-cache.ttl-seconds:60}") long ttlSeconds,
+                          @Value("${app.tenant-cache.negative-ttl-seconds:10}") long negativeTtlSeconds) {
+        this.tenantRepository = tenantRepository;
+        this.objectMapper = objectMapper;
+        this.cache = new TtlCache<>("tenants", maxSize,
+                Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds));
+    }
+
+    /**
+     * Busca un tenant por subdomain (cacheado, incluyendo los "no existe")
+     */
+    public Optional<ResolvedTenant> findBySubdomain(String subdomain) {
+        if (subdomain == null || subdomain.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.get(subdomain, this::load));
+    }
+
+    /**
+     * Busca el tenant del subdomain y, si no existe, el tenant por defecto.
+     * El fallback solo se consulta cuando el primero no existe.
+     */
+    public ResolvedTenant resolve(String subdomain) {
+        return findBySubdomain(subdomain)
+                .or(() -> findBySubdomain(DEFAULT_SUBDOMAIN))
+                .orElseThrow(() -> new RuntimeException("No tenant found"));
+    }
+
+    public void invalidate(String subdomain) {
+        cache.invalidate(subdomain);
+        log.debug("Cache de tenants invalidado para subdomain: {}", subdomain);
+    }
+
+    public void invalidate(Tenant tenant) {
+        if (tenant != null) {
+            invalidate(tenant.getSubdomain());
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    private ResolvedTenant load(String subdomain) {
+        return tenantRepository.findBySubdomain(subdomain)
+                .map(this::toResolved)
+                .orElse(null);
+    }
+
+    private ResolvedTenant toResolved(Tenant tenant) {
+        TenantDTO publicConfig = toPublicConfig(tenant);
+        return new ResolvedTenant(tenant.getId(), tenant.getSubdomain(),
+                tenant.getBusinessName(), tenant.isActive(),
+                publicConfig, ETags.of(objectMapper, publicConfig));
+    }
+
+    private TenantDTO toPublicConfig(Tenant tenant) {
+        TenantDTO dto = new TenantDTO();
+        dto.setId(tenant.getId());
+        dto.setSubdomain(tenant.getSubdomain());
+        dto.setBusinessName(tenant.getBusinessName());
+        dto.setType(tenant.getType().name());
+        dto.setConfig(tenant.getConfig() != null ? tenant.getConfig().withoutSecrets() : null);
+        return dto;
+    }
+
+    /**
+     * Datos del tenant que se necesitan por request. Se comparte entre threads:
+     * publicConfig es solo lectura (se serializa tal cual), no modificarlo.
+     */
+    @lombok.Value
+    public static class ResolvedTenant {
+        String id;
+        String subdomain;
+        String businessName;
+        boolean active;
+        TenantDTO publicConfig;
+        String configEtag;
+    }
+}
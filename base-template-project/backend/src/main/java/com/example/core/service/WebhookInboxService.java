@@ -0,0 +1,334 @@
+package com.example.core.service;
+
+import com.example.core.exception.BadRequestException;
+import com.example.core.http.UpstreamUnavailableException;
+import com.example.core.model.WebhookEvent;
+import com.example.core.repository.WebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Inbox durable de webhooks de MercadoPago.
+ *
+ * El controller solo guarda la notificación (una fila por pago de MP) y responde 200; así una
+ * ráfaga de webhooks no deja threads del servidor esperando a api.mercadopago.com.
+ * Un pool acotado de workers toma los eventos de la tabla (SKIP LOCKED), consulta el pago en MP
+ * y aplica el cambio de estado. Errores transitorios (red, MP caído, locks) se reintentan con
+ * backoff; el resto queda FAILED para revisarlo a mano.
+ */
+@Service
+@Slf4j
+public class WebhookInboxService {
+
+    public static final String MERCADO_PAGO = "mercadopago";
+
+    private static final List<WebhookEvent.Status> OPEN_STATUSES =
+            List.of(WebhookEvent.Status.PENDING, WebhookEvent.Status.PROCESSING);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final PaymentService paymentService;
+    private final boolean enabled;
+    private final int workerCount;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration staleAfter;
+
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService dispatcher;
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    // ========== MÉTRICAS ==========
+    private final LongAdder received = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder lagTotalMs = new LongAdder();
+    private final LongAccumulator lagMaxMs = new LongAccumulator(Math::max, 0);
+
+    public WebhookInboxService(WebhookEventRepository webhookEventRepository,
+                               PaymentService paymentService,
+                               @Value("${app.webhook-inbox.enabled:true}") boolean enabled,
+                               @Value("${app.webhook-inbox.workers:4}") int workerCount,
+                               @Value("${app.webhook-inbox.max-attempts:8}") int maxAttempts,
+                               @Value("${app.webhook-inbox.initial-backoff-seconds:5}") long initialBackoffSeconds,
+                               @Value("${app.webhook-inbox.max-backoff-seconds:600}") long maxBackoffSeconds,
+                               @Value("${app.webhook-inbox.stale-after-seconds:300}") long staleAfterSeconds) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentService = paymentService;
+        this.enabled = enabled;
+        this.workerCount = workerCount;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+        this.staleAfter = Duration.ofSeconds(staleAfterSeconds);
+
+        // Nunca se toman más eventos que workers libres, así que la cola no se llena
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerCount), namedThreads("webhook-inbox-"));
+        this.dispatcher = Executors.newSingleThreadExecutor(namedThreads("webhook-inbox-dispatch-"));
+    }
+
+    // ========== ENCOLAR ==========
+
+    /**
+     * Guarda la notificación de un pago de MP y despierta a los workers.
+     * Si falla (base caída) la excepción sube: el controller responde 5xx y MP reintenta.
+     */
+    public void enqueueMercadoPagoPayment(String paymentId, String payload) {
+        enqueueMercadoPagoPayment(paymentId, null, payload);
+    }
+
+    /**
+     * tenantId: tenant cuya cuenta de MP creó el pago (null = cuenta de la plataforma).
+     * Un pago ya encolado con otro tenant se rechaza: la fila conserva el de la primera notificación.
+     */
+    public void enqueueMercadoPagoPayment(String paymentId, String tenantId, String payload) {
+        Integer notifications = webhookEventRepository.enqueue(UUID.randomUUID().toString(),
+                MERCADO_PAGO, paymentId, tenantId, payload, LocalDateTime.now());
+        if (notifications == null) {
+            log.warn("🚫 Webhook MP para pago {} con tenant {} distinto al ya encolado, se rechaza", paymentId, tenantId);
+            throw new BadRequestException("El pago ya fue notificado para otro tenant");
+        }
+        received.increment();
+        if (notifications > 1) {
+            merged.increment();
+            log.info("📥 Webhook MP para pago {} unificado con el existente ({} notificaciones)",
+                    paymentId, notifications);
+        } else {
+            log.info("📥 Webhook MP encolado para pago {}", paymentId);
+        }
+        wakeUp();
+    }
+
+    // ========== WORKERS ==========
+
+    /**
+     * Polling de respaldo: reintentos programados, eventos de otras instancias y los que
+     * quedaron colgados en PROCESSING.
+     */
+    @Scheduled(fixedDelayString = "${app.webhook-inbox.poll-interval-ms:1000}")
+    public void poll() {
+        dispatch();
+    }
+
+    /**
+     * Toma tantos eventos como workers libres haya y los reparte
+     */
+    synchronized void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        int free = workerCount - busyWorkers.get();
+        if (free <= 0) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<WebhookEvent> claimed;
+        try {
+            claimed = webhookEventRepository.claim(free, now, now.minus(staleAfter));
+        } catch (RuntimeException e) {
+            log.error("❌ No se pudo leer el inbox de webhooks: {}", e.getMessage());
+            return;
+        }
+
+        for (WebhookEvent event : claimed) {
+            busyWorkers.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    process(event);
+                } finally {
+                    busyWorkers.decrementAndGet();
+                    wakeUp(); // Se liberó un worker: puede haber más esperando
+                }
+            });
+        }
+    }
+
+    public int retryFailed() {
+        int count = webhookEventRepository.retryFailed(LocalDateTime.now());
+        log.info("🔁 {} webhooks FAILED vueltos a encolar", count);
+        wakeUp();
+        return count;
+    }
+
+    public Map<String, Object> stats() {
+        long pending = webhookEventRepository.countByStatus(WebhookEvent.Status.PENDING);
+        long processing = webhookEventRepository.countByStatus(WebhookEvent.Status.PROCESSING);
+        LocalDateTime oldest = webhookEventRepository.findOldestReceivedAt(OPEN_STATUSES);
+        long done = processed.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queueDepth", pending + processing);
+        stats.put("pending", pending);
+        stats.put("processing", processing);
+        stats.put("failedTotal", webhookEventRepository.countByStatus(WebhookEvent.Status.FAILED));
+        stats.put("oldestPendingAgeSeconds", oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toSeconds());
+        stats.put("workers", workerCount);
+        stats.put("busyWorkers", busyWorkers.get());
+        stats.put("received", received.sum());
+        stats.put("merged", merged.sum());
+        stats.put("processed", done);
+        stats.put("retried", retried.sum());
+        stats.put("failed", failed.sum());
+        stats.put("meanLagMs", done == 0 ? 0 : lagTotalMs.sum() / done);
+        stats.put("maxLagMs", lagMaxMs.get());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        workers.shutdown();
+        // Lo que no termine queda PROCESSING y se retoma cuando venza staleAfter
+    }
+
+    // ========== HELPERS ==========
+
+    private void wakeUp() {
+        if (enabled && wakeUpPending.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> {
+                    wakeUpPending.set(false);
+                    dispatch();
+                });
+            } catch (RejectedExecutionException e) {
+                wakeUpPending.set(false); // Apagando
+            }
+        }
+    }
+
+    private void process(WebhookEvent event) {
+        String paymentId = event.getExternalId();
+        try {
+            Map<String, Object> paymentData = paymentService.fetchMercadoPagoPayment(paymentId, event.getTenantId());
+            if (paymentData.isEmpty()) {
+                retryOrFail(event, "Respuesta vacía de MercadoPago");
+                return;
+            }
+
+            String status = (String) paymentData.getOrDefault("status", "unknown");
+            String externalRef = (String) paymentData.get("external_reference");
+            String note = null;
+
+            if (externalRef != null && !externalRef.isEmpty()) {
+                paymentService.processMercadoPagoWebhookExternalRef(externalRef, status,
+                        "mp:" + paymentId + ":" + status, event.getTenantId());
+            } else {
+                log.warn("⚠️ No se encontró external_reference en el pago ID={}", paymentId);
+                note = "Pago sin external_reference";
+            }
+
+            if (webhookEventRepository.markDone(event.getId(), event.getLockedAt(), LocalDateTime.now(), note) == 0) {
+                // Llegó otra notificación (queda PENDING) o lo retomó otro worker: lo cierra ese
+                log.info("🔁 Webhook MP para pago {} volvió a encolarse mientras se procesaba", paymentId);
+                return;
+            }
+            processed.increment();
+            long lagMs = Duration.between(event.getReceivedAt(), LocalDateTime.now()).toMillis();
+            lagTotalMs.add(lagMs);
+            lagMaxMs.accumulate(lagMs);
+            log.info("✅ Webhook MP procesado: pago={} status={} orderId={} ({} ms desde que llegó)",
+                    paymentId, status, externalRef, lagMs);
+
+        } catch (Exception e) {
+            if (isTransient(e)) {
+                retryOrFail(event, e.getMessage());
+            } else {
+                log.error("❌ Webhook MP para pago {} falló sin reintento: {}", paymentId, e.getMessage(), e);
+                fail(event, e.getMessage());
+            }
+        }
+    }
+
+    private void retryOrFail(WebhookEvent event, String error) {
+        if (event.getAttempts() >= maxAttempts) {
+            log.error("❌ Webhook MP para pago {} agotó {} intentos: {}", event.getExternalId(), maxAttempts, error);
+            fail(event, error);
+            return;
+        }
+        Duration backoff = backoff(event.getAttempts());
+        if (webhookEventRepository.reschedule(event.getId(), event.getLockedAt(),
+                LocalDateTime.now().plus(backoff), truncate(error)) == 0) {
+            log.info("🔁 Webhook MP para pago {} ya no es de este worker, no se reprograma", event.getExternalId());
+            return;
+        }
+        retried.increment();
+        log.warn("⚠️ Webhook MP para pago {} reintenta en {} s (intento {}/{}): {}",
+                event.getExternalId(), backoff.toSeconds(), event.getAttempts(), maxAttempts, error);
+    }
+
+    private void fail(WebhookEvent event, String error) {
+        if (webhookEventRepository.markFailed(event.getId(), event.getLockedAt(), LocalDateTime.now(), truncate(error)) == 0) {
+            log.info("🔁 Webhook MP para pago {} ya no es de este worker, no se marca FAILED", event.getExternalId());
+            return;
+        }
+        failed.increment();
+    }
+
+    /**
+     * Exponencial con jitter: entre la mitad y el total de min(max, inicial * 2^(intento-1))
+     */
+    private Duration backoff(int attempt) {
+        long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1));
+    }
+
+    /**
+     * Se reintenta lo que puede andar más tarde: MP caído o saturado (5xx, 429), red, circuito
+     * abierto y errores pasajeros de la base. Un 4xx (token inválido, pago inexistente) no.
+     */
+    private static boolean isTransient(Exception e) {
+        if (e instanceof HttpStatusCodeException http) {
+            return http.getStatusCode().is5xxServerError()
+                    || http.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return e instanceof ResourceAccessException
+                || e instanceof UpstreamUnavailableException
+                || e instanceof TransientDataAccessException
+                || e instanceof ConcurrencyFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
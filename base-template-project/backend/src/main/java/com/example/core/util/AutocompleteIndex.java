@@ -0,0 +1,231 @@
+package com.example.core.util;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de autocompletado en memoria (inmutable, seguro entre threads).
+ *
+ * - Normaliza acentos y mayúsculas: "cordoba" encuentra "Córdoba".
+ * - Match por prefijo de palabra: cada palabra de la búsqueda tiene que ser prefijo de
+ *   alguna palabra del nombre ("villa mar" → "Villa del Mar"). Las palabras están en un
+ *   array ordenado, así que cada prefijo es una búsqueda binaria.
+ * - Si no hay matches por prefijo, cae a similitud por trigramas (errores de tipeo).
+ * - Ranking: nombre exacto, empieza con la búsqueda, primera palabra, resto; a igualdad, el más corto.
+ * - Se puede filtrar por un "scope" (ej. provincia); null o vacío es sin filtro.
+ */
+public final class AutocompleteIndex<T> {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+    private static final double MIN_SIMILARITY = 0.3;
+
+    private final List<T> items;
+    private final String[] names;
+    private final String[] scopes;
+    private final String[][] itemTokens;
+
+    // Todas las palabras de todos los nombres, ordenadas, con el item al que pertenecen
+    private final String[] tokens;
+    private final int[] tokenOwners;
+
+    private final Map<String, int[]> trigramPostings;
+    private final int[] trigramCounts;
+
+    public AutocompleteIndex(List<T> items, Function<T, String> name, Function<T, String> scope) {
+        this.items = List.copyOf(items);
+        int n = this.items.size();
+        this.names = new String[n];
+        this.scopes = new String[n];
+        this.itemTokens = new String[n][];
+        this.trigramCounts = new int[n];
+
+        List<Map.Entry<String, Integer>> allTokens = new ArrayList<>();
+        Map<String, List<Integer>> postings = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            T item = this.items.get(i);
+            names[i] = fold(name.apply(item));
+            scopes[i] = scope.apply(item);
+            itemTokens[i] = split(names[i]);
+            for (String token : itemTokens[i]) {
+                allTokens.add(Map.entry(token, i));
+            }
+            Set<String> grams = trigrams(names[i]);
+            trigramCounts[i] = grams.size();
+            for (String gram : grams) {
+                postings.computeIfAbsent(gram, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        allTokens.sort(Map.Entry.comparingByKey());
+        this.tokens = new String[allTokens.size()];
+        this.tokenOwners = new int[allTokens.size()];
+        for (int i = 0; i < allTokens.size(); i++) {
+            tokens[i] = allTokens.get(i).getKey();
+            tokenOwners[i] = allTokens.get(i).getValue();
+        }
+
+        Map<String, int[]> compact = new HashMap<>(postings.size() * 2);
+        postings.forEach((gram, ids) -> compact.put(gram, ids.stream().mapToInt(Integer::intValue).toArray()));
+        this.trigramPostings = compact;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Busca por nombre. scope null o vacío = sin filtrar.
+     */
+    public List<T> search(String query, String scope, int limit) {
+        String q = fold(query);
+        if (q.length() < 2 || limit <= 0) {
+            return List.of();
+        }
+        // ?provinceId= llega como "": es "sin provincia", no una provincia que no existe
+        if (scope != null && scope.isBlank()) {
+            scope = null;
+        }
+
+        List<int[]> ranked = prefixMatches(q, scope);
+        if (ranked.isEmpty()) {
+            ranked = fuzzyMatches(q, scope);
+        }
+
+        List<T> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && result.size() < limit; i++) {
+            result.add(items.get(ranked.get(i)[0]));
+        }
+        return result;
+    }
+
+    /**
+     * minúsculas, sin acentos, solo letras/números separados por un espacio
+     */
+    public static String fold(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        String plain = MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        return NON_ALNUM.matcher(plain).replaceAll(" ").trim();
+    }
+
+    // ========== HELPERS ==========
+
+    /**
+     * Candidatos = items que tienen alguna palabra con el prefijo más largo de la búsqueda
+     * (el más selectivo); después se verifica que matcheen todas las palabras.
+     * Devuelve pares [item, score] ordenados.
+     */
+    private List<int[]> prefixMatches(String q, String scope) {
+        String[] queryTokens = split(q);
+        String pivot = Arrays.stream(queryTokens).max(Comparator.comparingInt(String::length)).orElse(q);
+
+        Set<Integer> candidates = new LinkedHashSet<>();
+        for (int i = lowerBound(pivot); i < tokens.length && tokens[i].startsWith(pivot); i++) {
+            candidates.add(tokenOwners[i]);
+        }
+
+        List<int[]> ranked = new ArrayList<>();
+        for (int id : candidates) {
+            if (inScope(id, scope) && matchesAll(itemTokens[id], queryTokens)) {
+                ranked.add(new int[]{id, prefixScore(id, q, queryTokens[0])});
+            }
+        }
+        ranked.sort(Comparator.<int[]>comparingInt(r -> r[1])
+                .thenComparingInt(r -> names[r[0]].length())
+                .thenComparing(r -> names[r[0]]));
+        return ranked;
+    }
+
+    private int prefixScore(int id, String q, String firstQueryToken) {
+        if (names[id].equals(q)) {
+            return 0;
+        }
+        if (names[id].startsWith(q)) {
+            return 1;
+        }
+        if (itemTokens[id].length > 0 && itemTokens[id][0].startsWith(firstQueryToken)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * Similitud de Jaccard sobre trigramas; score negativo para ordenar de mayor a menor
+     */
+    private List<int[]> fuzzyMatches(String q, String scope) {
+        Set<String> queryGrams = trigrams(q);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            int[] ids = trigramPostings.get(gram);
+            if (ids != null) {
+                for (int id : ids) {
+                    shared.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<int[]> ranked = new ArrayList<>();
+        shared.forEach((id, hits) -> {
+            double similarity = (double) hits / (queryGrams.size() + trigramCounts[id] - hits);
+            if (similarity >= MIN_SIMILARITY && inScope(id, scope)) {
+                ranked.add(new int[]{id, (int) (-similarity * 1_000_000)});
+            }
+        });
+        ranked.sort(Comparator.<int[]>comparingInt(r -> r[1])
+                .thenComparingInt(r -> names[r[0]].length()));
+        return ranked;
+    }
+
+    private boolean inScope(int id, String scope) {
+        return scope == null || scope.equals(scopes[id]);
+    }
+
+    private static boolean matchesAll(String[] nameTokens, String[] queryTokens) {
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String nameToken : nameTokens) {
+                if (nameToken.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int lowerBound(String prefix) {
+        int lo = 0;
+        int hi = tokens.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tokens[mid].compareTo(prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static String[] split(String folded) {
+        return folded.isEmpty() ? new String[0] : folded.split(" ");
+    }
+
+    private static Set<String> trigrams(String folded) {
+        String padded = "  " + folded + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
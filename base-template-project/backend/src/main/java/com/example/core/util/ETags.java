@@ -0,0 +1,51 @@
+package com.example.core.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * ETags fuertes y GET condicional.
+ *
+ * El ETag sale del JSON que se va a devolver (SHA-256 truncado), así es el mismo en todas
+ * las instancias y solo cambia cuando cambia el contenido. Se calcula una vez, al cargar
+ * el dato en el cache, no en cada request.
+ */
+public final class ETags {
+
+    private static final String[] VARY = {"Authorization", "X-Tenant-Subdomain"};
+
+    private ETags() {
+    }
+
+    /**
+     * ETag fuerte (entre comillas) del contenido serializado a JSON
+     */
+    public static String of(ObjectMapper objectMapper, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo calcular el ETag", e);
+        }
+    }
+
+    /**
+     * 200 con el body y ETag, Cache-Control y Vary (la respuesta depende del tenant y del usuario).
+     * El 304 lo resuelve Spring MVC al escribir la respuesta: en un GET/HEAD compara este ETag con
+     * el If-None-Match y, si coincide, manda 304 sin body con los mismos headers.
+     */
+    public static <T> ResponseEntity<T> conditional(String etag, CacheControl cacheControl, T body) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(VARY)
+                .body(body);
+    }
+}
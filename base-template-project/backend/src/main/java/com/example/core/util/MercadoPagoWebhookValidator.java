@@ -1,45 +1,68 @@
 package com.example.core.util;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.HexFormat;
+import java.util.Locale;
 
+/**
+ * Verifica la firma de los webhooks de MercadoPago.
+ *
+ * Header x-signature: "ts=<timestamp>,v1=<hmac>". MP firma con HMAC-SHA256 (clave: el secreto
+ * de la aplicación) el manifest "id:<data.id>;request-id:<x-request-id>;ts:<ts>;".
+ */
 @Component
 public class MercadoPagoWebhookValidator {
 
-    @Value("${mercadopago.webhook-secret}")
-    private String webhookSecret;
+    public boolean isValid(String signatureHeader, String requestId, String dataId, String secret) {
+        if (signatureHeader == null || signatureHeader.isBlank() || dataId == null
+                || secret == null || secret.isBlank()) {
+            return false;
+        }
 
-    public boolean isValid(String signatureHeader, String requestBody) {
-        try {
-            if (signatureHeader == null || signatureHeader.isEmpty()) {
-                return false;
+        String ts = null;
+        String v1 = null;
+        for (String part : signatureHeader.split(",")) {
+            String[] keyValue = part.split("=", 2);
+            if (keyValue.length != 2) {
+                continue;
             }
+            switch (keyValue[0].trim()) {
+                case "ts" -> ts = keyValue[1].trim();
+                case "v1" -> v1 = keyValue[1].trim();
+                default -> { }
+            }
+        }
+        if (ts == null || v1 == null) {
+            return false;
+        }
 
-            String[] parts = signatureHeader.split(",");
-            String timestamp = parts[0].split("=")[1];
-            String signature = parts[1].split("=")[1];
-
-            String data = timestamp + "." + requestBody;
-            String calculated = hmacSha256(data, webhookSecret);
-
-            return calculated.equals(signature);
+        StringBuilder manifest = new StringBuilder("id:").append(dataId.toLowerCase(Locale.ROOT)).append(';');
+        if (requestId != null && !requestId.isBlank()) {
+            manifest.append("request-id:").append(requestId).append(';');
+        }
+        manifest.append("ts:").append(ts).append(';');
 
-        } catch (Exception e) {
+        byte[] expected = hmacSha256(manifest.toString(), secret);
+        byte[] received;
+        try {
+            received = HexFormat.of().parseHex(v1);
+        } catch (IllegalArgumentException e) {
             return false;
         }
+        // Comparación en tiempo constante
+        return MessageDigest.isEqual(expected, received);
     }
 
-    private String hmacSha256(String data, String secret) {
+    private byte[] hmacSha256(String data, String secret) {
         try {
             Mac mac = Mac.getInstance("HmacSHA256");
             mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-            byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(hash);
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
         } catch (Exception e) {
             throw new RuntimeException("Error al calcular HMAC-SHA256", e);
         }
@@ -0,0 +1,67 @@
+package com.example.core.util;
+
+import com.example.core.exception.BadRequestException;
+import com.example.core.model.Order;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para paginar órdenes por keyset sobre (created_at DESC, id DESC).
+ * Se serializa como base64url de "createdAt|id".
+ */
+public final class OrderCursor {
+
+    // Primera página: todo lo creado antes de esta fecha
+    private static final OrderCursor START = new OrderCursor(LocalDateTime.of(9999, 12, 31, 0, 0), "");
+
+    private final LocalDateTime createdAt;
+    private final String id;
+
+    private OrderCursor(LocalDateTime createdAt, String id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static OrderCursor start() {
+        return START;
+    }
+
+    public static OrderCursor after(Order order) {
+        return new OrderCursor(order.getCreatedAt(), order.getId());
+    }
+
+    /**
+     * Decodifica el cursor recibido por query param (null/vacío = primera página)
+     */
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) {
+                throw new BadRequestException("Cursor inválido");
+            }
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, sep)), raw.substring(sep + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Cursor inválido", e);
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
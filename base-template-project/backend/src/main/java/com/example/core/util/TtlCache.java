@@ -0,0 +1,176 @@
+package com.example.core.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache en memoria acotado por tamaño y con expiración (TTL).
+ *
+ * - Soporta cacheo negativo: si el loader devuelve null se guarda el "no existe"
+ *   con su propio TTL (normalmente más corto).
+ * - Cuando se alcanza el tamaño máximo se descartan primero las entradas vencidas
+ *   y luego la que esté más próxima a vencer.
+ * - Lleva contadores de hits/misses/evictions para exponer métricas.
+ */
+public class TtlCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier nanoTime;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public TtlCache(String name, int maxSize, Duration ttl, Duration negativeTtl) {
+        this(name, maxSize, ttl, negativeTtl, System::nanoTime);
+    }
+
+    public TtlCache(String name, int maxSize, Duration ttl) {
+        this(name, maxSize, ttl, ttl);
+    }
+
+    // Reloj inyectable para los tests
+    TtlCache(String name, int maxSize, Duration ttl, Duration negativeTtl, LongSupplier nanoTime) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize debe ser mayor a 0");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Devuelve el valor cacheado o lo carga con el loader.
+     * Un resultado null del loader se cachea como negativo.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long now = nanoTime.getAsLong();
+        Entry<V> entry = entries.get(key);
+
+        if (entry != null && !entry.isExpired(now)) {
+            hits.increment();
+            if (entry.value == null) {
+                negativeHits.increment();
+            }
+            return entry.value;
+        }
+
+        misses.increment();
+        V value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Devuelve el valor solo si está cacheado y vigente (no cuenta como hit/miss).
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired(nanoTime.getAsLong())) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        long now = nanoTime.getAsLong();
+        if (!entries.containsKey(key) && entries.size() >= maxSize) {
+            evict(now);
+        }
+        long ttl = value == null ? negativeTtlNanos : ttlNanos;
+        entries.put(key, new Entry<>(value, now + ttl));
+    }
+
+    public void invalidate(K key) {
+        if (key != null && entries.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Métricas del cache (para endpoints de monitoreo)
+     */
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        long total = h + m;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", h);
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("misses", m);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) h / total);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    // ========== HELPERS ==========
+
+    private void evict(long now) {
+        // 1️⃣ Primero descartar todo lo vencido
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().isExpired(now);
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+
+        // 2️⃣ Si sigue lleno, sacar la entrada más próxima a vencer
+        while (entries.size() >= maxSize) {
+            K oldest = null;
+            long oldestExpiry = 0;
+            for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+                if (oldest == null || e.getValue().expiresAt - oldestExpiry < 0) {
+                    oldestExpiry = e.getValue().expiresAt;
+                    oldest = e.getKey();
+                }
+            }
+            if (oldest == null || entries.remove(oldest) == null) {
+                break;
+            }
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.core.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Generador de UUID versión 7 (RFC 9562): 48 bits de timestamp en ms + versión +
+ * 12 bits de secuencia + variante + 62 bits aleatorios.
+ *
+ * Como los ids crecen con el tiempo, los inserts caen al final del índice de la PK
+ * (y de las FKs que apuntan a ella) en vez de en una página al azar como con v4:
+ * menos page splits, índices más chicos y más calientes en cache.
+ *
+ * Dentro del mismo milisegundo la secuencia se incrementa, así que los ids de una misma
+ * JVM son estrictamente crecientes. Si el reloj va para atrás se sigue con el último
+ * timestamp emitido.
+ */
+public final class UuidV7 {
+
+    /** UUID nulo: nunca lo emite el generador, sirve como "ningún id" */
+    public static final String NIL = "00000000-0000-0000-0000-000000000000";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int SEQUENCE_BITS = 12;
+    private static final int SEQUENCE_MASK = (1 << SEQUENCE_BITS) - 1;
+
+    private static long lastMillis = -1;
+    private static int sequence;
+
+    private UuidV7() {
+    }
+
+    public static String generate() {
+        return next().toString();
+    }
+
+    public static UUID next() {
+        long millis;
+        int seq;
+        synchronized (UuidV7.class) {
+            millis = Math.max(System.currentTimeMillis(), lastMillis);
+            if (millis == lastMillis) {
+                sequence = (sequence + 1) & SEQUENCE_MASK;
+                if (sequence == 0) {
+                    // 4096 ids en el mismo ms: se adelanta el timestamp para no repetir orden
+                    millis++;
+                }
+            } else {
+                // Arranque aleatorio en la mitad baja: deja lugar para incrementar
+                sequence = RANDOM.nextInt(1 << (SEQUENCE_BITS - 1));
+            }
+            lastMillis = millis;
+            seq = sequence;
+        }
+
+        long msb = (millis & 0xFFFF_FFFF_FFFFL) << 16
+                | 0x7000L
+                | seq;
+        long lsb = (RANDOM.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL) | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Timestamp (epoch ms) de un UUID v7
+     */
+    public static long timestampOf(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,257 @@
+-- Esquema base: el que generaba ddl-auto: update antes de las migraciones (tablas y FKs de
+-- las entidades de ese momento, ids varchar). Lo que se agregó después va de V2 en adelante.
+--
+-- Bases existentes: Flyway no corre este script, las marca en la versión 1
+-- (spring.flyway.baseline-on-migrate) y sigue desde V2.
+
+create table addresses (
+    is_default boolean,
+    latitude float(53),
+    longitude float(53),
+    created_at timestamp(6) not null,
+    updated_at timestamp(6),
+    apartment varchar(255),
+    id varchar(255) not null,
+    locality_id varchar(255),
+    locality_name varchar(255),
+    municipality_id varchar(255),
+    municipality_name varchar(255) not null,
+    postal_code varchar(255) not null,
+    province_id varchar(255) not null,
+    province_name varchar(255) not null,
+    reference varchar(255),
+    street varchar(255) not null,
+    street_number varchar(255) not null,
+    tenant_id varchar(255) not null,
+    user_id varchar(255) not null,
+    primary key (id)
+);
+
+create table bookings (
+    booking_date date not null,
+    end_time time(6) not null,
+    start_time time(6) not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    notes varchar(1000),
+    customer_email varchar(255),
+    customer_name varchar(255),
+    customer_phone varchar(255),
+    id varchar(255) not null,
+    order_id varchar(255),
+    order_item_id varchar(255),
+    service_id varchar(255) not null,
+    status varchar(255) not null check (status in ('PENDING','CONFIRMED','CANCELLED','COMPLETED','NO_SHOW')),
+    tenant_id varchar(255) not null,
+    user_id varchar(255) not null,
+    primary key (id)
+);
+
+create table items (
+    active boolean not null,
+    price numeric(38,2) not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    description varchar(1000),
+    category varchar(255),
+    id varchar(255) not null,
+    image_url varchar(255),
+    name varchar(255) not null,
+    tenant_id varchar(255) not null,
+    primary key (id)
+);
+
+create table order_items (
+    booking_date date,
+    booking_time time(6),
+    price_at_purchase numeric(38,2) not null,
+    quantity integer not null,
+    id varchar(255) not null,
+    item_id varchar(255) not null,
+    item_name varchar(255),
+    item_type varchar(255),
+    order_id varchar(255) not null,
+    primary key (id)
+);
+
+create table orders (
+    delivery_cost numeric(38,2),
+    is_delivery boolean,
+    total numeric(38,2) not null,
+    created_at timestamp(6),
+    shipping_method_id bigint,
+    updated_at timestamp(6),
+    delivery_address_id varchar(255),
+    delivery_notes varchar(255),
+    id varchar(255) not null,
+    notes varchar(255),
+    payment_method varchar(255) check (payment_method in ('CASH','MERCADO_PAGO','BANK_TRANSFER','CREDIT_CARD','DEBIT_CARD')),
+    shipment_id varchar(255),
+    status varchar(255) not null check (status in ('PENDING','CONFIRMED','PREPARING','READY','COMPLETED','CANCELLED','PICKUP_READY')),
+    tenant_id varchar(255) not null,
+    user_id varchar(255) not null,
+    primary key (id)
+);
+
+create table payments (
+    amount numeric(38,2) not null,
+    confirmed_at timestamp(6),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    external_id varchar(255),
+    external_status varchar(255),
+    id varchar(255) not null,
+    method varchar(255) not null check (method in ('CASH','MERCADO_PAGO','BANK_TRANSFER','CREDIT_CARD','DEBIT_CARD')),
+    order_id varchar(255) not null unique,
+    payment_link varchar(255),
+    receipt_notes varchar(255),
+    receipt_url varchar(255),
+    status varchar(255) not null check (status in ('PENDING','PROCESSING','APPROVED','REJECTED','CANCELLED','REFUNDED')),
+    tenant_id varchar(255) not null,
+    primary key (id)
+);
+
+create table products (
+    stock integer not null,
+    weight float(53),
+    id varchar(255) not null,
+    sku varchar(255),
+    type varchar(255) check (type in ('PHYSICAL','DIGITAL')),
+    primary key (id)
+);
+
+create table service_available_days (
+    day_of_week varchar(255) check (day_of_week in ('MONDAY','TUESDAY','WEDNESDAY','THURSDAY','FRIDAY','SATURDAY','SUNDAY')),
+    service_id varchar(255) not null
+);
+
+create table services (
+    duration_minutes integer not null,
+    max_capacity integer,
+    requires_booking boolean not null,
+    slot_interval_minutes integer,
+    work_end_time time(6),
+    work_start_time time(6),
+    id varchar(255) not null,
+    schedule_type varchar(255) check (schedule_type in ('ON_DEMAND','SCHEDULED','RECURRING')),
+    primary key (id)
+);
+
+create table tenants (
+    active boolean not null,
+    created_at timestamp(6),
+    business_name varchar(255) not null,
+    id varchar(255) not null,
+    subdomain varchar(255) not null unique,
+    type varchar(255) not null check (type in ('GYM','RETAIL','RESTAURANT','BEAUTY_SALON','COWORKING','HEALTH','EDUCATION','PROFESSIONAL','OTHER')),
+    config jsonb,
+    primary key (id)
+);
+
+create table users (
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    email varchar(255) not null unique,
+    id varchar(255) not null,
+    name varchar(255) not null,
+    password varchar(255) not null,
+    phone varchar(255),
+    role varchar(255) not null check (role in ('CLIENTE','VENDEDOR','ADMIN','SUPER_ADMIN')),
+    tenant_id varchar(255) not null,
+    primary key (id)
+);
+
+alter table addresses
+    add constraint FKkw94qswtot6xopd864upd7gy5
+    foreign key (tenant_id)
+    references tenants;
+
+alter table addresses
+    add constraint FK1fa36y2oqhao3wgg2rw1pi459
+    foreign key (user_id)
+    references users;
+
+alter table bookings
+    add constraint FKknlfvonj6uaelbqffgst51ttu
+    foreign key (order_id)
+    references orders;
+
+alter table bookings
+    add constraint FKd3pvrskg3mr502pyjkd89wu2o
+    foreign key (order_item_id)
+    references order_items;
+
+alter table bookings
+    add constraint FKjcwbou2jlblfwu14uoxs65b25
+    foreign key (service_id)
+    references services;
+
+alter table bookings
+    add constraint FKju89l1g6fe8swctxof1g0wwk8
+    foreign key (tenant_id)
+    references tenants;
+
+alter table bookings
+    add constraint FKeyog2oic85xg7hsu2je2lx3s6
+    foreign key (user_id)
+    references users;
+
+alter table items
+    add constraint FK87fnk9pjtp2rg64imlunwiq8f
+    foreign key (tenant_id)
+    references tenants;
+
+alter table order_items
+    add constraint FK88tn2oqcxl1034banqif9r70x
+    foreign key (item_id)
+    references items;
+
+alter table order_items
+    add constraint FKbioxgbv59vetrxe0ejfubep1w
+    foreign key (order_id)
+    references orders;
+
+alter table orders
+    add constraint FK3s2t83m5ddty3rgomn94d4ht6
+    foreign key (delivery_address_id)
+    references addresses;
+
+alter table orders
+    add constraint FK45pihpalbn6gyf7x3l9hbybw0
+    foreign key (tenant_id)
+    references tenants;
+
+alter table orders
+    add constraint FK32ql8ubntj5uh44ph9659tiih
+    foreign key (user_id)
+    references users;
+
+alter table payments
+    add constraint FK81gagumt0r8y3rmudcgpbk42l
+    foreign key (order_id)
+    references orders;
+
+alter table payments
+    add constraint FK47pgal76pui0no18pwwcdd64m
+    foreign key (tenant_id)
+    references tenants;
+
+alter table products
+    add constraint FKp08u15h10o682fwexgbhrr1hl
+    foreign key (id)
+    references items;
+
+alter table service_available_days
+    add constraint FK1ht1xskbdhnio8fslrxujdhfe
+    foreign key (service_id)
+    references services;
+
+alter table services
+    add constraint FKdup56kguihg5tkw5o5ix8wcyw
+    foreign key (id)
+    references items;
+
+alter table users
+    add constraint FK21hn1a5ja1tve7ae02fnn4cld
+    foreign key (tenant_id)
+    references tenants;
@@ -0,0 +1,86 @@
+-- Lo que se agregó a las entidades después del esquema base (V1): @Version de orders y
+-- payments, historial de transiciones de pago, inbox de webhooks, rollup diario de ventas y
+-- los índices declarados con @Index.
+--
+-- IF NOT EXISTS en todo: una base que ya corrió alguna de estas versiones con ddl-auto: update
+-- se marca en V1 igual y acá solo se completa lo que le falte.
+
+-- ========== @Version (optimistic locking) ==========
+
+alter table orders
+    add column if not exists version bigint default 0 not null;
+
+alter table payments
+    add column if not exists version bigint default 0 not null;
+
+-- ========== payment_transitions ==========
+
+-- payment_id varchar como payments.id en V1; V3 lo pasa a uuid junto con el resto
+create table if not exists payment_transitions (
+    created_at timestamp(6) not null,
+    payment_id varchar(255) not null,
+    from_status varchar(20) not null check (from_status in ('PENDING','PROCESSING','APPROVED','REJECTED','CANCELLED','REFUNDED')),
+    to_status varchar(20) not null check (to_status in ('PENDING','PROCESSING','APPROVED','REJECTED','CANCELLED','REFUNDED')),
+    source varchar(30) not null,
+    idempotency_key varchar(200) not null,
+    id varchar(255) not null,
+    primary key (id),
+    constraint uk_payment_transitions_key unique (idempotency_key)
+);
+
+create index if not exists idx_payment_transitions_payment
+    on payment_transitions (payment_id, created_at);
+
+-- ========== webhook_inbox ==========
+
+create table if not exists webhook_inbox (
+    attempts integer not null,
+    notifications integer not null,
+    locked_at timestamp(6),
+    next_attempt_at timestamp(6) not null,
+    processed_at timestamp(6),
+    received_at timestamp(6) not null,
+    status varchar(20) not null check (status in ('PENDING','PROCESSING','DONE','FAILED')),
+    provider varchar(30) not null,
+    external_id varchar(100) not null,
+    last_error varchar(1000),
+    id varchar(255) not null,
+    payload text,
+    primary key (id),
+    constraint uk_webhook_inbox_provider_external unique (provider, external_id)
+);
+
+-- Tenant dueño del pago (cuentas de MP por tenant); las filas anteriores son de la plataforma
+alter table webhook_inbox
+    add column if not exists tenant_id varchar(36);
+
+create index if not exists idx_webhook_inbox_status_next
+    on webhook_inbox (status, next_attempt_at);
+
+-- ========== daily_sales_rollup ==========
+
+-- Arranca vacío: DailySalesRollupService lo llena con las órdenes existentes al arrancar
+create table if not exists daily_sales_rollup (
+    order_count integer not null,
+    sales_date date not null,
+    total numeric(38,2) not null,
+    id varchar(255) not null,
+    tenant_id varchar(255) not null,
+    primary key (id),
+    constraint uk_daily_sales_rollup_tenant_date unique (tenant_id, sales_date),
+    constraint FKki8y1o0xnhjdf3dy5mmeop79k foreign key (tenant_id) references tenants
+);
+
+-- ========== índices de las entidades (@Index) ==========
+
+create index if not exists idx_orders_tenant_created
+    on orders (tenant_id, created_at, id);
+
+create index if not exists idx_orders_user_created
+    on orders (user_id, created_at, id);
+
+create index if not exists idx_bookings_tenant_date_service
+    on bookings (tenant_id, booking_date, service_id);
+
+create index if not exists idx_bookings_service_date
+    on bookings (service_id, booking_date);
@@ -0,0 +1,59 @@
+-- Ids de orders, order_items, payments y bookings: varchar(255) -> uuid nativo
+--
+-- V1 y V2 crean estas columnas como varchar (así estaban antes). Si orders.id ya es uuid
+-- (una base que corrió esta versión con ddl-auto) no hace nada.
+--
+-- Las filas existentes conservan su id (v4): solo cambia el tipo, de 36 bytes de texto a
+-- 16 bytes. No se re-numeran porque los ids de orden ya salieron como external_reference a
+-- MercadoPago y en links a clientes. Las filas nuevas usan v7.
+--
+-- Las FKs que apuntan a estas tablas se guardan, se borran, se convierten las columnas y se
+-- vuelven a crear con el mismo nombre.
+-- Toma ACCESS EXCLUSIVE sobre las tablas mientras reescribe: desplegar en ventana de mantenimiento.
+
+DO $$
+DECLARE
+    fk record;
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'orders' AND column_name = 'id') = 'uuid' THEN
+        RAISE NOTICE 'orders.id ya es uuid, nada que hacer';
+        RETURN;
+    END IF;
+
+    CREATE TEMP TABLE uuid_fks ON COMMIT DROP AS
+    SELECT conrelid::regclass::text AS table_name, conname, pg_get_constraintdef(oid) AS definition
+    FROM pg_constraint
+    WHERE contype = 'f'
+      AND confrelid IN ('orders'::regclass, 'order_items'::regclass, 'payments'::regclass, 'bookings'::regclass);
+
+    FOR fk IN SELECT * FROM uuid_fks LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', fk.table_name, fk.conname);
+    END LOOP;
+
+    ALTER TABLE orders
+        ALTER COLUMN id TYPE uuid USING id::uuid;
+    ALTER TABLE order_items
+        ALTER COLUMN id TYPE uuid USING id::uuid,
+        ALTER COLUMN order_id TYPE uuid USING order_id::uuid;
+    ALTER TABLE payments
+        ALTER COLUMN id TYPE uuid USING id::uuid,
+        ALTER COLUMN order_id TYPE uuid USING order_id::uuid;
+    ALTER TABLE bookings
+        ALTER COLUMN id TYPE uuid USING id::uuid,
+        ALTER COLUMN order_id TYPE uuid USING order_id::uuid,
+        ALTER COLUMN order_item_id TYPE uuid USING order_item_id::uuid;
+    ALTER TABLE payment_transitions
+        ALTER COLUMN payment_id TYPE uuid USING payment_id::uuid;
+
+    FOR fk IN SELECT * FROM uuid_fks LOOP
+        EXECUTE format('ALTER TABLE %s ADD CONSTRAINT %I %s', fk.table_name, fk.conname, fk.definition);
+    END LOOP;
+END $$;
+
+-- Los índices se reconstruyen con el ALTER; conviene actualizar estadísticas
+ANALYZE orders;
+ANALYZE order_items;
+ANALYZE payments;
+ANALYZE bookings;
+ANALYZE payment_transitions;
@@ -0,0 +1,124 @@
+-- Índices para los finders de com.example.core.repository.
+--
+-- Cada índice dice qué consultas atiende; RepositoryIndexUsageTest verifica con EXPLAIN que
+-- todos los finders usan alguno. Los de las entidades (@Index, creados en V2) solo se
+-- mencionan en comentarios, junto a las consultas que atienden.
+-- Al agregar un finder: sumar su índice en una migración nueva y su consulta al test.
+--
+-- IF NOT EXISTS: si un índice ya se creó a mano, la migración lo saltea.
+-- En tablas grandes conviene crearlos antes a mano con CREATE INDEX CONCURRENTLY (mismo
+-- nombre) y dejar que esta migración los saltee.
+
+-- ========== orders ==========
+
+-- V2 idx_orders_tenant_created (tenant_id, created_at, id):
+--   findByTenant*, findPageIdsByTenant, getDashboardTotals, countByStatus, countByPaymentMethod
+-- V2 idx_orders_user_created (user_id, created_at, id):
+--   findByUser*, findPageIdsByUser
+
+-- Top de productos (con y sin rango de fechas) y rebuild del rollup de un tenant:
+-- solo las CONFIRMED del tenant, sin leer el resto
+CREATE INDEX IF NOT EXISTS idx_orders_tenant_status_created
+    ON orders (tenant_id, status, created_at);
+
+-- findByStatus (todas las órdenes en un estado) y rebuild nocturno del rollup
+CREATE INDEX IF NOT EXISTS idx_orders_status_created
+    ON orders (status, created_at);
+
+-- FK: borrar una dirección no recorre orders (la mayoría no tiene envío)
+CREATE INDEX IF NOT EXISTS idx_orders_delivery_address
+    ON orders (delivery_address_id) WHERE delivery_address_id IS NOT NULL;
+
+-- ========== order_items ==========
+
+-- Items de las órdenes de una página (findWithItemsByIdIn), join de findTopProducts*
+-- y FK al borrar una orden
+CREATE INDEX IF NOT EXISTS idx_order_items_order
+    ON order_items (order_id);
+
+-- ========== payments ==========
+
+-- payments.order_id ya es UNIQUE: findByOrder
+
+-- findByExternalId: cada webhook de MercadoPago busca el pago por su id externo
+CREATE INDEX IF NOT EXISTS idx_payments_external_id
+    ON payments (external_id) WHERE external_id IS NOT NULL;
+
+-- findByTenant, findByTenantAndStatus (pendientes del panel), countByStatus
+CREATE INDEX IF NOT EXISTS idx_payments_tenant_status
+    ON payments (tenant_id, status);
+
+-- findByStatus
+CREATE INDEX IF NOT EXISTS idx_payments_status_created
+    ON payments (status, created_at);
+
+-- ========== bookings ==========
+
+-- V2 idx_bookings_tenant_date_service: findByTenant, findCalendar
+-- V2 idx_bookings_service_date: findByService*, findActiveIntervals, findConflictingBookings,
+--   countConflictingBookings
+
+-- findByUser, findByUserOrderByBookingDateDescStartTimeDesc (mis turnos)
+CREATE INDEX IF NOT EXISTS idx_bookings_user_date
+    ON bookings (user_id, booking_date, start_time);
+
+-- findByOrder, confirmPendingByOrder, cancelActiveByOrder y FK al borrar una orden
+CREATE INDEX IF NOT EXISTS idx_bookings_order
+    ON bookings (order_id) WHERE order_id IS NOT NULL;
+
+-- FK: borrar un order_item no recorre bookings
+CREATE INDEX IF NOT EXISTS idx_bookings_order_item
+    ON bookings (order_item_id) WHERE order_item_id IS NOT NULL;
+
+-- findByStatus
+CREATE INDEX IF NOT EXISTS idx_bookings_status_date
+    ON bookings (status, booking_date);
+
+-- ========== items (products / services) ==========
+
+-- Catálogo del tenant: findByActiveTrueAndTenant, findByCategoryAndActiveTrueAndTenant,
+-- findByStockGreaterThanAndTenant (productos y servicios, herencia JOINED sobre items)
+CREATE INDEX IF NOT EXISTS idx_items_tenant_active_category
+    ON items (tenant_id, active, category);
+
+-- findByActiveTrue, findByCategoryAndActiveTrue (sin tenant)
+CREATE INDEX IF NOT EXISTS idx_items_active_category
+    ON items (active, category);
+
+-- findByStockGreaterThan
+CREATE INDEX IF NOT EXISTS idx_products_stock
+    ON products (stock);
+
+-- ========== users / addresses ==========
+
+-- users.email y tenants.subdomain ya son UNIQUE: findByEmail, findBySubdomain
+
+-- findByTenant (usuarios de un tenant en el panel de super admin)
+CREATE INDEX IF NOT EXISTS idx_users_tenant
+    ON users (tenant_id);
+
+-- findByRole
+CREATE INDEX IF NOT EXISTS idx_users_role
+    ON users (role);
+
+-- Direcciones de un usuario: listado (default primero), default, conteo y
+-- removeDefaultFromUserAddresses
+CREATE INDEX IF NOT EXISTS idx_addresses_user_tenant
+    ON addresses (user_id, tenant_id, is_default, created_at);
+
+-- ========== resto ==========
+
+-- daily_sales_rollup: uk_daily_sales_rollup_tenant_date (tenant_id, sales_date) atiende
+--   findByTenantAndSalesDateGreaterThanEqual..., sumTotalSince, deleteByTenantId, upsertDelta
+-- payment_transitions: idx_payment_transitions_payment (V2) findByPaymentIdOrderByCreatedAtAsc
+-- webhook_inbox: idx_webhook_inbox_status_next (V2) claim, retryFailed, countByStatus,
+--   findOldestReceivedAt; uk_webhook_inbox_provider_external enqueue
+
+ANALYZE orders;
+ANALYZE order_items;
+ANALYZE payments;
+ANALYZE bookings;
+ANALYZE items;
+ANALYZE products;
+ANALYZE users;
+ANALYZE addresses;
@@ -0,0 +1,142 @@
+package com.example.core.controller;
+
+import com.example.core.model.Product;
+import com.example.core.model.Tenant;
+import com.example.core.repository.ProductRepository;
+import com.example.core.repository.TenantRepository;
+import com.example.core.service.CatalogCache;
+import com.example.core.service.TenantResolver;
+import com.example.core.support.TestTenants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET condicional de la config del tenant y del catálogo: 304 con el mismo ETag,
+ * 200 con ETag nuevo cuando cambia el contenido.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestTenants.class)
+@DisplayName("🏷️ ETag y 304 en config y catálogo")
+class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestTenants testTenants;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TenantResolver tenantResolver;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    private Tenant testTenant;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = testTenants.create("etag");
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll(productRepository.findByActiveTrueAndTenant(testTenant));
+        testTenants.delete(testTenant);
+        tenantResolver.invalidate(testTenant);
+        catalogCache.invalidate(testTenant.getId());
+    }
+
+    @Test
+    @DisplayName("✅ Config: If-None-Match igual → 304, config cambiada → 200 con otro ETag")
+    void testConfigConditionalGet() throws Exception {
+        String etag = getEtag("/api/config/current");
+
+        mockMvc.perform(get("/api/config/current")
+                        .header("X-Tenant-Subdomain", testTenant.getSubdomain())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        testTenant.setBusinessName("ETag Business renombrado");
+        testTenant = tenantRepository.save(testTenant);
+        tenantResolver.invalidate(testTenant);
+
+        String newEtag = mockMvc.perform(get("/api/config/current")
+                        .header("X-Tenant-Subdomain", testTenant.getSubdomain())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotNull(newEtag);
+        assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    @DisplayName("✅ Catálogo: If-None-Match igual → 304, producto nuevo → 200 con otro ETag")
+    void testCatalogConditionalGet() throws Exception {
+        String etag = getEtag("/api/items/products");
+
+        mockMvc.perform(get("/api/items/products")
+                        .header("X-Tenant-Subdomain", testTenant.getSubdomain())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        Product product = new Product();
+        product.setName("Producto ETag");
+        product.setPrice(new BigDecimal("100.00"));
+        product.setStock(5);
+        product.setTenant(testTenant);
+        productRepository.save(product);
+        catalogCache.invalidate(testTenant.getId());
+
+        MvcResult result = mockMvc.perform(get("/api/items/products")
+                        .header("X-Tenant-Subdomain", testTenant.getSubdomain())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String newEtag = result.getResponse().getHeader("ETag");
+        assertNotNull(newEtag);
+        assertNotEquals(etag, newEtag);
+        assertTrue(result.getResponse().getContentAsString().contains("Producto ETag"));
+    }
+
+    // ========== HELPERS ==========
+
+    private String getEtag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url)
+                        .header("X-Tenant-Subdomain", testTenant.getSubdomain()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag, "Sin ETag en " + url);
+        return etag;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.core.controller;
+
+import com.example.core.model.Role;
+import com.example.core.model.Tenant;
+import com.example.core.model.User;
+import com.example.core.security.JwtUtil;
+import com.example.core.service.TenantResolver;
+import com.example.core.support.TestTenants;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cuenta las queries que dispara cada endpoint autenticado.
+ * Antes de CurrentUser cada uno hacía findByEmail + carga lazy del tenant + su query propia;
+ * ahora el usuario sale del JWT y solo queda la query del endpoint.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestTenants.class)
+@DisplayName("🧪 Queries por request con CurrentUser")
+class CurrentUserQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TenantResolver tenantResolver;
+
+    @Autowired
+    private TestTenants testTenants;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Tenant testTenant;
+    private User testUser;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = testTenants.create("qc");
+        testUser = testTenants.user(testTenant, Role.ADMIN);
+
+        token = jwtUtil.generateToken(testUser.getEmail(), Map.of(
+                JwtUtil.CLAIM_USER_ID, testUser.getId(),
+                JwtUtil.CLAIM_ROLE, testUser.getRole().name(),
+                JwtUtil.CLAIM_TENANT_ID, testTenant.getId()
+        ));
+
+        // Dejar el tenant en cache para medir solo lo que hace el endpoint
+        tenantResolver.resolve(testTenant.getSubdomain());
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testTenants.delete(testTenant);
+        tenantResolver.invalidate(testTenant);
+    }
+
+    @ParameterizedTest(name = "{0} → {1} query")
+    @DisplayName("✅ Cada endpoint ejecuta solo su propia query")
+    @CsvSource({
+            "/api/auth/me, 1",
+            "/api/customer/profile, 1",
+            "/api/customer/orders, 1",
+            "/api/customer/bookings, 1",
+            "/api/orders, 1",
+            "/api/payments/pending-list, 1",
+            "/api/admin/stats/order-status, 1",
+            "/api/booking-management/services, 1"
+    })
+    void testQueriesPerEndpoint(String url, long expectedQueries) throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(get(url)
+                        .header("Authorization", "Bearer " + token)
+                        .header("X-Tenant-Subdomain", testTenant.getSubdomain()))
+                .andExpect(status().isOk());
+
+        assertEquals(expectedQueries, statistics.getPrepareStatementCount(),
+                "Queries ejecutadas por " + url);
+    }
+}
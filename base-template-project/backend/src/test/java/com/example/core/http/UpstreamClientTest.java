@@ -0,0 +1,200 @@
+package com.example.core.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UpstreamClient contra un servidor local que inyecta latencia y errores (sin red, sin Spring)
+ */
+@DisplayName("🧪 Cliente HTTP saliente (stub local)")
+class UpstreamClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private AtomicInteger hits;
+    private AtomicInteger failuresLeft;
+    private CountDownLatch arrived;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        hits = new AtomicInteger();
+        failuresLeft = new AtomicInteger();
+        arrived = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/ok", exchange -> respond(exchange, 200, "ok"));
+        server.createContext("/slow", exchange -> {
+            sleep(500);
+            respond(exchange, 200, "tarde");
+        });
+        server.createContext("/flaky", exchange ->
+                respond(exchange, failuresLeft.getAndDecrement() > 0 ? 503 : 200, "ok"));
+        server.createContext("/down", exchange -> respond(exchange, 500, "error"));
+        server.createContext("/missing", exchange -> respond(exchange, 404, "no existe"));
+        server.createContext("/blocked", exchange -> {
+            arrived.countDown();
+            await(release);
+            respond(exchange, 200, "ok");
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("⏱️ Un upstream lento corta por read timeout")
+    void testReadTimeout() {
+        UpstreamSettings settings = settings();
+        settings.setReadTimeout(Duration.ofMillis(100));
+        UpstreamClient client = new UpstreamClient("stub", settings);
+
+        assertThrows(ResourceAccessException.class, () -> get(client, "/slow"));
+    }
+
+    @Test
+    @DisplayName("🔁 Las llamadas idempotentes se reintentan ante 503")
+    void testRetryOnServerError() {
+        UpstreamClient client = new UpstreamClient("stub", settings());
+        failuresLeft.set(2);
+
+        String body = client.callIdempotent(rc -> rc.get().uri("/flaky").retrieve().body(String.class));
+
+        assertEquals("ok", body);
+        assertEquals(3, hits.get());
+        assertEquals(2L, client.stats().get("retries"));
+    }
+
+    @Test
+    @DisplayName("🚫 Un 4xx no se reintenta ni abre el circuito")
+    void testClientErrorIsNotRetried() {
+        UpstreamClient client = new UpstreamClient("stub", settings());
+
+        assertThrows(HttpClientErrorException.class,
+                () -> client.callIdempotent(rc -> rc.get().uri("/missing").retrieve().body(String.class)));
+        assertEquals(1, hits.get());
+        assertEquals(0L, client.stats().get("failures"));
+    }
+
+    @Test
+    @DisplayName("🔌 Con el upstream caído el circuito se abre y deja de llamar")
+    void testCircuitOpens() {
+        UpstreamSettings settings = settings();
+        settings.setWindowSize(4);
+        settings.setMinimumCalls(4);
+        settings.setOpenDuration(Duration.ofMinutes(1));
+        UpstreamClient client = new UpstreamClient("stub", settings);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpServerErrorException.class, () -> get(client, "/down"));
+        }
+        assertThrows(UpstreamUnavailableException.class, () -> get(client, "/down"));
+
+        assertEquals(4, hits.get());
+        assertEquals("OPEN", client.stats().get("circuit"));
+        assertEquals(1L, client.stats().get("rejectedByCircuit"));
+    }
+
+    @Test
+    @DisplayName("🚧 El bulkhead rechaza cuando no hay lugar")
+    void testBulkheadRejects() throws Exception {
+        UpstreamSettings settings = settings();
+        settings.setMaxConcurrent(1);
+        settings.setMaxWait(Duration.ofMillis(20));
+        UpstreamClient client = new UpstreamClient("stub", settings);
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = caller.submit(() -> get(client, "/blocked"));
+            assertTrue(arrived.await(5, TimeUnit.SECONDS));
+
+            assertThrows(UpstreamUnavailableException.class, () -> get(client, "/ok"));
+
+            release.countDown();
+            assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+            assertEquals("ok", get(client, "/ok"));
+            assertEquals(1L, client.stats().get("rejectedByBulkhead"));
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("📊 Cada llamada queda en el histograma de latencias")
+    void testLatencyHistogram() {
+        UpstreamClient client = new UpstreamClient("stub", settings());
+        for (int i = 0; i < 5; i++) {
+            get(client, "/ok");
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> latency = (Map<String, Object>) client.stats().get("latency");
+        assertEquals(5L, latency.get("count"));
+        assertNotNull(latency.get("p99Ms"));
+    }
+
+    // ========== HELPERS ==========
+
+    private UpstreamSettings settings() {
+        UpstreamSettings settings = new UpstreamSettings();
+        settings.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setInitialBackoff(Duration.ofMillis(5));
+        return settings;
+    }
+
+    private static String get(UpstreamClient client, String path) {
+        return client.call(rc -> rc.get().uri(path).retrieve().body(String.class));
+    }
+
+    private void respond(HttpExchange exchange, int status, String text) throws IOException {
+        hits.incrementAndGet();
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package com.example.core.repository;
+
+import com.example.core.model.*;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cada finder de com.example.core.repository tiene que resolverse con un índice
+ * (db/migration/V4__finder_indexes.sql).
+ *
+ * Cada método se llama de verdad (en una transacción que se descarta) y el DataSource del test
+ * captura el SQL que Hibernate le manda al driver, con sus parámetros. Ese mismo statement se
+ * pasa por EXPLAIN con enable_seqscan = off: con tablas casi vacías el planner elegiría seq scan
+ * igual, así se ve qué haría con la tabla grande. El plan no puede tener ningún Seq Scan, tiene
+ * que filtrar por índice (Index Cond) y usar el índice pensado para ese finder.
+ *
+ * Un método nuevo en un repositorio sin su llamada acá hace fallar el test.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@DisplayName("🧪 Índices: cada finder de los repositorios usa un índice")
+class RepositoryIndexUsageTest {
+
+    private static final String ID = "00000000-0000-0000-0000-000000000001";
+    private static final String OTHER_ID = "00000000-0000-0000-0000-000000000002";
+    private static final String TENANT = "tenant-1";
+    private static final String USER = "user-1";
+    private static final String SERVICE = "service-1";
+    private static final LocalDate DATE = LocalDate.of(2026, 3, 2);
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 2, 10, 0);
+    private static final LocalTime FROM = LocalTime.of(10, 0);
+    private static final LocalTime TO = LocalTime.of(11, 0);
+
+    /**
+     * Métodos que no leen filas: inserts (el conflicto lo resuelve el índice único) y locks
+     */
+    private static final Set<String> NOT_FINDERS = Set.of(
+            "BookingRepository.lockServiceDay",
+            "DailySalesRollupRepository.upsertDelta",
+            "DailySalesRollupRepository.lockForRebuild",
+            "DailySalesRollupRepository.tryLockRebuildAll",
+            "PaymentTransitionRepository.claim",
+            "WebhookEventRepository.enqueue"
+    );
+
+    // Statements que ejecuta el finder en curso (null = no se captura)
+    private static final ThreadLocal<List<CapturedStatement>> CAPTURED = new ThreadLocal<>();
+
+    @TestConfiguration
+    static class SqlCaptureConfig {
+
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? capturing(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private DailySalesRollupRepository dailySalesRollupRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentTransitionRepository paymentTransitionRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    /**
+     * Repositorio.método → llamada al finder + índices que tienen que aparecer en el plan.
+     * Sin índice esperado: alcanza con que no haya seq scan (ej. UNIQUE con nombre generado).
+     * Las entidades van como getReference (Hibernate solo usa el id): llamar dentro de una transacción.
+     */
+    private Map<String, Finder> finders() {
+        Tenant tenant = entityManager.getReference(Tenant.class, TENANT);
+        User user = entityManager.getReference(User.class, USER);
+        ServiceItem service = entityManager.getReference(ServiceItem.class, SERVICE);
+        Order order = entityManager.getReference(Order.class, ID);
+        PageRequest page = PageRequest.of(0, 20);
+        PageRequest top = PageRequest.of(0, 10);
+        List<Booking.BookingStatus> calendarStatuses = List.of(Booking.BookingStatus.PENDING,
+                Booking.BookingStatus.CONFIRMED, Booking.BookingStatus.COMPLETED, Booking.BookingStatus.NO_SHOW);
+        List<WebhookEvent.Status> openStatuses = List.of(WebhookEvent.Status.PENDING, WebhookEvent.Status.PROCESSING);
+
+        return Map.ofEntries(
+                // ========== orders ==========
+                entry("OrderRepository.findByUser", finder(
+                        () -> orderRepository.findByUser(user),
+                        "idx_orders_user_created")),
+                entry("OrderRepository.findByUserOrderByCreatedAtDesc", finder(
+                        () -> orderRepository.findByUserOrderByCreatedAtDesc(user),
+                        "idx_orders_user_created")),
+                entry("OrderRepository.findByTenant", finder(
+                        () -> orderRepository.findByTenant(tenant),
+                        "idx_orders_tenant_")),
+                entry("OrderRepository.findByTenantOrderByCreatedAtDesc", finder(
+                        () -> orderRepository.findByTenantOrderByCreatedAtDesc(tenant),
+                        "idx_orders_tenant_created")),
+                entry("OrderRepository.findByStatus", finder(
+                        () -> orderRepository.findByStatus(Order.OrderStatus.PENDING),
+                        "idx_orders_status_created")),
+                entry("OrderRepository.findPageIdsByTenant", finder(
+                        () -> orderRepository.findPageIdsByTenant(tenant, NOW, ID, page),
+                        "idx_orders_tenant_created")),
+                entry("OrderRepository.findPageIdsByUser", finder(
+                        () -> orderRepository.findPageIdsByUser(user, NOW, ID, page),
+                        "idx_orders_user_created")),
+                entry("OrderRepository.findWithItemsByIdIn", finder(
+                        () -> orderRepository.findWithItemsByIdIn(List.of(ID, OTHER_ID)),
+                        "orders_pkey", "idx_order_items_order")),
+                entry("OrderRepository.getDashboardTotals", finder(
+                        () -> orderRepository.getDashboardTotals(tenant),
+                        "idx_orders_tenant_")),
+                entry("OrderRepository.countByStatus", finder(
+                        () -> orderRepository.countByStatus(tenant),
+                        "idx_orders_tenant_")),
+                entry("OrderRepository.countByPaymentMethod", finder(
+                        () -> orderRepository.countByPaymentMethod(tenant),
+                        "idx_orders_tenant_")),
+
+                // ========== order_items ==========
+                entry("OrderItemRepository.findTopProducts", finder(
+                        () -> orderItemRepository.findTopProducts(tenant, top),
+                        "idx_orders_tenant_status_created", "idx_order_items_order")),
+                entry("OrderItemRepository.findTopProductsBetween", finder(
+                        () -> orderItemRepository.findTopProductsBetween(tenant, NOW, NOW.plusDays(30), top),
+                        "idx_orders_tenant_status_created", "idx_order_items_order")),
+
+                // ========== payments ==========
+                entry("PaymentRepository.findByOrder", finder(
+                        () -> paymentRepository.findByOrder(order))),
+                entry("PaymentRepository.findByExternalId", finder(
+                        () -> paymentRepository.findByExternalId("123456789"),
+                        "idx_payments_external_id")),
+                entry("PaymentRepository.findByTenant", finder(
+                        () -> paymentRepository.findByTenant(tenant),
+                        "idx_payments_tenant_status")),
+                entry("PaymentRepository.findByStatus", finder(
+                        () -> paymentRepository.findByStatus(Payment.PaymentStatus.PENDING),
+                        "idx_payments_status_created")),
+                entry("PaymentRepository.findByTenantAndStatus", finder(
+                        () -> paymentRepository.findByTenantAndStatus(tenant, Payment.PaymentStatus.PENDING),
+                        "idx_payments_tenant_status")),
+                entry("PaymentRepository.countByStatus", finder(
+                        () -> paymentRepository.countByStatus(tenant),
+                        "idx_payments_tenant_status")),
+
+                // ========== payment_transitions ==========
+                entry("PaymentTransitionRepository.findByPaymentIdOrderByCreatedAtAsc", finder(
+                        () -> paymentTransitionRepository.findByPaymentIdOrderByCreatedAtAsc(ID),
+                        "idx_payment_transitions_payment")),
+
+                // ========== bookings ==========
+                entry("BookingRepository.findByUser", finder(
+                        () -> bookingRepository.findByUser(user),
+                        "idx_bookings_user_date")),
+                entry("BookingRepository.findByUserOrderByBookingDateDescStartTimeDesc", finder(
+                        () -> bookingRepository.findByUserOrderByBookingDateDescStartTimeDesc(user),
+                        "idx_bookings_user_date")),
+                entry("BookingRepository.findByTenant", finder(
+                        () -> bookingRepository.findByTenant(tenant),
+                        "idx_bookings_tenant_date_service")),
+                entry("BookingRepository.findByService", finder(
+                        () -> bookingRepository.findByService(service),
+                        "idx_bookings_service_date")),
+                entry("BookingRepository.findByOrder", finder(
+                        () -> bookingRepository.findByOrder(order),
+                        "idx_bookings_order")),
+                entry("BookingRepository.findByServiceAndBookingDate", finder(
+                        () -> bookingRepository.findByServiceAndBookingDate(service, DATE),
+                        "idx_bookings_service_date")),
+                entry("BookingRepository.findByServiceAndBookingDateBetween", finder(
+                        () -> bookingRepository.findByServiceAndBookingDateBetween(service, DATE, DATE.plusDays(30)),
+                        "idx_bookings_service_date")),
+                entry("BookingRepository.findByStatus", finder(
+                        () -> bookingRepository.findByStatus(Booking.BookingStatus.PENDING),
+                        "idx_bookings_status_date")),
+                entry("BookingRepository.findActiveIntervals", finder(
+                        () -> bookingRepository.findActiveIntervals(SERVICE, DATE, DATE.plusDays(30)),
+                        "idx_bookings_service_date")),
+                entry("BookingRepository.findConflictingBookings", finder(
+                        () -> bookingRepository.findConflictingBookings(SERVICE, DATE, FROM, TO),
+                        "idx_bookings_service_date")),
+                entry("BookingRepository.countConflictingBookings", finder(
+                        () -> bookingRepository.countConflictingBookings(SERVICE, DATE, FROM, TO, ID),
+                        "idx_bookings_service_date")),
+                entry("BookingRepository.findCalendar", finder(
+                        () -> bookingRepository.findCalendar(TENANT, null, DATE, DATE.plusDays(6), calendarStatuses),
+                        "idx_bookings_tenant_date_service")),
+                entry("BookingRepository.confirmPendingByOrder", finder(
+                        () -> bookingRepository.confirmPendingByOrder(ID),
+                        "idx_bookings_order")),
+                entry("BookingRepository.cancelActiveByOrder", finder(
+                        () -> bookingRepository.cancelActiveByOrder(ID, "Orden cancelada"),
+                        "idx_bookings_order")),
+
+                // ========== items (products / services) ==========
+                entry("ItemRepository.findAllByIdInAndTenantId", finder(
+                        () -> itemRepository.findAllByIdInAndTenantId(List.of("item-1", "item-2"), TENANT))),
+                entry("ItemRepository.findByIdAndTenantId", finder(
+                        () -> itemRepository.findByIdAndTenantId("item-1", TENANT))),
+                entry("ProductRepository.findByActiveTrue", finder(
+                        () -> productRepository.findByActiveTrue(),
+                        "idx_items_active_category")),
+                entry("ProductRepository.findByActiveTrueAndTenant", finder(
+                        () -> productRepository.findByActiveTrueAndTenant(tenant),
+                        "idx_items_tenant_active_category")),
+                entry("ProductRepository.findByCategoryAndActiveTrue", finder(
+                        () -> productRepository.findByCategoryAndActiveTrue("BEBIDAS"),
+                        "idx_items_active_category")),
+                entry("ProductRepository.findByCategoryAndActiveTrueAndTenant", finder(
+                        () -> productRepository.findByCategoryAndActiveTrueAndTenant("BEBIDAS", tenant),
+                        "idx_items_tenant_active_category")),
+                entry("ProductRepository.findByStockGreaterThan", finder(
+                        () -> productRepository.findByStockGreaterThan(100),
+                        "idx_products_stock")),
+                entry("ProductRepository.findByStockGreaterThanAndTenant", finder(
+                        () -> productRepository.findByStockGreaterThanAndTenant(100, tenant))),
+                entry("ProductRepository.decrementStock", finder(
+                        () -> productRepository.decrementStock("item-1", 1),
+                        "products_pkey")),
+                entry("ProductRepository.incrementStock", finder(
+                        () -> productRepository.incrementStock("item-1", 1),
+                        "products_pkey")),
+                entry("ServiceRepository.findByActiveTrue", finder(
+                        () -> serviceRepository.findByActiveTrue(),
+                        "idx_items_active_category")),
+                entry("ServiceRepository.findByActiveTrueAndTenant", finder(
+                        () -> serviceRepository.findByActiveTrueAndTenant(tenant),
+                        "idx_items_tenant_active_category")),
+                entry("ServiceRepository.findByCategoryAndActiveTrue", finder(
+                        () -> serviceRepository.findByCategoryAndActiveTrue("CLASES"),
+                        "idx_items_active_category")),
+                entry("ServiceRepository.findByCategoryAndActiveTrueAndTenant", finder(
+                        () -> serviceRepository.findByCategoryAndActiveTrueAndTenant("CLASES", tenant),
+                        "idx_items_tenant_active_category")),
+
+                // ========== tenants / users / addresses ==========
+                entry("TenantRepository.findBySubdomain", finder(
+                        () -> tenantRepository.findBySubdomain("demo"))),
+                entry("UserRepository.findByEmail", finder(
+                        () -> userRepository.findByEmail("demo@example.com"))),
+                entry("UserRepository.findWithTenantById", finder(
+                        () -> userRepository.findWithTenantById(USER),
+                        "users_pkey", "tenants_pkey")),
+                entry("UserRepository.findByRole", finder(
+                        () -> userRepository.findByRole(Role.ADMIN),
+                        "idx_users_role")),
+                entry("UserRepository.findByTenant", finder(
+                        () -> userRepository.findByTenant(tenant),
+                        "idx_users_tenant")),
+                entry("AddressRepository.findByUserIdAndTenantIdOrderByIsDefaultDescCreatedAtDesc", finder(
+                        () -> addressRepository.findByUserIdAndTenantIdOrderByIsDefaultDescCreatedAtDesc(USER, TENANT),
+                        "idx_addresses_user_tenant")),
+                entry("AddressRepository.findByUserIdAndTenantIdAndIsDefaultTrue", finder(
+                        () -> addressRepository.findByUserIdAndTenantIdAndIsDefaultTrue(USER, TENANT),
+                        "idx_addresses_user_tenant")),
+                entry("AddressRepository.findByIdAndUserIdAndTenantId", finder(
+                        () -> addressRepository.findByIdAndUserIdAndTenantId("address-1", USER, TENANT))),
+                entry("AddressRepository.removeDefaultFromUserAddresses", finder(
+                        () -> addressRepository.removeDefaultFromUserAddresses(USER, TENANT),
+                        "idx_addresses_user_tenant")),
+                entry("AddressRepository.countByUserIdAndTenantId", finder(
+                        () -> addressRepository.countByUserIdAndTenantId(USER, TENANT),
+                        "idx_addresses_user_tenant")),
+
+                // ========== daily_sales_rollup ==========
+                entry("DailySalesRollupRepository.findByTenantAndSalesDateGreaterThanEqualOrderBySalesDateAsc", finder(
+                        () -> dailySalesRollupRepository.findByTenantAndSalesDateGreaterThanEqualOrderBySalesDateAsc(tenant, DATE),
+                        "uk_daily_sales_rollup_tenant_date")),
+                entry("DailySalesRollupRepository.sumTotalSince", finder(
+                        () -> dailySalesRollupRepository.sumTotalSince(tenant, DATE),
+                        "uk_daily_sales_rollup_tenant_date")),
+                entry("DailySalesRollupRepository.deleteByTenantId", finder(
+                        () -> dailySalesRollupRepository.deleteByTenantId(TENANT),
+                        "uk_daily_sales_rollup_tenant_date")),
+                entry("DailySalesRollupRepository.rebuildForTenant", finder(
+                        () -> dailySalesRollupRepository.rebuildForTenant(TENANT),
+                        "idx_orders_tenant_status_created")),
+
+                // ========== webhook_inbox ==========
+                entry("WebhookEventRepository.claim", finder(
+                        () -> webhookEventRepository.claim(10, NOW, NOW.minusMinutes(5)),
+                        "idx_webhook_inbox_status_next")),
+                entry("WebhookEventRepository.markDone", finder(
+                        () -> webhookEventRepository.markDone("event-1", NOW, NOW, null),
+                        "webhook_inbox_pkey")),
+                entry("WebhookEventRepository.reschedule", finder(
+                        () -> webhookEventRepository.reschedule("event-1", NOW, NOW, "error"),
+                        "webhook_inbox_pkey")),
+                entry("WebhookEventRepository.markFailed", finder(
+                        () -> webhookEventRepository.markFailed("event-1", NOW, NOW, "error"),
+                        "webhook_inbox_pkey")),
+                entry("WebhookEventRepository.retryFailed", finder(
+                        () -> webhookEventRepository.retryFailed(NOW),
+                        "idx_webhook_inbox_status_next")),
+                entry("WebhookEventRepository.countByStatus", finder(
+                        () -> webhookEventRepository.countByStatus(WebhookEvent.Status.PENDING),
+                        "idx_webhook_inbox_status_next")),
+                entry("WebhookEventRepository.findOldestReceivedAt", finder(
+                        () -> webhookEventRepository.findOldestReceivedAt(openStatuses),
+                        "idx_webhook_inbox_status_next"))
+        );
+    }
+
+    @Test
+    @DisplayName("📋 Todos los métodos de los repositorios tienen su llamada en el test")
+    void testEveryFinderIsCovered() {
+        Set<String> methods = repositoryMethods();
+        Set<String> covered = finderNames();
+
+        Set<String> missing = new TreeSet<>(methods);
+        missing.removeAll(covered);
+        missing.removeAll(NOT_FINDERS);
+        assertTrue(missing.isEmpty(), "Finders sin índice verificado: " + missing);
+
+        Set<String> stale = new TreeSet<>(covered);
+        stale.removeAll(methods);
+        assertTrue(stale.isEmpty(), "Llamadas a métodos que ya no existen: " + stale);
+    }
+
+    @Test
+    @DisplayName("🔎 EXPLAIN del SQL de Hibernate: ningún finder hace seq scan")
+    void testEveryFinderUsesAnIndex() {
+        List<String> failures = new ArrayList<>();
+
+        for (String name : finderNames()) {
+            String failure;
+            try {
+                failure = check(name);
+            } catch (RuntimeException e) {
+                failure = name + " → no se pudo explicar: " + e.getMessage();
+            }
+            if (failure != null) {
+                failures.add(failure);
+            }
+        }
+
+        assertTrue(failures.isEmpty(), failures.size() + " finders sin índice:\n\n" + String.join("\n\n", failures));
+    }
+
+    // ========== HELPERS ==========
+
+    private Set<String> finderNames() {
+        return transactionTemplate.execute(status -> new TreeSet<>(finders().keySet()));
+    }
+
+    /**
+     * Corre el finder, toma el primer statement que mandó (los siguientes son cargas de
+     * asociaciones) y lo explica con los mismos parámetros. Devuelve null si usa el índice.
+     * Todo en una transacción que se descarta: los UPDATE/DELETE no dejan rastro.
+     */
+    private String check(String name) {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            // SET LOCAL: solo dura esta transacción
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+            Finder finder = finders().get(name);
+            List<CapturedStatement> statements = new ArrayList<>();
+            CAPTURED.set(statements);
+            try {
+                finder.call().run();
+            } finally {
+                CAPTURED.remove();
+            }
+            if (statements.isEmpty()) {
+                return name + " → no mandó SQL";
+            }
+
+            CapturedStatement statement = statements.get(0);
+            String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> explain(connection, statement));
+
+            List<String> problems = new ArrayList<>();
+            if (plan.contains("Seq Scan")) {
+                problems.add("seq scan");
+            }
+            if (!plan.contains("Index Cond")) {
+                problems.add("sin Index Cond");
+            }
+            for (String index : finder.indexes()) {
+                if (!plan.contains(index)) {
+                    problems.add("no usa " + index);
+                }
+            }
+            return problems.isEmpty() ? null : name + " → " + problems + "\n" + statement.sql() + "\n" + plan;
+        });
+    }
+
+    private static String explain(Connection connection, CapturedStatement statement) throws SQLException {
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+            for (BoundParameter parameter : statement.parameters()) {
+                parameter.applyTo(explain);
+            }
+            List<String> lines = new ArrayList<>();
+            try (ResultSet rs = explain.executeQuery()) {
+                while (rs.next()) {
+                    lines.add(rs.getString(1));
+                }
+            }
+            return String.join("\n", lines);
+        }
+    }
+
+    /**
+     * DataSource que, mientras CAPTURED está activo, guarda cada PreparedStatement que se
+     * ejecuta con sus parámetros
+     */
+    private static DataSource capturing(DataSource target) {
+        Class<?>[] types = target instanceof AutoCloseable
+                ? new Class<?>[]{DataSource.class, AutoCloseable.class} // close() del pool al apagar
+                : new Class<?>[]{DataSource.class};
+        return (DataSource) proxy(types, target, (method, args, result) ->
+                result instanceof Connection connection
+                        ? proxy(new Class<?>[]{Connection.class}, connection, (m, a, r) ->
+                                r instanceof PreparedStatement prepared && m.getName().equals("prepareStatement")
+                                        ? capturing(prepared, (String) a[0])
+                                        : r)
+                        : result);
+    }
+
+    private static PreparedStatement capturing(PreparedStatement target, String sql) {
+        List<BoundParameter> parameters = new ArrayList<>();
+        return (PreparedStatement) proxy(new Class<?>[]{PreparedStatement.class}, target, (method, args, result) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && method.getParameterTypes()[0] == int.class) {
+                parameters.add(new BoundParameter(method, args));
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.startsWith("execute") && CAPTURED.get() != null) {
+                CAPTURED.get().add(new CapturedStatement(sql, List.copyOf(parameters)));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Delega todo en target y pasa el resultado por after
+     */
+    private static Object proxy(Class<?>[] types, Object target, AfterCall after) {
+        return Proxy.newProxyInstance(RepositoryIndexUsageTest.class.getClassLoader(), types, (proxy, method, args) -> {
+            // Identidad del proxy: Spring compara la conexión de la transacción con la que le devuelven
+            if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return after.apply(method, args, result);
+        });
+    }
+
+    private static Set<String> repositoryMethods() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                return beanDefinition.getMetadata().isInterface();
+            }
+        };
+        scanner.addIncludeFilter(new AssignableTypeFilter(org.springframework.data.repository.Repository.class));
+
+        Set<String> methods = new TreeSet<>();
+        scanner.findCandidateComponents("com.example.core.repository").forEach(candidate -> {
+            try {
+                Class<?> repository = Class.forName(candidate.getBeanClassName());
+                for (Method method : repository.getDeclaredMethods()) {
+                    if (!method.isSynthetic() && !method.isDefault() && !Modifier.isStatic(method.getModifiers())) {
+                        methods.add(repository.getSimpleName() + "." + method.getName());
+                    }
+                }
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertFalse(methods.isEmpty(), "No se encontraron repositorios");
+        return methods;
+    }
+
+    private static Finder finder(Runnable call, String... indexes) {
+        return new Finder(call, List.of(indexes));
+    }
+
+    private record Finder(Runnable call, List<String> indexes) {
+    }
+
+    private record CapturedStatement(String sql, List<BoundParameter> parameters) {
+    }
+
+    // setString(1, "x"), setObject(2, fecha, Types.DATE)...: se repite igual sobre el EXPLAIN
+    private record BoundParameter(Method setter, Object[] args) {
+        void applyTo(PreparedStatement statement) throws SQLException {
+            try {
+                setter.invoke(statement, args);
+            } catch (ReflectiveOperationException e) {
+                throw new SQLException("No se pudo repetir " + setter.getName(), e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface AfterCall {
+        Object apply(Method method, Object[] args, Object result) throws Throwable;
+    }
+}
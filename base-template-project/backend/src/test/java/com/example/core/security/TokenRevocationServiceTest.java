@@ -0,0 +1,69 @@
+package com.example.core.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Registro de revocaciones de JWT: no pierde revocaciones vigentes
+ */
+@DisplayName("🔒 Revocación de tokens")
+class TokenRevocationServiceTest {
+
+    private static final long TTL_MS = 3_600_000;
+
+    @Test
+    @DisplayName("✅ Solo los tokens emitidos antes del cambio quedan desactualizados")
+    void testRevokeMarksOlderTokens() {
+        TokenRevocationService service = new TokenRevocationService(TTL_MS, 10);
+        Date before = new Date(System.currentTimeMillis() - 1000);
+
+        assertFalse(service.isStale("ana@test.com", before));
+
+        service.revokeTokensOf("ana@test.com");
+
+        assertTrue(service.isStale("ana@test.com", before));
+        assertTrue(service.isStale("ana@test.com", null));
+        assertFalse(service.isStale("ana@test.com", new Date(System.currentTimeMillis() + 1000)));
+        assertFalse(service.isStale("otro@test.com", before));
+    }
+
+    @Test
+    @DisplayName("🚫 Lleno de revocaciones vigentes: falla cerrado en vez de olvidar alguna")
+    void testOverflowFailsClosed() {
+        TokenRevocationService service = new TokenRevocationService(TTL_MS, 3);
+        Date before = new Date(System.currentTimeMillis() - 1000);
+
+        for (int i = 0; i < 5; i++) {
+            service.revokeTokensOf("user" + i + "@test.com");
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.isStale("user" + i + "@test.com", before), "user" + i + " perdió su revocación");
+        }
+        // El desborde revalida también a usuarios que nunca se revocaron
+        assertTrue(service.isStale("otro@test.com", before));
+        assertEquals(1L, service.stats().get("overflows"));
+    }
+
+    @Test
+    @DisplayName("⏱️ Pasado el TTL del JWT la revocación deja de aplicar")
+    void testRevocationExpiresWithTokenTtl() throws InterruptedException {
+        TokenRevocationService service = new TokenRevocationService(50, 1);
+        Date before = new Date(System.currentTimeMillis() - 1000);
+
+        service.revokeTokensOf("ana@test.com");
+        assertTrue(service.isStale("ana@test.com", before));
+
+        Thread.sleep(100);
+
+        assertFalse(service.isStale("ana@test.com", before));
+        // La entrada vencida se libera sin disparar el desborde
+        service.revokeTokensOf("beto@test.com");
+        assertEquals(0L, service.stats().get("overflows"));
+        assertEquals(1, service.stats().get("size"));
+    }
+}
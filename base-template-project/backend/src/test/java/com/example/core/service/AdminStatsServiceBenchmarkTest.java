@@ -0,0 +1,180 @@
+package com.example.core.service;
+
+import com.example.core.dto.AdminStatsDTO;
+import com.example.core.model.*;
+import com.example.core.repository.*;
+import com.example.core.support.TestTenants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara el dashboard calculado en memoria (implementación anterior) contra los agregados SQL.
+ * Ambos tienen que dar el mismo AdminStatsDTO; los tiempos se loguean para comparar.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import(TestTenants.class)
+@DisplayName("🧪 Benchmark: dashboard en memoria vs agregados SQL")
+@Slf4j
+class AdminStatsServiceBenchmarkTest {
+
+    private static final int ORDERS = 5_000;
+    private static final int CUSTOMERS = 50;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private AdminStatsService adminStatsService;
+
+    @Autowired
+    private TestTenants testTenants;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private DailySalesRollupService dailySalesRollupService;
+
+    @Autowired
+    private DailySalesRollupRepository dailySalesRollupRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Tenant testTenant;
+    private List<User> customers;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = testTenants.create("bench");
+
+        customers = testTenants.users(testTenant, Role.CLIENTE, CUSTOMERS);
+
+        Order.OrderStatus[] statuses = Order.OrderStatus.values();
+        Order.PaymentMethod[] methods = Order.PaymentMethod.values();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUser(customers.get(i % CUSTOMERS));
+            order.setTenant(testTenant);
+            order.setTotal(BigDecimal.valueOf(100 + (i % 37)).setScale(2));
+            order.setStatus(statuses[i % statuses.length]);
+            order.setPaymentMethod(methods[i % methods.length]);
+            orders.add(order);
+        }
+        orders = orderRepository.saveAll(orders);
+
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i += 10) {
+            Payment payment = new Payment();
+            payment.setOrder(orders.get(i));
+            payment.setTenant(testTenant);
+            payment.setMethod(Payment.PaymentMethod.CASH);
+            payment.setAmount(orders.get(i).getTotal());
+            payment.setStatus(i % 20 == 0 ? Payment.PaymentStatus.APPROVED : Payment.PaymentStatus.PENDING);
+            payments.add(payment);
+        }
+        paymentRepository.saveAll(payments);
+
+        // Las órdenes se insertaron directo: backfill del rollup como haría el job
+        dailySalesRollupService.rebuild(testTenant.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(s -> dailySalesRollupRepository.deleteByTenantId(testTenant.getId()));
+        paymentRepository.deleteAll(paymentRepository.findByTenant(testTenant));
+        orderRepository.deleteAll(orderRepository.findByTenant(testTenant));
+        testTenants.delete(testTenant);
+    }
+
+    @Test
+    @DisplayName("⚡ Agregados SQL devuelven lo mismo que el cálculo en memoria")
+    void testSqlAggregatesMatchInMemory() {
+        // Warm-up (JIT + cache de planes)
+        AdminStatsDTO expected = transactionTemplate.execute(s -> inMemoryDashboard(testTenant));
+        AdminStatsDTO actual = adminStatsService.getDashboardStats(testTenant);
+
+        long inMemoryNanos = 0;
+        long sqlNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            transactionTemplate.execute(s -> inMemoryDashboard(testTenant));
+            inMemoryNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            adminStatsService.getDashboardStats(testTenant);
+            sqlNanos += System.nanoTime() - start;
+        }
+
+        log.info("📊 Dashboard con {} órdenes → en memoria: {} ms, SQL: {} ms (promedio de {})",
+                ORDERS, inMemoryNanos / ROUNDS / 1_000_000, sqlNanos / ROUNDS / 1_000_000, ROUNDS);
+
+        assertEquals(0, expected.getTotalSales().compareTo(actual.getTotalSales()));
+        assertEquals(expected.getTotalOrders(), actual.getTotalOrders());
+        assertEquals(expected.getPendingOrders(), actual.getPendingOrders());
+        assertEquals(expected.getApprovedPayments(), actual.getApprovedPayments());
+        assertEquals(expected.getPendingPayments(), actual.getPendingPayments());
+        assertEquals(expected.getActiveCustomers(), actual.getActiveCustomers());
+        assertEquals(0, expected.getMonthlyRevenue().compareTo(actual.getMonthlyRevenue()));
+        assertEquals(0, expected.getAverageTicket().compareTo(actual.getAverageTicket()));
+    }
+
+    // ========== HELPERS ==========
+
+    /**
+     * Implementación anterior de AdminStatsController.getDashboardStats (todo en memoria)
+     */
+    private AdminStatsDTO inMemoryDashboard(Tenant tenant) {
+        List<Order> allOrders = orderRepository.findByTenant(tenant);
+        List<Payment> allPayments = paymentRepository.findByTenant(tenant);
+
+        AdminStatsDTO stats = new AdminStatsDTO();
+
+        BigDecimal totalSales = allOrders.stream()
+                .filter(o -> o.getStatus() == Order.OrderStatus.CONFIRMED)
+                .map(Order::getTotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        stats.setTotalSales(totalSales);
+        stats.setTotalOrders(allOrders.size());
+        stats.setPendingOrders((int) allOrders.stream()
+                .filter(o -> o.getStatus() == Order.OrderStatus.PENDING).count());
+        stats.setApprovedPayments((int) allPayments.stream()
+                .filter(p -> p.getStatus() == Payment.PaymentStatus.APPROVED).count());
+        stats.setPendingPayments((int) allPayments.stream()
+                .filter(p -> p.getStatus() == Payment.PaymentStatus.PENDING).count());
+        stats.setActiveCustomers((int) allOrders.stream().map(Order::getUser).distinct().count());
+
+        LocalDateTime startOfMonth = LocalDateTime.of(LocalDate.now().withDayOfMonth(1), LocalTime.MIDNIGHT);
+        stats.setMonthlyRevenue(allOrders.stream()
+                .filter(o -> o.getCreatedAt().isAfter(startOfMonth) &&
+                        o.getStatus() == Order.OrderStatus.CONFIRMED)
+                .map(Order::getTotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+
+        stats.setAverageTicket(totalSales.compareTo(BigDecimal.ZERO) > 0
+                ? totalSales.divide(BigDecimal.valueOf(allOrders.size()), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
+        return stats;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.core.service;
+
+import com.example.core.dto.CreateOrderRequest;
+import com.example.core.exception.BadRequestException;
+import com.example.core.model.*;
+import com.example.core.repository.*;
+import com.example.core.support.TestTenants;
+import com.example.core.util.UuidV7;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reservas en paralelo por el mismo turno: nunca se reserva más que la capacidad.
+ * Sin @Transactional: cada reserva corre en su propia transacción, como en producción.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import(TestTenants.class)
+@DisplayName("🧪 Capacidad de turnos concurrente")
+class BookingCapacityConcurrencyTest {
+
+    private static final int CAPACITY = 3;
+    private static final int CLIENTS = 20;
+    private static final LocalDate DATE = LocalDate.now().plusDays(7);
+    private static final LocalTime TEN = LocalTime.of(10, 0);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestTenants testTenants;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Tenant testTenant;
+    private User testUser;
+    private ServiceItem testService;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = testTenants.create("turnos", Tenant.BusinessType.GYM);
+        testUser = testTenants.user(testTenant, Role.CLIENTE);
+
+        testService = serviceRepository.save(service("Clase grupal"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll(bookingRepository.findByTenant(testTenant));
+        orderRepository.deleteAll(orderRepository.findByTenant(testTenant));
+        serviceRepository.deleteAll(serviceRepository.findByActiveTrueAndTenant(testTenant));
+        testTenants.delete(testTenant);
+    }
+
+    @Test
+    @DisplayName("🔒 N reservas en paralelo por el mismo turno ocupan exactamente la capacidad")
+    void testNoOverbookingUnderParallelReservations() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+
+        int succeeded = runInParallel(CLIENTS, () -> {
+            try {
+                bookingService.createBooking(testService.getId(), testUser, DATE, TEN, null);
+                return true;
+            } catch (BadRequestException e) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        });
+
+        assertEquals(CAPACITY, succeeded);
+        assertEquals(CLIENTS - CAPACITY, rejected.get());
+        assertEquals(CAPACITY, activeBookings(testService));
+    }
+
+    @Test
+    @DisplayName("🛒 Órdenes con varios lugares y reservas sueltas comparten el mismo límite")
+    void testOrdersAndSingleBookingsShareCapacity() throws Exception {
+        // Cada orden pide 2 lugares, cada reserva suelta 1: mezcladas nunca pasan de CAPACITY
+        int succeeded = runInParallel(CLIENTS, new Callable<>() {
+            private final AtomicInteger turn = new AtomicInteger();
+
+            @Override
+            public Boolean call() {
+                try {
+                    if (turn.getAndIncrement() % 2 == 0) {
+                        orderService.createOrder(twoSeatOrder(), testUser);
+                    } else {
+                        bookingService.createBooking(testService.getId(), testUser, DATE, TEN, null);
+                    }
+                    return true;
+                } catch (BadRequestException e) {
+                    return false;
+                }
+            }
+        });
+
+        assertTrue(succeeded >= 2, "Al menos una orden o dos reservas sueltas tienen que entrar");
+        assertTrue(activeBookings(testService) <= CAPACITY,
+                "Sobreventa: " + activeBookings(testService) + " > " + CAPACITY);
+    }
+
+    @Test
+    @DisplayName("⚡ Otro servicio el mismo día no espera ni comparte capacidad")
+    void testDifferentServicesAreIndependent() throws Exception {
+        ServiceItem other = serviceRepository.save(service("Otra clase"));
+
+        int succeeded = runInParallel(CLIENTS, new Callable<>() {
+            private final AtomicInteger turn = new AtomicInteger();
+
+            @Override
+            public Boolean call() {
+                ServiceItem target = turn.getAndIncrement() % 2 == 0 ? testService : other;
+                try {
+                    bookingService.createBooking(target.getId(), testUser, DATE, TEN, null);
+                    return true;
+                } catch (BadRequestException e) {
+                    return false;
+                }
+            }
+        });
+
+        assertEquals(2 * CAPACITY, succeeded);
+        assertEquals(CAPACITY, activeBookings(testService));
+        assertEquals(CAPACITY, activeBookings(other));
+    }
+
+    // ========== HELPERS ==========
+
+    private int runInParallel(int threads, Callable<Boolean> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get(30, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        pool.shutdown();
+        return succeeded;
+    }
+
+    private long activeBookings(ServiceItem service) {
+        return bookingRepository.countConflictingBookings(service.getId(), DATE, TEN, TEN.plusMinutes(60), UuidV7.NIL);
+    }
+
+    private ServiceItem service(String name) {
+        ServiceItem service = new ServiceItem();
+        service.setName(name);
+        service.setPrice(BigDecimal.valueOf(1000));
+        service.setTenant(testTenant);
+        service.setActive(true);
+        service.setRequiresBooking(true);
+        service.setDurationMinutes(60);
+        service.setMaxCapacity(CAPACITY);
+        service.setAvailableDays(EnumSet.allOf(DayOfWeek.class));
+        service.setWorkStartTime(LocalTime.of(9, 0));
+        service.setWorkEndTime(LocalTime.of(18, 0));
+        return service;
+    }
+
+    private CreateOrderRequest twoSeatOrder() {
+        CreateOrderRequest.OrderItemRequest line = new CreateOrderRequest.OrderItemRequest();
+        line.setItemId(testService.getId());
+        line.setQuantity(2);
+        line.setBookingDate(DATE.toString());
+        line.setBookingTime(TEN.toString());
+
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setPaymentMethod("CASH");
+        request.setIsDelivery(false);
+        request.setItems(new ArrayList<>(List.of(line)));
+        return request;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.core.service;
+
+import com.example.core.dto.CreateOrderRequest;
+import com.example.core.model.*;
+import com.example.core.repository.*;
+import com.example.core.support.TestTenants;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statements JDBC y latencia por checkout para carritos de 1, 10 y 50 líneas,
+ * con la configuración de escritura (batch_size + order_inserts) contra la misma
+ * transacción forzada a batch 1 (un round trip por fila, como antes).
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+@Import(TestTenants.class)
+@DisplayName("🧪 Benchmark: escrituras del checkout con JDBC batch")
+@Slf4j
+class CheckoutWriteBenchmarkTest {
+
+    private static final int[] CART_SIZES = {1, 10, 50};
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestTenants testTenants;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+    private Tenant testTenant;
+    private User testUser;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = testTenants.create("checkout");
+        testUser = testTenants.user(testTenant, Role.CLIENTE);
+
+        products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Product product = new Product();
+            product.setName("Producto " + i);
+            product.setPrice(BigDecimal.valueOf(100 + i));
+            product.setStock(1_000);
+            product.setCategory("BENCH");
+            product.setActive(true);
+            product.setTenant(testTenant);
+            products.add(product);
+        }
+        products = productRepository.saveAll(products);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findByTenant(testTenant));
+        productRepository.deleteAll(products);
+        testTenants.delete(testTenant);
+    }
+
+    @Test
+    @DisplayName("⚡ Con batch el checkout hace menos round trips y no depende del tamaño del carrito")
+    void testBatchedCheckoutUsesFewerStatements() {
+        // Warm-up (JIT + cache de planes)
+        checkout(10, null);
+        checkout(10, 1);
+
+        log.info("📊 Checkout: líneas | statements sin batch → con batch | ms sin batch → con batch");
+        for (int lines : CART_SIZES) {
+            Result unbatched = measure(lines, 1);
+            Result batched = measure(lines, null);
+
+            log.info("📊 {} líneas | {} → {} statements | {} → {} ms",
+                    lines, unbatched.statements, batched.statements,
+                    String.format("%.1f", unbatched.millis), String.format("%.1f", batched.millis));
+
+            assertTrue(batched.statements <= unbatched.statements);
+            if (lines > 1) {
+                // Los order_items salen en un batch: al menos lines - 1 round trips menos
+                assertTrue(batched.statements <= unbatched.statements - (lines - 1),
+                        lines + " líneas: " + batched.statements + " vs " + unbatched.statements);
+            }
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private Result measure(int lines, Integer jdbcBatchSize) {
+        long statements = 0;
+        long nanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            statistics.clear();
+            long start = System.nanoTime();
+            checkout(lines, jdbcBatchSize);
+            nanos += System.nanoTime() - start;
+            statements += statistics.getPrepareStatementCount();
+        }
+        return new Result(statements / ROUNDS, nanos / ROUNDS / 1_000_000.0);
+    }
+
+    /**
+     * Un checkout en su propia transacción. jdbcBatchSize null = configuración de la app;
+     * 1 = sin batch (solo para esta sesión).
+     */
+    private void checkout(int lines, Integer jdbcBatchSize) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (jdbcBatchSize != null) {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            }
+            orderService.createOrder(cart(lines), testUser);
+        });
+    }
+
+    private CreateOrderRequest cart(int lines) {
+        List<CreateOrderRequest.OrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            CreateOrderRequest.OrderItemRequest line = new CreateOrderRequest.OrderItemRequest();
+            line.setItemId(products.get(i).getId());
+            line.setQuantity(1);
+            items.add(line);
+        }
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setPaymentMethod("CASH");
+        request.setIsDelivery(false);
+        request.setItems(items);
+        return request;
+    }
+
+    private record Result(long statements, double millis) {
+    }
+}
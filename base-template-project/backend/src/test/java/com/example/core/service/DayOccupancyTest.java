@@ -0,0 +1,70 @@
+package com.example.core.service;
+
+import com.example.core.dto.BookingIntervalDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ocupación por minuto: tiene que contar lo mismo que recorrer las reservas una por una
+ * (criterio de findConflictingBookings: start < fin del turno y end > inicio del turno)
+ */
+@DisplayName("🗓️ Ocupación de turnos por minuto")
+class DayOccupancyTest {
+
+    @Test
+    @DisplayName("✅ Coincide con el conteo reserva por reserva")
+    void testMatchesBruteForce() {
+        Random random = new Random(42);
+        List<BookingIntervalDTO> bookings = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int start = 8 * 60 + random.nextInt(10 * 60);
+            int length = 15 + random.nextInt(90);
+            bookings.add(interval(start, Math.min(start + length, 23 * 60 + 59)));
+        }
+        DayOccupancy occupancy = DayOccupancy.of(bookings);
+
+        for (int start = 7 * 60; start < 20 * 60; start += 10) {
+            for (int duration : new int[]{15, 30, 60}) {
+                int s = start;
+                int e = start + duration;
+                long expected = bookings.stream()
+                        .filter(b -> minute(b.getStartTime()) < e && minute(b.getEndTime()) > s)
+                        .count();
+                assertEquals(expected, occupancy.overlapping(s, e), "Turno " + s + "-" + e);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("⏱️ Reservas pegadas al turno no lo ocupan")
+    void testAdjacentBookingsDoNotOverlap() {
+        DayOccupancy occupancy = DayOccupancy.of(List.of(
+                interval(9 * 60, 10 * 60),
+                interval(11 * 60, 12 * 60)));
+
+        assertEquals(0, occupancy.overlapping(10 * 60, 11 * 60));
+        assertEquals(1, occupancy.overlapping(9 * 60 + 30, 10 * 60 + 30));
+        assertEquals(2, occupancy.overlapping(9 * 60, 12 * 60));
+        assertEquals(0, DayOccupancy.empty().overlapping(9 * 60, 10 * 60));
+    }
+
+    // ========== HELPERS ==========
+
+    private static BookingIntervalDTO interval(int startMinute, int endMinute) {
+        return new BookingIntervalDTO(LocalDate.of(2025, 3, 10),
+                LocalTime.of(startMinute / 60, startMinute % 60),
+                LocalTime.of(endMinute / 60, endMinute % 60));
+    }
+
+    private static int minute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
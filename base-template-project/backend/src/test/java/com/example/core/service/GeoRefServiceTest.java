@@ -0,0 +1,183 @@
+package com.example.core.service;
+
+import com.example.core.dto.LocalityDTO;
+import com.example.core.exception.ServiceUnavailableException;
+import com.example.core.http.OutboundHttp;
+import com.example.core.http.OutboundHttpProperties;
+import com.example.core.http.UpstreamSettings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GeoRefService contra un servidor local que imita la API de GeoRef (sin red, sin Spring):
+ * copia en disco y reintentos cuando no hay snapshot.
+ */
+@DisplayName("🗺️ Snapshot de GeoRef (stub local)")
+class GeoRefServiceTest {
+
+    private static final Map<String, String> RESPONSES = Map.of(
+            "/provincias", """
+                    {"cantidad": 2, "total": 2, "inicio": 0, "provincias": [
+                      {"id": "06", "nombre": "Buenos Aires"},
+                      {"id": "14", "nombre": "Córdoba"}
+                    ]}
+                    """,
+            "/municipios", """
+                    {"cantidad": 2, "total": 2, "inicio": 0, "municipios": [
+                      {"id": "060357", "nombre": "General Pueyrredón", "provincia": {"id": "06", "nombre": "Buenos Aires"}},
+                      {"id": "140098", "nombre": "Calamuchita", "provincia": {"id": "14", "nombre": "Córdoba"}}
+                    ]}
+                    """,
+            "/localidades", """
+                    {"cantidad": 2, "total": 2, "inicio": 0, "localidades": [
+                      {"id": "06357060", "nombre": "Mar del Plata",
+                       "municipio": {"id": "060357", "nombre": "General Pueyrredón"},
+                       "provincia": {"id": "06", "nombre": "Buenos Aires"}},
+                      {"id": "14098170", "nombre": "Villa General Belgrano",
+                       "municipio": {"id": "140098", "nombre": "Calamuchita"},
+                       "provincia": {"id": "14", "nombre": "Córdoba"}}
+                    ]}
+                    """
+    );
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private AtomicInteger provinceCalls;
+    private volatile boolean failing;
+    private OutboundHttp outboundHttp;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        provinceCalls = new AtomicInteger();
+        failing = false;
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        RESPONSES.forEach((path, json) -> server.createContext(path, exchange -> {
+            if (path.equals("/provincias")) {
+                provinceCalls.incrementAndGet();
+            }
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(failing ? 503 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }));
+        server.start();
+
+        // Sin reintentos: acá se cuentan llamadas al stub (los reintentos se prueban en UpstreamClientTest)
+        UpstreamSettings settings = new UpstreamSettings();
+        settings.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setMaxAttempts(1);
+        OutboundHttpProperties properties = new OutboundHttpProperties();
+        properties.getUpstreams().put("georef", settings);
+        outboundHttp = new OutboundHttp(properties);
+
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("💾 Lo que se baja queda en disco y otra instancia arranca de ahí sin ir a GeoRef")
+    void testSnapshotRoundTrip() {
+        Path snapshotPath = tempDir.resolve("georef-snapshot.json");
+
+        GeoRefService fetched = service(snapshotPath, true, Duration.ofMinutes(1));
+        fetched.loadAtStartup();
+
+        assertTrue(Files.exists(snapshotPath));
+        assertEquals(1, provinceCalls.get());
+
+        GeoRefService loaded = service(snapshotPath, true, Duration.ofMinutes(1));
+        loaded.loadAtStartup();
+
+        assertEquals(1, provinceCalls.get(), "Con copia en disco no se baja de nuevo");
+        assertEquals(fetched.stats(), loaded.stats());
+        assertEquals(fetched.getAllProvinces(), loaded.getAllProvinces());
+        assertEquals(fetched.getMunicipalitiesByProvince("14"), loaded.getMunicipalitiesByProvince("14"));
+        assertEquals(fetched.getLocalitiesByMunicipality("060357"), loaded.getLocalitiesByMunicipality("060357"));
+        assertTrue(loaded.isValidMunicipalityId("140098"));
+
+        List<LocalityDTO> found = loaded.searchLocalitiesByName("villa gen", null, 10);
+        assertEquals(List.of("14098170"), found.stream().map(LocalityDTO::getId).toList());
+    }
+
+    @Test
+    @DisplayName("⏱️ Sin snapshot y GeoRef caído: 503 inmediato y como mucho un intento por intervalo")
+    void testOnDemandRefreshIsThrottled() {
+        failing = true;
+        GeoRefService service = service(tempDir.resolve("georef-snapshot.json"), true, Duration.ofMinutes(1));
+        service.loadAtStartup();
+        assertEquals(1, provinceCalls.get());
+
+        for (int i = 0; i < 20; i++) {
+            assertThrows(ServiceUnavailableException.class, service::getAllProvinces);
+            // Sin datos no se puede decir que la provincia sea inválida
+            assertThrows(ServiceUnavailableException.class, () -> service.isValidProvinceId("14"));
+        }
+
+        assertEquals(1, provinceCalls.get(), "Dentro del intervalo no se vuelve a llamar a GeoRef");
+    }
+
+    @Test
+    @DisplayName("🔄 Pasado el intervalo se reintenta en segundo plano, sin bloquear la request")
+    void testOnDemandRefreshRetriesInBackground() throws InterruptedException {
+        failing = true;
+        GeoRefService service = service(tempDir.resolve("georef-snapshot.json"), true, Duration.ofMillis(200));
+        service.loadAtStartup();
+        assertEquals(1, provinceCalls.get());
+
+        failing = false;
+        Thread.sleep(300);
+
+        // La request que dispara el reintento tampoco espera: falla y la descarga sigue aparte
+        assertThrows(ServiceUnavailableException.class, service::getAllProvinces);
+
+        List<?> provinces = List.of();
+        for (int i = 0; i < 50 && provinces.isEmpty(); i++) {
+            Thread.sleep(100);
+            try {
+                provinces = service.getAllProvinces();
+            } catch (ServiceUnavailableException e) {
+                // Todavía bajando
+            }
+        }
+        assertEquals(2, provinces.size());
+        assertEquals(2, provinceCalls.get());
+
+        service.getAllProvinces();
+        assertEquals(2, provinceCalls.get(), "Con snapshot ya no se reintenta");
+        service.shutdown();
+    }
+
+    // ========== HELPERS ==========
+
+    private GeoRefService service(Path snapshotPath, boolean refreshOnStartup, Duration retryInterval) {
+        return new GeoRefService(outboundHttp, objectMapper, snapshotPath.toString(), refreshOnStartup, retryInterval);
+    }
+}
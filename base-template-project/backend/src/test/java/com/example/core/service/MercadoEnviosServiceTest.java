@@ -0,0 +1,128 @@
+package com.example.core.service;
+
+import com.example.core.dto.ShippingCalculationRequest;
+import com.example.core.dto.ShippingOptionDTO;
+import com.example.core.exception.BadRequestException;
+import com.example.core.http.OutboundHttp;
+import com.example.core.http.OutboundHttpProperties;
+import com.example.core.http.UpstreamSettings;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MercadoEnviosService contra un servidor local que imita /sites/MLA/shipping_costs
+ * (sin red, sin Spring): verifica el cache de cotizaciones.
+ */
+@DisplayName("🧪 Cotizaciones de MercadoEnvíos (stub local)")
+class MercadoEnviosServiceTest {
+
+    private static final String QUOTE_JSON = """
+            {"options": [
+              {"id": 100009, "name": "Estándar", "cost": 1500, "speed": {"shipping": 72, "handling": 24}},
+              {"id": 100012, "name": "Express", "cost": 2700, "speed": {"shipping": 24, "handling": 24}}
+            ]}
+            """;
+
+    private HttpServer server;
+    private AtomicInteger calls;
+    private volatile int status;
+    private MercadoEnviosService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        calls = new AtomicInteger();
+        status = 200;
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/sites/MLA/shipping_costs", exchange -> {
+            calls.incrementAndGet();
+            byte[] body = QUOTE_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        // Sin reintentos: acá se cuentan llamadas al stub (los reintentos se prueban en UpstreamClientTest)
+        UpstreamSettings settings = new UpstreamSettings();
+        settings.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setMaxAttempts(1);
+        OutboundHttpProperties properties = new OutboundHttpProperties();
+        properties.getUpstreams().put("mercadoenvios", settings);
+
+        service = new MercadoEnviosService("test-token", new OutboundHttp(properties),
+                100, 60, BigDecimal.valueOf(1000));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("✅ El checkout valida el método elegido sobre la cotización cacheada")
+    void testCheckoutReusesQuote() {
+        // El cliente cotiza en el carrito...
+        assertEquals(2, service.calculateShipping(request("5000", 15_400)).getOptions().size());
+
+        // ...y al confirmar la orden (mismo rango de precio) no se vuelve a llamar a ML
+        ShippingOptionDTO express = service.findShippingOption(request("5000", 15_900), 100012L);
+        assertEquals(0, BigDecimal.valueOf(2700).compareTo(express.getCost()));
+        assertEquals(1, calls.get());
+        assertEquals(1L, service.quoteCacheStats().get("hits"));
+    }
+
+    @Test
+    @DisplayName("📦 Otro destino o rango de precio es otra cotización")
+    void testDifferentKeysAreQuotedSeparately() {
+        service.calculateShipping(request("5000", 15_400));
+        service.calculateShipping(request("2000", 15_400));
+        service.calculateShipping(request("5000", 25_000));
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    @DisplayName("🚫 Método de envío inexistente es rechazado")
+    void testUnknownShippingMethodRejected() {
+        assertThrows(BadRequestException.class,
+                () -> service.findShippingOption(request("5000", 15_400), 999L));
+    }
+
+    @Test
+    @DisplayName("⚠️ Los errores de ML no se cachean")
+    void testErrorsAreNotCached() {
+        status = 500;
+        assertThrows(BadRequestException.class, () -> service.calculateShipping(request("5000", 15_400)));
+
+        status = 200;
+        assertEquals(2, service.calculateShipping(request("5000", 15_400)).getOptions().size());
+        assertEquals(2, calls.get());
+    }
+
+    // ========== HELPERS ==========
+
+    private ShippingCalculationRequest request(String zipTo, long listCost) {
+        return ShippingCalculationRequest.builder()
+                .zipCodeFrom("1000")
+                .zipCodeTo(zipTo)
+                .dimensions("20x20x10,1000")
+                .listCost(BigDecimal.valueOf(listCost))
+                .freeShipping(false)
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.core.service;
+
+import com.example.core.http.OutboundHttpProperties;
+import com.example.core.model.Tenant;
+import com.example.core.model.TenantConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Registro de clientes MP por tenant (sin Spring ni red: solo arma clientes)
+ */
+@DisplayName("🔑 Clientes de MercadoPago por tenant")
+class MercadoPagoClientsTest {
+
+    private MercadoPagoClients clients;
+
+    @BeforeEach
+    void setUp() {
+        clients = new MercadoPagoClients("PLATFORM-TOKEN", "PLATFORM-SECRET", null, new OutboundHttpProperties());
+    }
+
+    @Test
+    @DisplayName("♻️ El cliente del tenant se crea una vez y se reutiliza")
+    void testClientIsCachedPerTenant() {
+        Tenant tenant = tenant("t1", "TOKEN-1");
+
+        MercadoPagoClients.TenantClient first = clients.forTenant(tenant);
+        assertSame(first, clients.forTenant(tenant));
+        assertEquals("TOKEN-1", first.getAccessToken());
+        assertNotSame(first, clients.forTenant(tenant("t2", "TOKEN-2")));
+    }
+
+    @Test
+    @DisplayName("🔄 Si el tenant cambia el token se arma un cliente nuevo")
+    void testTokenRotationReplacesClient() {
+        MercadoPagoClients.TenantClient before = clients.forTenant(tenant("t1", "TOKEN-1"));
+        MercadoPagoClients.TenantClient after = clients.forTenant(tenant("t1", "TOKEN-NUEVO"));
+
+        assertNotSame(before, after);
+        assertEquals("TOKEN-NUEVO", after.getAccessToken());
+        assertEquals(1, clients.stats().get("clients"));
+    }
+
+    @Test
+    @DisplayName("🏢 Sin credenciales propias se usa la cuenta de la plataforma")
+    void testPlatformFallback() {
+        MercadoPagoClients.TenantClient a = clients.forTenant(tenant("t1", null));
+        MercadoPagoClients.TenantClient b = clients.forTenant(tenant("t2", " "));
+
+        assertSame(a, b);
+        assertEquals("PLATFORM-TOKEN", a.getAccessToken());
+        assertEquals("PLATFORM-TOKEN", clients.accessToken(null));
+        assertEquals("PLATFORM-SECRET", clients.webhookSecret(null));
+        assertNull(clients.accountOwner(tenant("t1", null)));
+        assertEquals("t2", clients.accountOwner(tenant("t2", "TOKEN-2")));
+    }
+
+    @Test
+    @DisplayName("🙈 Los secretos de MP no salen en el config público y se conservan al editar")
+    void testAccessTokenIsNotExposed() {
+        TenantConfig stored = tenant("t1", "TOKEN-1").getConfig();
+        TenantConfig published = stored.withoutSecrets();
+
+        assertNull(published.getMercadoPago().getAccessToken());
+        assertNull(published.getMercadoPago().getWebhookSecret());
+        assertEquals("PUBLIC-KEY", published.getMercadoPago().getPublicKey());
+        assertEquals("TOKEN-1", stored.getMercadoPago().getAccessToken());
+
+        // El admin reenvía el config que recibió (sin token): no se pierde
+        published.keepSecretsFrom(stored);
+        assertEquals("TOKEN-1", published.getMercadoPago().getAccessToken());
+        assertEquals("SECRET", published.getMercadoPago().getWebhookSecret());
+    }
+
+    // ========== HELPERS ==========
+
+    private Tenant tenant(String id, String accessToken) {
+        TenantConfig.MercadoPagoCredentials credentials = new TenantConfig.MercadoPagoCredentials();
+        credentials.setAccessToken(accessToken);
+        credentials.setPublicKey("PUBLIC-KEY");
+        credentials.setWebhookSecret("SECRET");
+        TenantConfig config = new TenantConfig();
+        config.setMercadoPago(credentials);
+        Tenant tenant = new Tenant();
+        tenant.setId(id);
+        tenant.setConfig(config);
+        return tenant;
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.core.service;
 
+import com.example.core.dto.BookingCalendarEntryDTO;
 import com.example.core.dto.CreateOrderRequest;
 import com.example.core.dto.CreatePaymentRequest;
+import com.example.core.exception.BadRequestException;
 import com.example.core.model.*;
 import com.example.core.repository.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +15,10 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +50,12 @@ class PaymentIntegrationTest {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
     private User testUser;
     private Tenant testTenant;
     private Product testProduct;
@@ -93,7 +105,7 @@ class PaymentIntegrationTest {
         request.setNotes("Test order");
 
         // Act
-        Order order = orderService.createOrder(request, testUser.getEmail());
+        Order order = orderService.createOrder(request, testUser);
 
         // Assert
         assertNotNull(order.getId());
@@ -337,15 +349,131 @@ class PaymentIntegrationTest {
         request.setPaymentMethod("CASH");
 
         // Act
-        orderService.createOrder(request, testUser.getEmail());
+        orderService.createOrder(request, testUser);
 
         // Assert
         Product updated = productRepository.findById(testProduct.getId()).orElseThrow();
         assertEquals(initialStock - 3, updated.getStock());
     }
 
+    @Test
+    @DisplayName("🔀 14. Un rechazo que llega después de la aprobación no deshace la venta")
+    @Transactional
+    void testRejectedAfterApprovedIsIgnored() {
+        // Arrange
+        Order order = createTestOrder();
+        Payment payment = createTestPayment(order, "MERCADO_PAGO");
+        paymentService.processMercadoPagoWebhookExternalRef(order.getId(), "approved");
+
+        // Act - Llega un "rejected" fuera de orden
+        paymentService.processMercadoPagoWebhookExternalRef(order.getId(), "rejected");
+
+        // Assert - APPROVED es final: ni se cancela la orden ni se devuelve stock
+        Payment updated = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertEquals(Payment.PaymentStatus.APPROVED, updated.getStatus());
+        assertEquals(Order.OrderStatus.CONFIRMED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertEquals(9, productRepository.findById(testProduct.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("🚫 15. No se puede reabrir una orden cancelada")
+    @Transactional
+    void testIllegalOrderTransitionRejected() {
+        // Arrange
+        Order order = createTestOrder();
+        orderService.cancelOrder(order.getId(), "Cliente arrepentido");
+
+        // Act & Assert
+        assertThrows(BadRequestException.class,
+                () -> orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CONFIRMED));
+    }
+
+    @Test
+    @DisplayName("🗓️ 16. Aprobar/rechazar actualiza todos los lugares reservados de la orden")
+    @Transactional
+    void testBookingSeatsFollowPayment() {
+        // Arrange: dos órdenes de 3 lugares cada una (un booking por lugar)
+        ServiceItem service = createBookableService();
+        Order approvedOrder = createServiceOrder(service, 3);
+        Order rejectedOrder = createServiceOrder(service, 3);
+
+        // Act
+        paymentService.approvePayment(createTestPayment(approvedOrder, "BANK_TRANSFER").getId());
+        paymentService.rejectPayment(createTestPayment(rejectedOrder, "BANK_TRANSFER").getId(), "Sin fondos");
+
+        // Assert (proyección: lee de la base, no de las entidades en memoria)
+        List<BookingCalendarEntryDTO> seats = bookingRepository.findCalendar(testTenant.getId(), service.getId(),
+                BOOKING_DATE, BOOKING_DATE, EnumSet.allOf(Booking.BookingStatus.class));
+        assertEquals(6, seats.size());
+        seats.forEach(seat -> {
+            boolean approved = approvedOrder.getId().equals(seat.getOrderId());
+            assertEquals(approved ? "CONFIRMED" : "CANCELLED", seat.getStatus());
+            if (!approved) {
+                assertTrue(seat.getNotes().endsWith("Sin fondos"), seat.getNotes());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("🔐 17. Un pago de la cuenta MP de otro tenant no confirma la orden")
+    @Transactional
+    void testWebhookFromOtherTenantAccountRejected() {
+        // Arrange: otro tenant con cuenta de MP propia
+        TenantConfig.MercadoPagoCredentials credentials = new TenantConfig.MercadoPagoCredentials();
+        credentials.setAccessToken("OTHER-TENANT-TOKEN");
+        TenantConfig config = new TenantConfig();
+        config.setMercadoPago(credentials);
+        Tenant otherTenant = new Tenant();
+        otherTenant.setSubdomain("other-tenant");
+        otherTenant.setBusinessName("Other Business");
+        otherTenant.setType(Tenant.BusinessType.RETAIL);
+        otherTenant.setConfig(config);
+        otherTenant = tenantRepository.save(otherTenant);
+        String otherTenantId = otherTenant.getId();
+
+        Order order = createTestOrder();
+        Payment payment = createTestPayment(order, "MERCADO_PAGO");
+
+        // Act & Assert: el pago se leyó con las credenciales del otro tenant
+        assertThrows(BadRequestException.class, () -> paymentService.processMercadoPagoWebhookExternalRef(
+                order.getId(), "approved", "mp:spoof:approved", otherTenantId));
+
+        Payment unchanged = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertEquals(Payment.PaymentStatus.PENDING, unchanged.getStatus());
+        assertEquals(Order.OrderStatus.PENDING, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+    }
+
     // ========== HELPERS ==========
 
+    private static final LocalDate BOOKING_DATE = LocalDate.now().plusDays(3);
+
+    private ServiceItem createBookableService() {
+        ServiceItem service = new ServiceItem();
+        service.setName("Clase grupal");
+        service.setPrice(BigDecimal.valueOf(500.00));
+        service.setTenant(testTenant);
+        service.setRequiresBooking(true);
+        service.setDurationMinutes(60);
+        service.setMaxCapacity(10);
+        service.setAvailableDays(EnumSet.allOf(DayOfWeek.class));
+        service.setWorkStartTime(LocalTime.of(9, 0));
+        service.setWorkEndTime(LocalTime.of(18, 0));
+        return serviceRepository.save(service);
+    }
+
+    private Order createServiceOrder(ServiceItem service, int seats) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        CreateOrderRequest.OrderItemRequest itemReq = new CreateOrderRequest.OrderItemRequest();
+        itemReq.setItemId(service.getId());
+        itemReq.setQuantity(seats);
+        itemReq.setBookingDate(BOOKING_DATE.toString());
+        itemReq.setBookingTime("10:00");
+        request.setItems(List.of(itemReq));
+        request.setPaymentMethod("BANK_TRANSFER");
+        request.setIsDelivery(false);
+        return orderService.createOrder(request, testUser);
+    }
+
     private Order createTestOrder() {
         CreateOrderRequest request = new CreateOrderRequest();
         CreateOrderRequest.OrderItemRequest itemReq = new CreateOrderRequest.OrderItemRequest();
@@ -353,7 +481,7 @@ class PaymentIntegrationTest {
         itemReq.setQuantity(1);
         request.setItems(List.of(itemReq));
         request.setPaymentMethod("MERCADO_PAGO");
-        return orderService.createOrder(request, testUser.getEmail());
+        return orderService.createOrder(request, testUser);
     }
 
     private Payment createTestPayment(Order order, String method) {
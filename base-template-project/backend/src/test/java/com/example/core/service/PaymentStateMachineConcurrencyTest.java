@@ -0,0 +1,244 @@
+package com.example.core.service;
+
+import com.example.core.dto.CreateOrderRequest;
+import com.example.core.dto.CreatePaymentRequest;
+import com.example.core.model.*;
+import com.example.core.repository.*;
+import com.example.core.support.TestTenants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Entregas de webhooks en paralelo sobre el mismo pago.
+ * Sin @Transactional: cada entrega corre en su propia transacción, como en producción.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import(TestTenants.class)
+@DisplayName("🧪 Máquina de estados de pagos con entregas concurrentes")
+class PaymentStateMachineConcurrencyTest {
+
+    private static final int STOCK = 10;
+    private static final int DELIVERIES = 8;
+    private static final int ROLLUP_ORDERS = 6;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private TestTenants testTenants;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentTransitionRepository paymentTransitionRepository;
+
+    @Autowired
+    private DailySalesRollupRepository dailySalesRollupRepository;
+
+    @Autowired
+    private DailySalesRollupService dailySalesRollupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Tenant testTenant;
+    private User testUser;
+    private Product testProduct;
+    private Order order;
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = testTenants.create("fsm");
+        testUser = testTenants.user(testTenant, Role.CLIENTE);
+
+        testProduct = new Product();
+        testProduct.setName("Producto FSM");
+        testProduct.setPrice(BigDecimal.valueOf(100.00));
+        testProduct.setStock(STOCK);
+        testProduct.setCategory("TEST");
+        testProduct.setActive(true);
+        testProduct.setTenant(testTenant);
+        testProduct = productRepository.save(testProduct);
+
+        order = createOrder(2);
+
+        CreatePaymentRequest paymentRequest = new CreatePaymentRequest();
+        paymentRequest.setOrderId(order.getId());
+        paymentRequest.setMethod("BANK_TRANSFER");
+        payment = paymentService.createPayment(paymentRequest);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentTransitionRepository.deleteAll(
+                    paymentTransitionRepository.findByPaymentIdOrderByCreatedAtAsc(payment.getId()));
+            paymentRepository.deleteById(payment.getId());
+            orderRepository.deleteAll(orderRepository.findByTenant(testTenant));
+            dailySalesRollupRepository.deleteByTenantId(testTenant.getId());
+        });
+        productRepository.delete(testProduct);
+        testTenants.delete(testTenant);
+    }
+
+    @Test
+    @DisplayName("🔁 La misma notificación entregada N veces en paralelo se aplica una sola vez")
+    void testParallelDuplicateDeliveriesApplyOnce() throws Exception {
+        runInParallel(DELIVERIES, i -> paymentService.processMercadoPagoWebhookExternalRef(
+                order.getId(), "rejected", "mp:555:rejected"));
+
+        assertEquals(Payment.PaymentStatus.REJECTED, reloadPayment().getStatus());
+        assertEquals(Order.OrderStatus.CANCELLED, reloadOrder().getStatus());
+        assertEquals(STOCK, reloadStock()); // Stock devuelto una sola vez
+        assertEquals(1, paymentTransitionRepository.findByPaymentIdOrderByCreatedAtAsc(payment.getId()).size());
+    }
+
+    @Test
+    @DisplayName("⚔️ approved y rejected en paralelo: gana uno y el estado queda consistente")
+    void testConflictingDeliveriesStayConsistent() throws Exception {
+        runInParallel(2, i -> {
+            String status = i == 0 ? "approved" : "rejected";
+            try {
+                paymentService.processMercadoPagoWebhookExternalRef(order.getId(), status, "mp:" + i + ":" + status);
+            } catch (ConcurrencyFailureException e) {
+                // Perdió la carrera por @Version: el inbox lo reintenta y ahí la transición es ilegal
+            }
+        });
+
+        Payment.PaymentStatus paymentStatus = reloadPayment().getStatus();
+        Order.OrderStatus orderStatus = reloadOrder().getStatus();
+        if (paymentStatus == Payment.PaymentStatus.APPROVED) {
+            assertEquals(Order.OrderStatus.CONFIRMED, orderStatus);
+            assertEquals(STOCK - 2, reloadStock());
+        } else {
+            assertEquals(Payment.PaymentStatus.REJECTED, paymentStatus);
+            assertEquals(Order.OrderStatus.CANCELLED, orderStatus);
+            assertEquals(STOCK, reloadStock());
+        }
+        assertEquals(1, paymentTransitionRepository.findByPaymentIdOrderByCreatedAtAsc(payment.getId()).size());
+    }
+
+    @Test
+    @DisplayName("🚫 Cancelar una orden confirmada pasa por la máquina de estados y resta del rollup")
+    void testCancelOrderGoesThroughStateMachine() {
+        orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CONFIRMED);
+        assertEquals(1, rollupOrderCount());
+
+        orderService.cancelOrder(order.getId(), "Sin retiro");
+
+        assertEquals(Order.OrderStatus.CANCELLED, reloadOrder().getStatus());
+        assertEquals(0, rollupOrderCount());
+        assertEquals(STOCK, reloadStock());
+        assertThrows(RuntimeException.class, () -> orderService.cancelOrder(order.getId(), "Otra vez"));
+    }
+
+    @Test
+    @DisplayName("📊 Rebuild del rollup en paralelo con confirmaciones: no pierde ni duplica ventas")
+    void testRollupRebuildDuringConfirmations() throws Exception {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ROLLUP_ORDERS; i++) {
+            orders.add(createOrder(1));
+        }
+
+        runInParallel(ROLLUP_ORDERS + 1, i -> {
+            if (i == ROLLUP_ORDERS) {
+                for (int round = 0; round < 3; round++) {
+                    dailySalesRollupService.rebuild(testTenant.getId());
+                }
+            } else {
+                orderService.updateOrderStatus(orders.get(i).getId(), Order.OrderStatus.CONFIRMED);
+            }
+        });
+
+        BigDecimal expectedTotal = orders.stream().map(Order::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal rollupTotal = rollupRows().stream()
+                .map(DailySalesRollup::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(ROLLUP_ORDERS, rollupOrderCount());
+        assertEquals(0, expectedTotal.compareTo(rollupTotal), expectedTotal + " vs " + rollupTotal);
+    }
+
+    // ========== HELPERS ==========
+
+    private Order createOrder(int quantity) {
+        CreateOrderRequest.OrderItemRequest line = new CreateOrderRequest.OrderItemRequest();
+        line.setItemId(testProduct.getId());
+        line.setQuantity(quantity);
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setPaymentMethod("BANK_TRANSFER");
+        request.setIsDelivery(false);
+        request.setItems(new ArrayList<>(List.of(line)));
+        return orderService.createOrder(request, testUser);
+    }
+
+    private List<DailySalesRollup> rollupRows() {
+        return dailySalesRollupRepository.findByTenantAndSalesDateGreaterThanEqualOrderBySalesDateAsc(
+                testTenant, LocalDate.now().minusDays(1));
+    }
+
+    private int rollupOrderCount() {
+        return rollupRows().stream().mapToInt(DailySalesRollup::getOrderCount).sum();
+    }
+
+    private interface Delivery {
+        void run(int index) throws Exception;
+    }
+
+    private void runInParallel(int threads, Delivery delivery) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                delivery.run(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    private Payment reloadPayment() {
+        return paymentRepository.findById(payment.getId()).orElseThrow();
+    }
+
+    private Order reloadOrder() {
+        return orderRepository.findById(order.getId()).orElseThrow();
+    }
+
+    private int reloadStock() {
+        return productRepository.findById(testProduct.getId()).orElseThrow().getStock();
+    }
+}
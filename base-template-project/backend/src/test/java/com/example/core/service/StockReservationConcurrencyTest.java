@@ -0,0 +1,153 @@
+package com.example.core.service;
+
+import com.example.core.dto.CreateOrderRequest;
+import com.example.core.model.*;
+import com.example.core.repository.*;
+import com.example.core.support.TestTenants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checkouts en paralelo contra el mismo producto: nunca se vende más que el stock disponible.
+ * Sin @Transactional: cada createOrder corre en su propia transacción, como en producción.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import(TestTenants.class)
+@DisplayName("🧪 Reserva de stock concurrente")
+class StockReservationConcurrencyTest {
+
+    private static final int STOCK = 5;
+    private static final int BUYERS = 20;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestTenants testTenants;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Tenant testTenant;
+    private User testUser;
+    private Product testProduct;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = testTenants.create("stock");
+        testUser = testTenants.user(testTenant, Role.CLIENTE);
+
+        testProduct = new Product();
+        testProduct.setName("Último modelo");
+        testProduct.setPrice(BigDecimal.valueOf(100.00));
+        testProduct.setStock(STOCK);
+        testProduct.setCategory("TEST");
+        testProduct.setActive(true);
+        testProduct.setTenant(testTenant);
+        testProduct = productRepository.save(testProduct);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findByTenant(testTenant));
+        productRepository.delete(testProduct);
+        testTenants.delete(testTenant);
+    }
+
+    @Test
+    @DisplayName("🔒 N checkouts en paralelo venden exactamente el stock disponible")
+    void testNoOversellingUnderParallelCheckouts() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < BUYERS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(singleUnitRequest(), testUser);
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    assertTrue(e.getMessage().startsWith("Stock insuficiente"), e.getMessage());
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        Product reloaded = productRepository.findById(testProduct.getId()).orElseThrow();
+        assertEquals(STOCK, succeeded.get());
+        assertEquals(BUYERS - STOCK, rejected.get());
+        assertEquals(0, reloaded.getStock());
+        assertEquals(STOCK, orderRepository.findByTenant(testTenant).size());
+    }
+
+    @Test
+    @DisplayName("🚫 Un faltante cancela todo el carrito (sin descuentos parciales)")
+    void testShortfallRollsBackWholeCart() {
+        Product other = new Product();
+        other.setName("Otro producto");
+        other.setPrice(BigDecimal.valueOf(50.00));
+        other.setStock(10);
+        other.setCategory("TEST");
+        other.setActive(true);
+        other.setTenant(testTenant);
+        Product savedOther = productRepository.save(other);
+
+        try {
+            CreateOrderRequest request = singleUnitRequest();
+            request.getItems().get(0).setQuantity(STOCK + 1);
+            request.getItems().add(line(savedOther.getId(), 2));
+
+            assertThrows(RuntimeException.class, () -> orderService.createOrder(request, testUser));
+
+            assertEquals(STOCK, productRepository.findById(testProduct.getId()).orElseThrow().getStock());
+            assertEquals(10, productRepository.findById(savedOther.getId()).orElseThrow().getStock());
+        } finally {
+            productRepository.delete(savedOther);
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private CreateOrderRequest singleUnitRequest() {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setPaymentMethod("CASH");
+        request.setIsDelivery(false);
+        request.setItems(new ArrayList<>(List.of(line(testProduct.getId(), 1))));
+        return request;
+    }
+
+    private CreateOrderRequest.OrderItemRequest line(String itemId, int quantity) {
+        CreateOrderRequest.OrderItemRequest line = new CreateOrderRequest.OrderItemRequest();
+        line.setItemId(itemId);
+        line.setQuantity(quantity);
+        return line;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.core.service;
+
+import com.example.core.model.Tenant;
+import com.example.core.repository.TenantRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TenantResolver sobre un TenantRepository en memoria (sin Spring ni DB): cuántas veces
+ * se va a la base por subdomain
+ */
+@DisplayName("🏢 Resolución de tenants por subdomain (cache)")
+class TenantResolverTest {
+
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final List<String> lookups = new ArrayList<>();
+    private final TenantRepository tenantRepository = inMemoryRepository();
+
+    @Test
+    @DisplayName("✅ El segundo resolve del mismo subdomain no va a la base")
+    void testResolveIsCached() {
+        save("shop", "Shop");
+        TenantResolver resolver = resolver(10);
+
+        TenantResolver.ResolvedTenant first = resolver.resolve("shop");
+        TenantResolver.ResolvedTenant second = resolver.resolve("shop");
+
+        assertSame(first, second);
+        assertEquals("Shop", first.getBusinessName());
+        assertNotNull(first.getConfigEtag());
+        assertEquals(List.of("shop"), lookups);
+    }
+
+    @Test
+    @DisplayName("🚫 Subdomain inexistente: cae al default y el 'no existe' queda cacheado")
+    void testUnknownSubdomainFallsBackToDefault() {
+        save(TenantResolver.DEFAULT_SUBDOMAIN, "Default");
+        TenantResolver resolver = resolver(10);
+
+        assertEquals("Default", resolver.resolve("nope").getBusinessName());
+        assertEquals("Default", resolver.resolve("nope").getBusinessName());
+        assertEquals(List.of("nope", TenantResolver.DEFAULT_SUBDOMAIN), lookups);
+
+        assertTrue(resolver.findBySubdomain("").isEmpty());
+        assertTrue(resolver.findBySubdomain(null).isEmpty());
+        assertEquals(2, lookups.size(), "Vacío no consulta la base");
+    }
+
+    @Test
+    @DisplayName("🚫 Sin tenant por defecto el resolve falla")
+    void testNoDefaultTenant() {
+        TenantResolver resolver = resolver(10);
+        assertThrows(RuntimeException.class, () -> resolver.resolve("nope"));
+    }
+
+    @Test
+    @DisplayName("🗑️ invalidate hace ver los cambios del tenant (y el alta de uno que no existía)")
+    void testInvalidate() {
+        Tenant shop = save("shop", "Shop");
+        TenantResolver resolver = resolver(10);
+        String etag = resolver.resolve("shop").getConfigEtag();
+
+        shop.setBusinessName("Shop renombrado");
+        assertEquals("Shop", resolver.resolve("shop").getBusinessName(), "Sin invalidar sigue el cacheado");
+
+        resolver.invalidate(shop);
+        TenantResolver.ResolvedTenant reloaded = resolver.resolve("shop");
+        assertEquals("Shop renombrado", reloaded.getBusinessName());
+        assertNotEquals(etag, reloaded.getConfigEtag());
+
+        assertTrue(resolver.findBySubdomain("new").isEmpty());
+        save("new", "New");
+        assertTrue(resolver.findBySubdomain("new").isEmpty(), "El 'no existe' sigue cacheado");
+        resolver.invalidate("new");
+        assertTrue(resolver.findBySubdomain("new").isPresent());
+
+        resolver.invalidateAll();
+        resolver.resolve("shop");
+        assertEquals(List.of("shop", "shop", "new", "new", "shop"), lookups);
+    }
+
+    @Test
+    @DisplayName("📏 Con el cache lleno se desaloja y se vuelve a cargar")
+    void testMaxSize() {
+        save("a", "A");
+        save("b", "B");
+        save("c", "C");
+        TenantResolver resolver = resolver(2);
+
+        resolver.resolve("a");
+        resolver.resolve("b");
+        resolver.resolve("c");
+        resolver.resolve("a");
+
+        assertEquals(List.of("a", "b", "c", "a"), lookups);
+        assertEquals(2, resolver.stats().get("size"));
+        assertEquals(2L, resolver.stats().get("evictions"));
+    }
+
+    // ========== HELPERS ==========
+
+    private TenantResolver resolver(int maxSize) {
+        return new TenantResolver(tenantRepository, new ObjectMapper(), maxSize, 60, 60);
+    }
+
+    private Tenant save(String subdomain, String businessName) {
+        Tenant tenant = new Tenant();
+        tenant.setId("id-" + subdomain);
+        tenant.setSubdomain(subdomain);
+        tenant.setBusinessName(businessName);
+        tenant.setType(Tenant.BusinessType.RETAIL);
+        tenants.put(subdomain, tenant);
+        return tenant;
+    }
+
+    /**
+     * Solo findBySubdomain (lo único que usa TenantResolver); anota cada consulta
+     */
+    private TenantRepository inMemoryRepository() {
+        return (TenantRepository) Proxy.newProxyInstance(TenantResolverTest.class.getClassLoader(),
+                new Class<?>[]{TenantRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findBySubdomain")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    String subdomain = (String) args[0];
+                    lookups.add(subdomain);
+                    return Optional.ofNullable(tenants.get(subdomain));
+                });
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.core.service;
+
+import com.example.core.model.*;
+import com.example.core.repository.*;
+import com.example.core.support.TestTenants;
+import com.example.core.util.UuidV7;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ids v4 en varchar (antes) contra v7 en uuid nativo (ahora): tamaño del índice de la PK,
+ * sobre tablas descartables con la misma forma que orders.id. El throughput de insert
+ * depende de la máquina: se loguea para comparar, no se asserta.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import(TestTenants.class)
+@DisplayName("🧪 Benchmark: ids UUID v4 varchar vs v7 uuid")
+@Slf4j
+class UuidV7BenchmarkTest {
+
+    private static final int ROWS = 50_000;
+    private static final int BATCH = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestTenants testTenants;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Tenant testTenant;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = testTenants.create("uuid");
+        testUser = testTenants.user(testTenant, Role.CLIENTE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_ids_v4");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_ids_v7");
+        orderRepository.deleteAll(orderRepository.findByTenant(testTenant));
+        testTenants.delete(testTenant);
+    }
+
+    @Test
+    @DisplayName("🆔 Las órdenes nuevas tienen ids v7 crecientes y se buscan por id")
+    void testOrdersGetTimeOrderedIds() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Order order = new Order();
+            order.setUser(testUser);
+            order.setTenant(testTenant);
+            order.setTotal(BigDecimal.TEN);
+            ids.add(orderRepository.save(order).getId());
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = UUID.fromString(ids.get(i));
+            assertEquals(7, id.version());
+            assertEquals(2, id.variant());
+            assertTrue(orderRepository.findById(ids.get(i)).isPresent());
+            if (i > 0) {
+                assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "ids fuera de orden: " + ids);
+            }
+        }
+        // Un id que no es UUID no rompe la consulta: simplemente no existe
+        assertTrue(orderRepository.findById("no-es-un-uuid").isEmpty());
+    }
+
+    @Test
+    @DisplayName("📏 v7 en uuid deja un índice de PK más chico que v4 en varchar")
+    void testPrimaryKeyIndexSize() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_ids_v4");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_ids_v7");
+        jdbcTemplate.execute("CREATE TABLE bench_ids_v4 (id varchar(255) PRIMARY KEY, total numeric(38,2))");
+        jdbcTemplate.execute("CREATE TABLE bench_ids_v7 (id uuid PRIMARY KEY, total numeric(38,2))");
+
+        double v4Millis = insert("bench_ids_v4", () -> UUID.randomUUID().toString(), Types.VARCHAR);
+        double v7Millis = insert("bench_ids_v7", UuidV7::next, Types.OTHER);
+
+        long v4Index = indexSize("bench_ids_v4_pkey");
+        long v7Index = indexSize("bench_ids_v7_pkey");
+
+        log.info("📊 {} inserts | v4 varchar: {} ms ({} filas/s), índice {} KB",
+                ROWS, Math.round(v4Millis), Math.round(ROWS / v4Millis * 1000), v4Index / 1024);
+        log.info("📊 {} inserts | v7 uuid:    {} ms ({} filas/s), índice {} KB",
+                ROWS, Math.round(v7Millis), Math.round(ROWS / v7Millis * 1000), v7Index / 1024);
+
+        // 16 bytes contra 37 por clave y páginas llenas (append) contra splits al azar
+        assertTrue(v7Index < v4Index, "índice v7 " + v7Index + " >= v4 " + v4Index);
+    }
+
+    // ========== HELPERS ==========
+
+    private double insert(String table, Supplier<Object> ids, int sqlType) {
+        long start = System.nanoTime();
+        for (int done = 0; done < ROWS; done += BATCH) {
+            List<Object[]> rows = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                rows.add(new Object[]{ids.get(), BigDecimal.TEN});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, total) VALUES (?, ?)",
+                    rows, new int[]{sqlType, Types.NUMERIC});
+        }
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    private long indexSize(String index) {
+        Long size = jdbcTemplate.queryForObject("SELECT pg_relation_size(CAST(? AS regclass))", Long.class, index);
+        return size != null ? size : 0;
+    }
+}
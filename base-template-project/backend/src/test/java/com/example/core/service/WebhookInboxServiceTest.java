@@ -0,0 +1,107 @@
+package com.example.core.service;
+
+import com.example.core.exception.BadRequestException;
+import com.example.core.model.WebhookEvent;
+import com.example.core.repository.WebhookEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("🧪 Inbox de webhooks de MercadoPago")
+class WebhookInboxServiceTest {
+
+    private static final String PAYMENT_ID = "mp-test-123";
+
+    @Autowired
+    private WebhookInboxService webhookInboxService;
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    @BeforeEach
+    void setUp() {
+        webhookEventRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("📥 Notificaciones repetidas del mismo pago quedan en una sola fila")
+    void testDuplicateNotificationsAreMerged() {
+        for (int i = 0; i < 3; i++) {
+            webhookInboxService.enqueueMercadoPagoPayment(PAYMENT_ID, "{\"type\":\"payment\"}");
+        }
+
+        List<WebhookEvent> events = webhookEventRepository.findAll();
+        assertEquals(1, events.size());
+        assertEquals(3, events.get(0).getNotifications());
+        assertEquals(WebhookEvent.Status.PENDING, events.get(0).getStatus());
+        assertEquals(1L, webhookInboxService.stats().get("queueDepth"));
+    }
+
+    @Test
+    @DisplayName("🔁 Una notificación que llega mientras se procesa no se pierde")
+    void testNotificationDuringProcessingIsKept() {
+        webhookInboxService.enqueueMercadoPagoPayment(PAYMENT_ID, "{}");
+
+        LocalDateTime now = LocalDateTime.now().plusSeconds(1);
+        List<WebhookEvent> claimed = webhookEventRepository.claim(10, now, now.minusMinutes(5));
+        assertEquals(1, claimed.size());
+        assertEquals(1, claimed.get(0).getAttempts());
+
+        // Llega otra notificación antes de que el worker termine
+        webhookInboxService.enqueueMercadoPagoPayment(PAYMENT_ID, "{}");
+
+        // El worker no puede marcarla DONE: vuelve a quedar para procesar
+        assertEquals(0, webhookEventRepository.markDone(claimed.get(0).getId(), claimed.get(0).getLockedAt(), now, null));
+        WebhookEvent event = webhookEventRepository.findById(claimed.get(0).getId()).orElseThrow();
+        assertEquals(WebhookEvent.Status.PENDING, event.getStatus());
+        assertEquals(0, event.getAttempts());
+    }
+
+    @Test
+    @DisplayName("🔒 Un worker que perdió el claim no cierra el evento que retomó otro")
+    void testStaleWorkerCannotCloseReclaimedEvent() {
+        webhookInboxService.enqueueMercadoPagoPayment(PAYMENT_ID, "{}");
+
+        LocalDateTime first = LocalDateTime.now().plusSeconds(1);
+        WebhookEvent stale = webhookEventRepository.claim(10, first, first.minusMinutes(5)).get(0);
+
+        // El primer worker se colgó: pasado staleAfter lo retoma otro
+        LocalDateTime second = first.plusMinutes(10);
+        WebhookEvent current = webhookEventRepository.claim(10, second, second.minusMinutes(5)).get(0);
+        assertEquals(stale.getId(), current.getId());
+
+        assertEquals(0, webhookEventRepository.markFailed(stale.getId(), stale.getLockedAt(), second, "viejo"));
+        assertEquals(0, webhookEventRepository.reschedule(stale.getId(), stale.getLockedAt(), second, "viejo"));
+        assertEquals(0, webhookEventRepository.markDone(stale.getId(), stale.getLockedAt(), second, null));
+        assertEquals(1, webhookEventRepository.markDone(current.getId(), current.getLockedAt(), second, null));
+
+        WebhookEvent event = webhookEventRepository.findById(current.getId()).orElseThrow();
+        assertEquals(WebhookEvent.Status.DONE, event.getStatus());
+        assertNull(event.getLastError());
+    }
+
+    @Test
+    @DisplayName("🏷️ Una notificación del mismo pago con otro tenant no pisa el tenant guardado")
+    void testRedeliveryWithOtherTenantIsRejected() {
+        webhookInboxService.enqueueMercadoPagoPayment(PAYMENT_ID, "tenant-a", "{}");
+
+        assertThrows(BadRequestException.class,
+                () -> webhookInboxService.enqueueMercadoPagoPayment(PAYMENT_ID, "tenant-b", "{}"));
+        assertThrows(BadRequestException.class,
+                () -> webhookInboxService.enqueueMercadoPagoPayment(PAYMENT_ID, "{}"));
+
+        WebhookEvent event = webhookEventRepository.findAll().get(0);
+        assertEquals("tenant-a", event.getTenantId());
+        assertEquals(1, event.getNotifications());
+    }
+}
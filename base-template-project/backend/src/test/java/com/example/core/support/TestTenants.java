@@ -0,0 +1,82 @@
+package com.example.core.support;
+
+import com.example.core.model.Role;
+import com.example.core.model.Tenant;
+import com.example.core.model.User;
+import com.example.core.repository.TenantRepository;
+import com.example.core.repository.UserRepository;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tenant y usuarios descartables para los tests contra la base.
+ *
+ * Cada tenant tiene un subdomain único ("prefix-xxxxxxxx") y los emails de sus usuarios
+ * salen de ese subdomain, así los tests pueden correr en paralelo o dejar basura sin chocar.
+ * Se usa con @Import(TestTenants.class).
+ */
+@TestComponent
+public class TestTenants {
+
+    private final TenantRepository tenantRepository;
+    private final UserRepository userRepository;
+
+    public TestTenants(TenantRepository tenantRepository, UserRepository userRepository) {
+        this.tenantRepository = tenantRepository;
+        this.userRepository = userRepository;
+    }
+
+    public Tenant create(String prefix) {
+        return create(prefix, Tenant.BusinessType.RETAIL);
+    }
+
+    public Tenant create(String prefix, Tenant.BusinessType type) {
+        Tenant tenant = new Tenant();
+        tenant.setSubdomain(prefix + "-" + UUID.randomUUID().toString().substring(0, 8));
+        tenant.setBusinessName(prefix + " Business");
+        tenant.setType(type);
+        return tenantRepository.save(tenant);
+    }
+
+    /**
+     * Usuario del tenant: email "subdomain@example.com"
+     */
+    public User user(Tenant tenant, Role role) {
+        return userRepository.save(newUser(tenant, role, tenant.getSubdomain()));
+    }
+
+    /**
+     * count usuarios del tenant: emails "subdomain-i@example.com"
+     */
+    public List<User> users(Tenant tenant, Role role, int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(newUser(tenant, role, tenant.getSubdomain() + "-" + i));
+        }
+        return userRepository.saveAll(users);
+    }
+
+    /**
+     * Borra los usuarios del tenant y el tenant. Lo que cuelga de ellos (órdenes, items, etc.)
+     * lo borra cada test antes.
+     */
+    public void delete(Tenant tenant) {
+        userRepository.deleteAll(userRepository.findByTenant(tenant));
+        tenantRepository.delete(tenant);
+    }
+
+    // ========== HELPERS ==========
+
+    private static User newUser(Tenant tenant, Role role, String name) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("hashed_password");
+        user.setRole(role);
+        user.setTenant(tenant);
+        return user;
+    }
+}
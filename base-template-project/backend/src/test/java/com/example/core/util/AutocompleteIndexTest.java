@@ -0,0 +1,85 @@
+package com.example.core.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Autocompletado de municipios/localidades en memoria
+ */
+@DisplayName("🔎 Índice de autocompletado")
+class AutocompleteIndexTest {
+
+    private record Place(String name, String province) {
+    }
+
+    private static final List<Place> PLACES = List.of(
+            new Place("San Martín de los Andes", "58"),
+            new Place("General San Martín", "06"),
+            new Place("San Martín", "06"),
+            new Place("Villa San Martín", "86"),
+            new Place("Córdoba", "14"),
+            new Place("Río Cuarto", "14"),
+            new Place("Villa General Belgrano", "14"),
+            new Place("Villa Gesell", "06")
+    );
+
+    private final AutocompleteIndex<Place> index = new AutocompleteIndex<>(PLACES, Place::name, Place::province);
+
+    @Test
+    @DisplayName("🏆 Ranking: exacto, empieza con, primera palabra, resto; a igualdad el más corto")
+    void testRanking() {
+        assertEquals(List.of("San Martín", "San Martín de los Andes", "Villa San Martín", "General San Martín"),
+                names(index.search("san martin", null, 10)));
+
+        // "san andes" no es prefijo del nombre pero sí de su primera palabra: antes que el resto
+        assertEquals(List.of("San Martín de los Andes"), names(index.search("san andes", null, 10)));
+
+        assertEquals(List.of("San Martín", "San Martín de los Andes"), names(index.search("san martin", null, 2)));
+    }
+
+    @Test
+    @DisplayName("✅ Acentos y mayúsculas no importan")
+    void testAccentFolding() {
+        assertEquals("rio cuarto", AutocompleteIndex.fold("  Río-Cuarto! "));
+        assertEquals(List.of("Córdoba"), names(index.search("cordoba", null, 10)));
+        assertEquals(List.of("Córdoba"), names(index.search("CÓRDOBA", null, 10)));
+        assertEquals(List.of("Río Cuarto"), names(index.search("rio cu", null, 10)));
+    }
+
+    @Test
+    @DisplayName("✅ Cada palabra de la búsqueda matchea por prefijo")
+    void testWordPrefixes() {
+        assertEquals(List.of("Villa General Belgrano"), names(index.search("villa gen", null, 10)));
+        assertEquals(List.of("Villa Gesell", "Villa General Belgrano"), names(index.search("villa ge", null, 10)));
+        assertTrue(index.search("x", null, 10).isEmpty(), "Menos de 2 letras no busca");
+    }
+
+    @Test
+    @DisplayName("🔤 Sin matches por prefijo cae a trigramas (errores de tipeo)")
+    void testTrigramFallback() {
+        assertEquals(List.of("Córdoba"), names(index.search("cordova", null, 10)));
+        assertEquals("Villa Gesell", names(index.search("vila gesel", null, 10)).get(0));
+        assertTrue(index.search("zzzzzz", null, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("🗺️ Filtro por provincia; vacío es sin filtro")
+    void testScope() {
+        assertEquals(List.of("San Martín", "General San Martín"), names(index.search("san martin", "06", 10)));
+        assertTrue(index.search("cordoba", "06", 10).isEmpty());
+        assertTrue(index.search("cordova", "06", 10).isEmpty(), "El fallback respeta el filtro");
+
+        assertEquals(4, index.search("san martin", "", 10).size());
+        assertEquals(4, index.search("san martin", "  ", 10).size());
+    }
+
+    // ========== HELPERS ==========
+
+    private static List<String> names(List<Place> places) {
+        return places.stream().map(Place::name).toList();
+    }
+}
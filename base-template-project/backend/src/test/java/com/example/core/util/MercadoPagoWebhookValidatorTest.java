@@ -0,0 +1,58 @@
+package com.example.core.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Firma x-signature de los webhooks de MercadoPago
+ */
+@DisplayName("🔏 Firma de webhooks de MercadoPago")
+class MercadoPagoWebhookValidatorTest {
+
+    private static final String SECRET = "tenant-secret";
+    private static final String REQUEST_ID = "bb56a2f1-6aae-46ac-982e-9dcd3581d08e";
+    private static final String PAYMENT_ID = "123456789";
+    private static final String TS = "1742505638683";
+
+    private final MercadoPagoWebhookValidator validator = new MercadoPagoWebhookValidator();
+
+    @Test
+    @DisplayName("✅ Firma hecha con el secreto correcto")
+    void testValidSignature() {
+        String header = "ts=" + TS + ",v1=" + sign("id:" + PAYMENT_ID + ";request-id:" + REQUEST_ID + ";ts:" + TS + ";", SECRET);
+
+        assertTrue(validator.isValid(header, REQUEST_ID, PAYMENT_ID, SECRET));
+    }
+
+    @Test
+    @DisplayName("🚫 Otro secreto, otro pago o header incompleto no valen")
+    void testInvalidSignatures() {
+        String header = "ts=" + TS + ",v1=" + sign("id:" + PAYMENT_ID + ";request-id:" + REQUEST_ID + ";ts:" + TS + ";", SECRET);
+
+        assertFalse(validator.isValid(header, REQUEST_ID, PAYMENT_ID, "otro-secreto"));
+        assertFalse(validator.isValid(header, REQUEST_ID, "987654321", SECRET));
+        assertFalse(validator.isValid(header, REQUEST_ID, PAYMENT_ID, null));
+        assertFalse(validator.isValid("ts=" + TS, REQUEST_ID, PAYMENT_ID, SECRET));
+        assertFalse(validator.isValid("ts=" + TS + ",v1=no-es-hex", REQUEST_ID, PAYMENT_ID, SECRET));
+        assertFalse(validator.isValid(null, REQUEST_ID, PAYMENT_ID, SECRET));
+    }
+
+    // ========== HELPERS ==========
+
+    private static String sign(String manifest, String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(manifest.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.core.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cache en memoria de tenants, catálogo y cotizaciones de envío, con un reloj manual
+ */
+@DisplayName("⏳ TtlCache: expiración, cacheo negativo y tamaño máximo")
+class TtlCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<String> loads = new ArrayList<>();
+
+    @Test
+    @DisplayName("✅ Dentro del TTL es hit; al vencer se vuelve a cargar")
+    void testExpiry() {
+        TtlCache<String, String> cache = cache(10, Duration.ofSeconds(60), Duration.ofSeconds(60));
+
+        assertEquals("A", cache.get("a", loader()));
+        advance(Duration.ofSeconds(59));
+        assertEquals("A", cache.get("a", loader()));
+        assertEquals("A", cache.getIfPresent("a"));
+        assertEquals(List.of("a"), loads);
+
+        advance(Duration.ofSeconds(1));
+        assertNull(cache.getIfPresent("a"), "Vencido no se devuelve");
+        assertEquals("A", cache.get("a", loader()));
+        assertEquals(List.of("a", "a"), loads);
+
+        Map<String, Object> stats = cache.stats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+    }
+
+    @Test
+    @DisplayName("🚫 El null del loader se cachea con su propio TTL (más corto)")
+    void testNegativeTtl() {
+        TtlCache<String, String> cache = cache(10, Duration.ofSeconds(60), Duration.ofSeconds(10));
+        Function<String, String> missing = key -> {
+            loads.add(key);
+            return null;
+        };
+
+        assertNull(cache.get("x", missing));
+        advance(Duration.ofSeconds(9));
+        assertNull(cache.get("x", missing));
+        assertEquals(List.of("x"), loads, "El 'no existe' también es hit");
+        assertEquals(1L, cache.stats().get("negativeHits"));
+
+        advance(Duration.ofSeconds(1));
+        assertEquals("X", cache.get("x", loader()), "Pasado el TTL negativo se vuelve a buscar");
+        assertEquals(List.of("x", "x"), loads);
+
+        // El valor encontrado usa el TTL normal
+        advance(Duration.ofSeconds(30));
+        assertEquals("X", cache.getIfPresent("x"));
+    }
+
+    @Test
+    @DisplayName("🧹 Lleno: primero salen las vencidas, después la más próxima a vencer")
+    void testMaxSizeEviction() {
+        TtlCache<String, String> cache = cache(3, Duration.ofSeconds(60), Duration.ofSeconds(5));
+
+        cache.get("a", loader());
+        advance(Duration.ofSeconds(1));
+        cache.get("b", loader());
+        cache.put("missing", null);
+        assertEquals(3, cache.size());
+
+        // "missing" venció (TTL negativo): alcanza con sacarla a ella
+        advance(Duration.ofSeconds(5));
+        cache.get("c", loader());
+        assertEquals(3, cache.size());
+        assertEquals("A", cache.getIfPresent("a"));
+        assertEquals("B", cache.getIfPresent("b"));
+
+        // Nada vencido: sale "a", que es la que vence antes
+        cache.get("d", loader());
+        assertEquals(3, cache.size());
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("B", cache.getIfPresent("b"));
+        assertEquals("C", cache.getIfPresent("c"));
+        assertEquals("D", cache.getIfPresent("d"));
+        assertEquals(2L, cache.stats().get("evictions"));
+
+        // Reemplazar una clave existente no desaloja a nadie
+        cache.put("b", "B2");
+        assertEquals(3, cache.size());
+        assertEquals(2L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    @DisplayName("🗑️ invalidate e invalidateAll fuerzan la recarga")
+    void testInvalidation() {
+        TtlCache<String, String> cache = cache(10, Duration.ofSeconds(60), Duration.ofSeconds(60));
+        cache.get("a", loader());
+        cache.get("b", loader());
+
+        cache.invalidate("a");
+        cache.invalidate("zzz");
+        cache.invalidate(null);
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("B", cache.getIfPresent("b"));
+        assertEquals(1L, cache.stats().get("invalidations"));
+
+        cache.get("a", loader());
+        assertEquals(List.of("a", "b", "a"), loads);
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(3L, cache.stats().get("invalidations"));
+    }
+
+    @Test
+    @DisplayName("❌ maxSize tiene que ser positivo")
+    void testInvalidMaxSize() {
+        assertThrows(IllegalArgumentException.class, () -> new TtlCache<>("bad", 0, Duration.ofSeconds(1)));
+    }
+
+    // ========== HELPERS ==========
+
+    private TtlCache<String, String> cache(int maxSize, Duration ttl, Duration negativeTtl) {
+        return new TtlCache<>("test", maxSize, ttl, negativeTtl, now::get);
+    }
+
+    private Function<String, String> loader() {
+        return key -> {
+            loads.add(key);
+            return key.toUpperCase();
+        };
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+}